@@ -0,0 +1,102 @@
+package com.polancou.apibasecore.perf;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.*;
+
+/**
+ * Load suite for the "perf" profile: new users registering, and seeded users logging in, reading
+ * their profile, searching the user list and refreshing their token. Fails the build when the
+ * global p99 or the error rate goes over budget, so regressions show up in CI, and leaves a
+ * comparable HTML report per run under target/gatling/.
+ */
+public class ApiLoadSimulation extends Simulation {
+
+    private static final String BASE_URL = System.getProperty("baseUrl", "http://localhost:8080");
+    private static final int SEEDED_USERS = Integer.getInteger("seededUsers", 1_000_000);
+    private static final String PASSWORD = System.getProperty("seededPassword", "PerfPassword1!");
+    private static final int USERS_PER_SEC = Integer.getInteger("usersPerSec", 50);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("durationSeconds", 120));
+    private static final int P99_MILLIS = Integer.getInteger("p99Millis", 500);
+
+    // Refresh cookie is Secure, so over plain HTTP it is carried by hand instead of the cookie jar
+    private static final String REFRESH_COOKIE = "refreshToken=([^;]+)";
+
+    private final HttpProtocolBuilder httpProtocol = http
+            .baseUrl(BASE_URL)
+            .acceptHeader("application/json")
+            .contentTypeHeader("application/json");
+
+    // Seeded user i is perf-user-<i>@perf.test; the prefix without the last digit matches 10 users
+    private final Iterator<Map<String, Object>> seededUsers = Stream.generate(() -> {
+        String suffix = String.format("%07d", ThreadLocalRandom.current().nextInt(SEEDED_USERS));
+        return Map.<String, Object>of(
+                "email", "perf-user-" + suffix + "@perf.test",
+                "emailPrefix", "perf-user-" + suffix.substring(0, 6));
+    }).iterator();
+
+    private final Iterator<Map<String, Object>> newUsers = Stream.generate(() -> {
+        String id = UUID.randomUUID().toString().replace("-", "");
+        return Map.<String, Object>of(
+                "newEmail", "new-" + id + "@perf.test",
+                "newTaxId", "N" + id.substring(0, 12).toUpperCase());
+    }).iterator();
+
+    private final ChainBuilder register = feed(newUsers)
+            .exec(http("register").post("/api/v1/auth/register")
+                    .body(StringBody("{\"name\":\"Usuario Nuevo\",\"email\":\"#{newEmail}\",\"password\":\"" + PASSWORD
+                            + "\",\"phone\":\"5512345678\",\"taxId\":\"#{newTaxId}\"}"))
+                    .check(status().is(200)));
+
+    private final ChainBuilder login = feed(seededUsers)
+            .exec(http("login").post("/api/v1/auth/login")
+                    .body(StringBody("{\"email\":\"#{email}\",\"password\":\"" + PASSWORD + "\"}"))
+                    .check(status().is(200))
+                    .check(jsonPath("$.accessToken").saveAs("accessToken"))
+                    .check(headerRegex("Set-Cookie", REFRESH_COOKIE).saveAs("refreshToken")));
+
+    private final ChainBuilder profile = exec(http("profile me").get("/api/v1/profile/me")
+            .header("Authorization", "Bearer #{accessToken}")
+            .check(status().is(200)));
+
+    private final ChainBuilder searchUsers = exec(http("users filtered sorted").get("/api/v1/users")
+            .queryParam("filter", "email+sw+#{emailPrefix}")
+            .queryParam("sortedBy", "name")
+            .header("Authorization", "Bearer #{accessToken}")
+            .check(status().is(200)));
+
+    private final ChainBuilder refresh = exec(http("refresh").post("/api/v1/auth/refresh")
+            .header("Cookie", "refreshToken=#{refreshToken}")
+            .check(status().is(200))
+            .check(jsonPath("$.accessToken").saveAs("accessToken"))
+            .check(headerRegex("Set-Cookie", REFRESH_COOKIE).saveAs("refreshToken")));
+
+    private final ScenarioBuilder registration = scenario("registration").exec(register);
+
+    private final ScenarioBuilder session = scenario("authenticated session")
+            .exec(login)
+            .pause(Duration.ofMillis(200), Duration.ofSeconds(1))
+            .exec(profile, searchUsers, refresh, profile);
+
+    {
+        setUp(
+                registration.injectOpen(constantUsersPerSec(Math.max(1, USERS_PER_SEC / 5.0)).during(DURATION)),
+                session.injectOpen(constantUsersPerSec(USERS_PER_SEC).during(DURATION))
+        )
+                .protocols(httpProtocol)
+                .assertions(
+                        global().responseTime().percentile(99.0).lt(P99_MILLIS),
+                        global().failedRequests().percent().lt(1.0));
+    }
+}
@@ -0,0 +1,59 @@
+package com.polancou.apibasecore.benchmarks;
+
+import com.polancou.apibasecore.application.utilities.ValidationUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass contact validators against the regex checks they replaced, on valid and invalid
+ * input. Run with {@code mvn -Pjmh test-compile exec:exec}; add {@code -prof gc} to the JMH
+ * arguments to see the allocation rate as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ContactValidationBenchmark {
+
+    // The validators as they were before the single-pass rewrite
+    private static final Pattern RFC_PATTERN = Pattern.compile("^[A-Z&Ñ]{3,4}\\d{6}[A-Z0-9]{3}$", Pattern.CASE_INSENSITIVE);
+
+    @Param({"GODE561231GR8", "GODE561231GR"})
+    public String taxId;
+
+    @Param({"(55) 1234-5678", "551234567"})
+    public String phone;
+
+    @Benchmark
+    public boolean taxIdRegex() {
+        return taxId != null && !taxId.isBlank() && RFC_PATTERN.matcher(taxId).matches();
+    }
+
+    @Benchmark
+    public boolean taxIdSinglePass() {
+        return ValidationUtilities.validateTaxIdRFC(taxId);
+    }
+
+    @Benchmark
+    public boolean phoneRegex() {
+        return phone != null && !phone.isBlank() && phone.replaceAll("[^\\d]", "").length() == 10;
+    }
+
+    @Benchmark
+    public boolean phoneSinglePass() {
+        return ValidationUtilities.validatePhoneAndresFormat(phone);
+    }
+}
@@ -0,0 +1,161 @@
+package com.polancou.apibasecore.api.controllers;
+
+import com.polancou.apibasecore.application.dtos.StoredFileInfo;
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+/**
+ * Serves the URLs returned by the avatar upload. Content-addressed names (the SHA-256 of the
+ * bytes) never change and are cached forever by browsers and CDNs; names from before content
+ * addressing are revalidated against their ETag. Anonymous access.
+ */
+@RestController
+@RequestMapping("/uploads/avatars")
+public class AvatarController {
+
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    static final String LEGACY_CACHE_CONTROL = "public, max-age=86400, must-revalidate";
+
+    // Tomcat sendfile request attributes (NIO connector): the container writes the file to the
+    // socket with sendfile(2) after the servlet returns
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final IFileStorageService fileStorageService;
+
+    public AvatarController(IFileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    @RequestMapping(value = "/{fileName:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getAvatar(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StoredFileInfo info = fileStorageService.getFileInfo(fileName);
+        if (info == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String etag = "\"" + info.getEtag() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, isContentAddressed(fileName) ? CACHE_CONTROL : LEGACY_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(info.getContentType());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, info.getLastModified());
+
+        long size = info.getSize();
+        long start = 0;
+        long end = size - 1;
+
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // A stale If-Range means the client's partial copy is of other content: send it all
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length <= 0) {
+            return;
+        }
+
+        if (info.getLocalPath() != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, info.getLocalPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        fileStorageService.transferTo(fileName, start, length, Channels.newChannel(response.getOutputStream()));
+    }
+
+    // {sha256-hex}.{ext}: the name changes whenever the bytes do
+    static boolean isContentAddressed(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        int length = dot < 0 ? fileName.length() : dot;
+        if (length != 64) return false;
+        for (int i = 0; i < length; i++) {
+            char c = fileName.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return false;
+        }
+        return true;
+    }
+
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            // If-None-Match uses weak comparison
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parses a single {@code bytes=} range. Returns {start, end} (inclusive), an empty array
+     * when the header should be ignored (other units, multiple ranges, malformed), or null
+     * when the range cannot be satisfied.
+     */
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // Suffix range: last N bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0 || size == 0) return null;
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                // Open range: clamped to the last byte below, once start is known to be inside
+                end = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+                if (end < start) return new long[0];
+                if (start >= size) return null;
+                end = Math.min(end, size - 1);
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
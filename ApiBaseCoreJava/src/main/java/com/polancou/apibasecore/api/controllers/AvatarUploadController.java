@@ -0,0 +1,73 @@
+package com.polancou.apibasecore.api.controllers;
+
+import com.polancou.apibasecore.application.dtos.CreateUploadSessionDto;
+import com.polancou.apibasecore.application.dtos.UploadSessionDto;
+import com.polancou.apibasecore.application.interfaces.IUploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resumable avatar upload. POST opens a session, each PUT appends one chunk at
+ * {@code ?offset=} with its SHA-256 in {@code X-Chunk-SHA256}, GET reports the offset to resume
+ * from, and POST .../complete turns the chunks into the avatar. Chunk bodies are raw bytes
+ * (application/octet-stream), read straight from the request without multipart buffering.
+ */
+@RestController
+@RequestMapping("/api/v1/profile/avatar/uploads")
+public class AvatarUploadController {
+
+    private final IUploadSessionService uploadSessionService;
+
+    public AvatarUploadController(IUploadSessionService uploadSessionService) {
+        this.uploadSessionService = uploadSessionService;
+    }
+
+    private UUID getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new RuntimeException("User not authenticated");
+        }
+        return UUID.fromString(authentication.getName());
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadSessionDto> createSession(@Valid @RequestBody CreateUploadSessionDto dto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadSessionService.createSession(getCurrentUserId(), dto));
+    }
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<UploadSessionDto> getSession(@PathVariable UUID sessionId) {
+        return ResponseEntity.ok(uploadSessionService.getSession(getCurrentUserId(), sessionId));
+    }
+
+    @PutMapping("/{sessionId}")
+    public ResponseEntity<UploadSessionDto> appendChunk(@PathVariable UUID sessionId,
+                                                        @RequestParam long offset,
+                                                        @RequestHeader(value = "X-Chunk-SHA256", required = false) String sha256,
+                                                        HttpServletRequest request) throws IOException {
+        UploadSessionDto session = uploadSessionService.appendChunk(getCurrentUserId(), sessionId, offset, sha256, request.getInputStream());
+        return ResponseEntity.ok(session);
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<Map<String, String>> complete(@PathVariable UUID sessionId) {
+        String avatarUrl = uploadSessionService.completeAvatarUpload(getCurrentUserId(), sessionId);
+        return ResponseEntity.ok(Collections.singletonMap("avatarUrl", avatarUrl));
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> cancel(@PathVariable UUID sessionId) {
+        uploadSessionService.cancelSession(getCurrentUserId(), sessionId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -63,10 +63,7 @@ public class ProfileController {
         if (file.getSize() > 2 * 1024 * 1024) {
              return ResponseEntity.badRequest().body(Collections.singletonMap("message", "El archivo debe ser menor a 2 MB."));
         }
-        
-        // TODO: Validate file signature (magic numbers) as in C# FileSignatureValidator. 
-        // Skipping for now to keep it simple, but noted.
-        
+
         String newAvatarUrl = profileService.uploadAvatar(getCurrentUserId(), file);
         return ResponseEntity.ok(Collections.singletonMap("avatarUrl", newAvatarUrl));
     }
@@ -1,15 +1,25 @@
 package com.polancou.apibasecore.api.controllers;
 
+import com.polancou.apibasecore.application.dtos.BulkOperationResultDto;
+import com.polancou.apibasecore.application.dtos.BulkUpdateUsersDto;
+import com.polancou.apibasecore.application.dtos.BulkUserSelectionDto;
 import com.polancou.apibasecore.application.dtos.PerfilUsuarioDto;
 import com.polancou.apibasecore.application.dtos.RegistroUsuarioDto;
 import com.polancou.apibasecore.application.dtos.UpdateUserDto;
 import com.polancou.apibasecore.application.dtos.UserFilterDto;
+import com.polancou.apibasecore.application.dtos.UserImportResultDto;
+import com.polancou.apibasecore.application.interfaces.IUserBulkService;
 import com.polancou.apibasecore.application.interfaces.IUserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.URI;
 import java.util.List;
 import java.util.UUID;
@@ -18,14 +28,23 @@ import java.util.UUID;
 @RequestMapping("/api/v1/users")
 public class UsersController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final IUserService userService;
+    private final IUserBulkService userBulkService;
+    private final ObjectMapper objectMapper;
 
-    public UsersController(IUserService userService) {
+    public UsersController(IUserService userService, IUserBulkService userBulkService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userBulkService = userBulkService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public ResponseEntity<List<PerfilUsuarioDto>> getUsers(@ModelAttribute UserFilterDto filterDto) {
+    public ResponseEntity<List<?>> getUsers(@ModelAttribute UserFilterDto filterDto) {
+        if (filterDto.getFields() != null && !filterDto.getFields().isBlank()) {
+            return ResponseEntity.ok(userService.getUsersFields(filterDto));
+        }
         return ResponseEntity.ok(userService.getUsers(filterDto));
     }
 
@@ -40,8 +59,40 @@ public class UsersController {
         return ResponseEntity.created(location).body(createdUser);
     }
 
+    /**
+     * Streams one NDJSON result line per input line as each chunk is committed,
+     * so neither the request nor the report is held in memory.
+     */
+    @PostMapping(value = "/import", consumes = NDJSON, produces = NDJSON)
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter writer = response.getWriter();
+
+        userBulkService.importUsers(request.getInputStream(), results -> {
+            for (UserImportResultDto result : results) {
+                writer.write(objectMapper.writeValueAsString(result));
+                writer.write('\n');
+            }
+            writer.flush();
+        });
+    }
+
+    @PostMapping("/bulk-update")
+    public ResponseEntity<BulkOperationResultDto> bulkUpdateUsers(@RequestBody BulkUpdateUsersDto updateDto) {
+        return ResponseEntity.ok(userBulkService.updateUsers(updateDto));
+    }
+
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkOperationResultDto> bulkDeleteUsers(@RequestBody BulkUserSelectionDto selection) {
+        return ResponseEntity.ok(userBulkService.deleteUsers(selection));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<PerfilUsuarioDto> getUserById(@PathVariable UUID id) {
+    public ResponseEntity<Object> getUserById(@PathVariable UUID id, @RequestParam(required = false) String fields) {
+        if (fields != null && !fields.isBlank()) {
+            return ResponseEntity.ok(userService.getUserFieldsById(id, fields));
+        }
         return ResponseEntity.ok(userService.getUserById(id));
     }
 
@@ -0,0 +1,97 @@
+package com.polancou.apibasecore.api.exceptions;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RFC 7807 {@code application/problem+json} responses. Business failures repeat a small set of
+ * fixed messages ("Credenciales inválidas.", "Usuario no encontrado."), so each status/message
+ * pair is serialized once and only the per-response {@code timestamp} is appended to the cached
+ * bytes; the body never goes through Jackson again. Every response gets its own array, so a
+ * caller that changes the body cannot corrupt the next one. Messages that embed request data
+ * ("Rol inválido: x") would otherwise grow the cache without bound, so it keeps only the
+ * {@code MAX_CACHED} most recently used pairs: the fixed messages stay hot while one-off
+ * messages are evicted.
+ */
+@Component
+public class ProblemResponses {
+
+    static final int MAX_CACHED = 512;
+
+    private final ObjectMapper objectMapper;
+    // Serialized problem without its closing brace, ready for the timestamp
+    private final Map<String, byte[]> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+    private final HttpHeaders headers;
+
+    public ProblemResponses(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        HttpHeaders problemHeaders = new HttpHeaders();
+        problemHeaders.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+        this.headers = HttpHeaders.readOnlyHttpHeaders(problemHeaders);
+    }
+
+    public ResponseEntity<byte[]> of(HttpStatus status, String detail) {
+        String key = status.value() + ":" + detail;
+        byte[] prefix = cache.get(key);
+        if (prefix == null) {
+            // Serialized outside the lock; two threads racing on a new message just do it twice
+            prefix = prefix(status, detail);
+            cache.put(key, prefix);
+        }
+        return respond(status, prefix);
+    }
+
+    /**
+     * Renders without caching, for messages that are unique per request.
+     */
+    public ResponseEntity<byte[]> render(HttpStatus status, String detail) {
+        return respond(status, prefix(status, detail));
+    }
+
+    boolean isCached(HttpStatus status, String detail) {
+        return cache.containsKey(status.value() + ":" + detail);
+    }
+
+    int cachedCount() {
+        return cache.size();
+    }
+
+    private byte[] prefix(HttpStatus status, String detail) {
+        Map<String, Object> problem = new LinkedHashMap<>();
+        problem.put("type", "about:blank");
+        problem.put("title", status.getReasonPhrase());
+        problem.put("status", status.value());
+        problem.put("detail", detail);
+        // Kept for clients written against the previous {timestamp, message} body
+        problem.put("message", detail);
+        byte[] json = objectMapper.writeValueAsBytes(problem);
+        return Arrays.copyOf(json, json.length - 1);
+    }
+
+    private ResponseEntity<byte[]> respond(HttpStatus status, byte[] prefix) {
+        // Same ISO-8601 form Jackson gave the LocalDateTime of the previous body
+        byte[] suffix = (",\"timestamp\":\"" + DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.now()) + "\"}")
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] body = Arrays.copyOf(prefix, prefix.length + suffix.length);
+        System.arraycopy(suffix, 0, body, prefix.length, suffix.length);
+        return new ResponseEntity<>(body, headers, status);
+    }
+}
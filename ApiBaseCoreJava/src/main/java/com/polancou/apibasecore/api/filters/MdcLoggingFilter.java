@@ -0,0 +1,55 @@
+package com.polancou.apibasecore.api.filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Puts {@code requestId} and {@code route} in the logging MDC for the whole request, so every
+ * structured log line can be tied back to it; {@code userId} is added by the JWT filter once the
+ * caller is authenticated. A well-formed incoming {@code X-Request-Id} is kept, otherwise one is
+ * generated, and it is echoed in the response. Runs right after the server observation filter,
+ * ahead of Spring Security.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class MdcLoggingFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String REQUEST_ID = "requestId";
+    public static final String ROUTE = "route";
+    public static final String USER_ID = "userId";
+
+    // Client-supplied ids end up in every log line, so only short, plain tokens are accepted
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || !VALID_REQUEST_ID.matcher(requestId).matches()) {
+            requestId = UUID.randomUUID().toString();
+        }
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+
+        MDC.put(REQUEST_ID, requestId);
+        MDC.put(ROUTE, request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(REQUEST_ID);
+            MDC.remove(ROUTE);
+            MDC.remove(USER_ID);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.polancou.apibasecore.api.filters;
+
+import com.polancou.apibasecore.infrastructure.persistence.QueryStats;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds {@code X-Query-Count} and {@code X-Query-Time-Ms} to JSON responses, counted up to the
+ * moment the body is written (which {@link QueryCountFilter} has been counting since the request
+ * came in). Meant for development and test environments; leave it off in production.
+ */
+@RestControllerAdvice
+@ConditionalOnProperty(name = "diagnostics.query-count.header-enabled", havingValue = "true")
+public class QueryCountHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        QueryStats stats = QueryStats.current();
+        if (stats != null) {
+            response.getHeaders().set("X-Query-Count", Integer.toString(stats.getQueries()));
+            response.getHeaders().set("X-Query-Time-Ms", Long.toString(stats.getMillis()));
+        }
+        return body;
+    }
+}
@@ -1,13 +1,20 @@
 package com.polancou.apibasecore.api.security;
 
+import com.polancou.apibasecore.api.filters.MdcLoggingFilter;
 import com.polancou.apibasecore.infrastructure.services.TokenService;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
@@ -19,7 +26,6 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import javax.crypto.SecretKey;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
@@ -28,10 +34,35 @@ import java.util.List;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final String key;
+    // Thread-safe; built once instead of re-deriving the key and parser on every request
+    private final JwtParser parser;
 
-    public JwtAuthenticationFilter(@Value("${jwt.key}") String key) {
-        this.key = key;
+    private final Counter validTokens;
+    private final Counter expiredTokens;
+    private final Counter invalidTokens;
+    private final Counter errors;
+
+    public JwtAuthenticationFilter(@Value("${jwt.key}") String key, MeterRegistry meterRegistry) {
+        this.parser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(key.getBytes(StandardCharsets.UTF_8)))
+                .build();
+        this.validTokens = verifications(meterRegistry, "valid");
+        this.expiredTokens = verifications(meterRegistry, "expired");
+        this.invalidTokens = verifications(meterRegistry, "invalid");
+        this.errors = verifications(meterRegistry, "error");
+    }
+
+    private static Counter verifications(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("auth.jwt.verifications")
+                .description("Bearer tokens checked by the JWT filter")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Public avatar files never need the caller's identity; skip the signature check
+        return request.getRequestURI().startsWith(request.getContextPath() + "/uploads/avatars/");
     }
 
     @Override
@@ -46,17 +77,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = authHeader.substring(7);
         try {
-            SecretKey secretKey = Keys.hmacShaKeyFor(key.getBytes(StandardCharsets.UTF_8));
-            
-            Claims claims = Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
 
             String userId = claims.getSubject(); // This is the ID
             // String email = claims.get("email", String.class);
             String role = claims.get("role", String.class);
+            validTokens.increment();
 
             if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 // Create UserDetails
@@ -71,10 +97,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                MDC.put(MdcLoggingFilter.USER_ID, userId);
             }
-        } catch (Exception e) {
-            // Token invalid or expired
-            // System.out.println("JWT verification failed: " + e.getMessage());
+        } catch (ExpiredJwtException e) {
+            expiredTokens.increment();
+        } catch (JwtException | IllegalArgumentException e) {
+            // Bad signature, malformed or unsupported token
+            invalidTokens.increment();
+        } catch (RuntimeException e) {
+            // Anything else still leaves the request unauthenticated, as before
+            errors.increment();
         }
 
         filterChain.doFilter(request, response);
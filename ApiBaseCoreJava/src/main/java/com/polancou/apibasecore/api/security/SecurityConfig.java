@@ -1,7 +1,9 @@
 package com.polancou.apibasecore.api.security;
 
+import com.polancou.apibasecore.domain.enums.RolUsuario;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -26,6 +28,14 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/v1/auth/**").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        // Served on the separate management port only, which is not exposed publicly
+                        .requestMatchers("/actuator/**").permitAll()
+                        // Avatars are public, content-addressed and served with immutable caching
+                        .requestMatchers(HttpMethod.GET, "/uploads/avatars/**").permitAll()
+                        .requestMatchers(HttpMethod.HEAD, "/uploads/avatars/**").permitAll()
+                        // Set-based writes can change roles and delete any account
+                        .requestMatchers(HttpMethod.POST, "/api/v1/users/bulk-update", "/api/v1/users/bulk-delete")
+                        .hasRole(RolUsuario.Admin.name())
                          // Match C# [Authorize] on UsersController and ProfileController
                         .anyRequest().authenticated()
                 )
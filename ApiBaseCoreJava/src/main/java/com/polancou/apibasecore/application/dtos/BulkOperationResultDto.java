@@ -0,0 +1,12 @@
+package com.polancou.apibasecore.application.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BulkOperationResultDto {
+    private long matched;
+    private long affected;
+    private boolean dryRun;
+}
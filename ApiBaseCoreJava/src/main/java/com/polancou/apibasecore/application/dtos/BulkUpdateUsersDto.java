@@ -0,0 +1,24 @@
+package com.polancou.apibasecore.application.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BulkUpdateUsersDto {
+    /** Explicit ids to act on. Mutually exclusive with {@link #filter}. */
+    private List<UUID> ids;
+
+    /** Same syntax as {@code UserFilterDto.filter}, e.g. {@code email+ew+example.com}. */
+    private String filter;
+
+    /** When true only the number of matching users is reported. */
+    private boolean dryRun;
+
+    /** New role for every matched user (User, Admin). */
+    private String rol;
+
+    /** Clears refresh tokens so every matched user has to log in again. */
+    private boolean revokeSessions;
+}
@@ -0,0 +1,18 @@
+package com.polancou.apibasecore.application.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BulkUserSelectionDto {
+    /** Explicit ids to act on. Mutually exclusive with {@link #filter}. */
+    private List<UUID> ids;
+
+    /** Same syntax as {@code UserFilterDto.filter}, e.g. {@code email+ew+example.com}. */
+    private String filter;
+
+    /** When true only the number of matching users is reported. */
+    private boolean dryRun;
+}
@@ -0,0 +1,15 @@
+package com.polancou.apibasecore.application.dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class CreateUploadSessionDto {
+    @NotBlank
+    private String fileName;
+
+    /** Size of the whole file in bytes, known up front so the server can tell when it is complete. */
+    @Positive
+    private long totalSize;
+}
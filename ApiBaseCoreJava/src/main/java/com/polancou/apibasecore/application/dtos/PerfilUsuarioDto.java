@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -20,6 +21,9 @@ public class PerfilUsuarioDto {
     private String createdAt;
     
     private String avatarUrl;
+
+    // Variant URLs keyed by size in px ("64", "128", "512"); null until they have been generated
+    private Map<String, String> avatarVariants;
     private String rol;
     
     private List<AddressDto> addresses = new ArrayList<>();
@@ -5,7 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 
 @Data
-public class RegistroUsuarioDto {
+public class RegistroUsuarioDto implements UserContactFields {
     @NotBlank
     private String name;
     
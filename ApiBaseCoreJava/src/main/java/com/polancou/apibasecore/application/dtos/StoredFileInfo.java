@@ -0,0 +1,19 @@
+package com.polancou.apibasecore.application.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.file.Path;
+
+@Data
+@AllArgsConstructor
+public class StoredFileInfo {
+    private String name;
+    private String contentType;
+    private long size;
+    private long lastModified;
+    // Strong validator; for content-addressed blobs this is the content hash
+    private String etag;
+    // Absolute path when the backend keeps the file on local disk, otherwise null
+    private Path localPath;
+}
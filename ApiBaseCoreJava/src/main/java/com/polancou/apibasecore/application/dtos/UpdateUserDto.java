@@ -4,7 +4,7 @@ import jakarta.validation.constraints.Email;
 import lombok.Data;
 
 @Data
-public class UpdateUserDto {
+public class UpdateUserDto implements UserContactFields {
     @Email
     private String email;
     
@@ -0,0 +1,20 @@
+package com.polancou.apibasecore.application.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class UploadSessionDto {
+    private UUID id;
+    private String fileName;
+    private long totalSize;
+    /** Offset the next chunk must start at. */
+    private long receivedBytes;
+    private long maxChunkSize;
+    private LocalDateTime expiresAt;
+    private boolean complete;
+}
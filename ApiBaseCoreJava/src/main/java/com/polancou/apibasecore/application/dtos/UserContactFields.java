@@ -0,0 +1,11 @@
+package com.polancou.apibasecore.application.dtos;
+
+/**
+ * Contact fields shared by the user write DTOs, validated together by
+ * {@code ValidationUtilities.validate}/{@code validateAll}.
+ */
+public interface UserContactFields {
+    String getEmail();
+    String getPhone();
+    String getTaxId();
+}
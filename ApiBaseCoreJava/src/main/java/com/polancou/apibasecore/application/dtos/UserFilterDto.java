@@ -16,4 +16,11 @@ public class UserFilterDto {
      * Ops: co (contains), eq (equals), sw (starts with), ew (ends with)
      */
     private String filter;
+
+    /**
+     * Comma-separated list of properties to return (sparse fieldset).
+     * Allowed values: id, name, email, phone, tax_id, created_at, avatarUrl, rol, addresses.
+     * When empty the full profile is returned.
+     */
+    private String fields;
 }
@@ -0,0 +1,28 @@
+package com.polancou.apibasecore.application.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class UserImportResultDto {
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+
+    /** 1-based line number in the NDJSON body. */
+    private long line;
+    private String status;
+    private UUID id;
+    private String email;
+    private String message;
+
+    public static UserImportResultDto created(long line, UUID id, String email) {
+        return new UserImportResultDto(line, CREATED, id, email, null);
+    }
+
+    public static UserImportResultDto rejected(long line, String email, String message) {
+        return new UserImportResultDto(line, REJECTED, null, email, message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.polancou.apibasecore.application.exceptions;
+
+/**
+ * Base for expected business failures (bad input, missing entity, conflicting state). These are
+ * answered with a 4xx and never logged with a trace, so the stack trace is not captured: filling
+ * it in through the servlet, security and proxy frames is most of the cost of throwing.
+ */
+public abstract class BusinessException extends RuntimeException {
+
+    protected BusinessException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,7 @@
+package com.polancou.apibasecore.application.exceptions;
+
+public class ConflictException extends BusinessException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,6 @@
 package com.polancou.apibasecore.application.exceptions;
 
-public class NotFoundException extends RuntimeException {
+public class NotFoundException extends BusinessException {
     public NotFoundException(String message) {
         super(message);
     }
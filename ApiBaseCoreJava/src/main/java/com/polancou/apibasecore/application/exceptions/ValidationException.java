@@ -1,6 +1,6 @@
 package com.polancou.apibasecore.application.exceptions;
 
-public class ValidationException extends RuntimeException {
+public class ValidationException extends BusinessException {
     public ValidationException(String message) {
         super(message);
     }
@@ -0,0 +1,12 @@
+package com.polancou.apibasecore.application.interfaces;
+
+import java.util.UUID;
+
+public interface IAvatarMirrorService {
+    /**
+     * Queues a download of the user's provider picture into local storage. Does nothing when the
+     * picture was checked recently; otherwise revalidates it and, if it changed, swaps avatarUrl
+     * to the stored copy.
+     */
+    void scheduleMirror(UUID userId, String pictureUrl);
+}
@@ -1,6 +1,17 @@
 package com.polancou.apibasecore.application.interfaces;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface IEncryptionService {
     String encrypt(String plainText);
     String decrypt(String cipherText);
+
+    default List<String> encryptAll(List<String> plainTexts) {
+        List<String> result = new ArrayList<>(plainTexts.size());
+        for (String plainText : plainTexts) {
+            result.add(encrypt(plainText));
+        }
+        return result;
+    }
 }
@@ -1,8 +1,29 @@
 package com.polancou.apibasecore.application.interfaces;
 
+import com.polancou.apibasecore.application.dtos.StoredFileInfo;
+
 import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 
 public interface IFileStorageService {
     String saveFile(InputStream fileStream, String fileName) throws java.io.IOException;
     void deleteFile(String fileRoute);
+
+    /**
+     * Metadata of a stored file by its public name (the last segment of the URL returned by
+     * {@link #saveFile}), or null when it does not exist or is not a servable file.
+     */
+    StoredFileInfo getFileInfo(String fileName) throws java.io.IOException;
+
+    /**
+     * Opens a stored file for reading by its public name. Throws NoSuchFileException when it
+     * does not exist.
+     */
+    InputStream openFile(String fileName) throws java.io.IOException;
+
+    /**
+     * Copies {@code count} bytes starting at {@code position} into {@code target}.
+     * Returns the number of bytes written.
+     */
+    long transferTo(String fileName, long position, long count, WritableByteChannel target) throws java.io.IOException;
 }
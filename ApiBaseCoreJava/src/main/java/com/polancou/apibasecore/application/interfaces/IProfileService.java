@@ -6,6 +6,7 @@ import com.polancou.apibasecore.application.dtos.PerfilUsuarioDto;
 import com.polancou.apibasecore.domain.models.AuthResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.UUID;
 
 public interface IProfileService {
@@ -13,4 +14,5 @@ public interface IProfileService {
     boolean actualizarPerfil(UUID userId, ActualizarPerfilDto perfilDto);
     AuthResult cambiarPassword(UUID userId, CambiarPasswordDto dto);
     String uploadAvatar(UUID userId, MultipartFile file);
+    String uploadAvatar(UUID userId, InputStream content, String fileName);
 }
@@ -0,0 +1,19 @@
+package com.polancou.apibasecore.application.interfaces;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface IThumbnailService {
+
+    /**
+     * Reads only the image header and rejects images whose dimensions are too large to decode
+     * safely. Throws ValidationException when the image is unreadable or oversized.
+     */
+    void verifyDimensions(InputStream imageStream) throws java.io.IOException;
+
+    /**
+     * Queues generation of the resized variants of {@code avatarUrl} for the user. Returns
+     * immediately; the variant URLs are stored on the user once they are ready.
+     */
+    void scheduleVariants(UUID userId, String avatarUrl);
+}
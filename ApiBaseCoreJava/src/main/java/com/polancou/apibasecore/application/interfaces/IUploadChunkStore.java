@@ -0,0 +1,20 @@
+package com.polancou.apibasecore.application.interfaces;
+
+import java.io.InputStream;
+
+/**
+ * Private staging area for the chunks of resumable uploads. Chunks are unvalidated client bytes,
+ * so they are kept apart from the avatar namespace and are never served; only the assembled
+ * avatar is handed to {@link IFileStorageService}.
+ */
+public interface IUploadChunkStore {
+
+    /** Stores a chunk and returns the opaque key it is found under. */
+    String saveChunk(InputStream content) throws java.io.IOException;
+
+    /** Throws NoSuchFileException when the chunk does not exist. */
+    InputStream openChunk(String key) throws java.io.IOException;
+
+    /** Best effort; a chunk that cannot be removed now is reclaimed by the orphan sweep. */
+    void deleteChunk(String key);
+}
@@ -0,0 +1,27 @@
+package com.polancou.apibasecore.application.interfaces;
+
+import com.polancou.apibasecore.application.dtos.CreateUploadSessionDto;
+import com.polancou.apibasecore.application.dtos.UploadSessionDto;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface IUploadSessionService {
+    UploadSessionDto createSession(UUID userId, CreateUploadSessionDto dto);
+    UploadSessionDto getSession(UUID userId, UUID sessionId);
+
+    /**
+     * Appends the chunk starting at {@code offset}, which must equal the bytes received so far.
+     * {@code sha256} is the hex digest of the chunk; the chunk is rejected if it does not match.
+     * Re-sending a chunk that was already stored is accepted without reading it again.
+     */
+    UploadSessionDto appendChunk(UUID userId, UUID sessionId, long offset, String sha256, InputStream content);
+
+    /** Assembles the chunks into the user's avatar and closes the session. Returns the avatar URL. */
+    String completeAvatarUpload(UUID userId, UUID sessionId);
+
+    void cancelSession(UUID userId, UUID sessionId);
+
+    /** Removes up to {@code max} expired sessions and their chunks. Returns how many were removed. */
+    int purgeExpired(int max);
+}
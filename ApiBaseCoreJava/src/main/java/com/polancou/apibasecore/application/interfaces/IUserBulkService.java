@@ -0,0 +1,23 @@
+package com.polancou.apibasecore.application.interfaces;
+
+import com.polancou.apibasecore.application.dtos.BulkOperationResultDto;
+import com.polancou.apibasecore.application.dtos.BulkUpdateUsersDto;
+import com.polancou.apibasecore.application.dtos.BulkUserSelectionDto;
+import com.polancou.apibasecore.application.dtos.UserImportResultDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface IUserBulkService {
+    /**
+     * Imports users from an NDJSON stream (one {@code RegistroUsuarioDto} per line).
+     * Results are handed to {@code resultSink} once per committed chunk, in input order.
+     */
+    void importUsers(InputStream ndjson, Consumer<List<UserImportResultDto>> resultSink) throws IOException;
+
+    BulkOperationResultDto updateUsers(BulkUpdateUsersDto updateDto);
+
+    BulkOperationResultDto deleteUsers(BulkUserSelectionDto selection);
+}
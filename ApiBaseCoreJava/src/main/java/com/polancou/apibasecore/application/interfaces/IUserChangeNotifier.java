@@ -0,0 +1,15 @@
+package com.polancou.apibasecore.application.interfaces;
+
+import java.util.Collection;
+import java.util.UUID;
+
+public interface IUserChangeNotifier {
+    /**
+     * Announces to every API instance that the user's data (profile, credentials, tokens) changed,
+     * so they drop anything they hold about that user. Recorded in the caller's transaction and
+     * only delivered if it commits.
+     */
+    void userChanged(UUID userId);
+
+    void usersChanged(Collection<UUID> userIds);
+}
@@ -6,11 +6,14 @@ import com.polancou.apibasecore.application.dtos.UpdateUserDto;
 import com.polancou.apibasecore.application.dtos.UserFilterDto;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface IUserService {
     List<PerfilUsuarioDto> getUsers(UserFilterDto filterDto);
     PerfilUsuarioDto getUserById(UUID id);
+    List<Map<String, Object>> getUsersFields(UserFilterDto filterDto);
+    Map<String, Object> getUserFieldsById(UUID id, String fields);
     PerfilUsuarioDto createUser(RegistroUsuarioDto createUserDto);
     PerfilUsuarioDto updateUser(UUID id, UpdateUserDto updateDto);
     void deleteUser(UUID id);
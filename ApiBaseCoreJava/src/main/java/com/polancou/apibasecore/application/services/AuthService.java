@@ -2,12 +2,17 @@ package com.polancou.apibasecore.application.services;
 
 import com.polancou.apibasecore.application.dtos.*;
 import com.polancou.apibasecore.application.interfaces.*;
+import com.polancou.apibasecore.application.utilities.TransactionCallbacks;
+import com.polancou.apibasecore.application.utilities.UserUniqueConstraints;
 import com.polancou.apibasecore.application.utilities.ValidationUtilities;
 import com.polancou.apibasecore.domain.enums.RolUsuario;
 import com.polancou.apibasecore.domain.models.AuthResult;
 import com.polancou.apibasecore.domain.models.UserLogin;
 import com.polancou.apibasecore.domain.models.Usuario;
 import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,15 +21,20 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.UUID;
 
 @Service
 public class AuthService implements IAuthService {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
     private final UserRepository userRepository;
     private final ITokenService tokenService;
     private final IExternalAuthValidator externalAuthValidator;
     private final IEmailService emailService;
     private final IEncryptionService encryptionService;
+    private final IAvatarMirrorService avatarMirrorService;
+    private final IUserChangeNotifier userChangeNotifier;
 
     // TODO: Inject config for frontend URL properly
     private final String frontendBaseUrl = "http://localhost:3000"; 
@@ -33,12 +43,16 @@ public class AuthService implements IAuthService {
                        ITokenService tokenService, 
                        IExternalAuthValidator externalAuthValidator, 
                        IEmailService emailService, 
-                       IEncryptionService encryptionService) {
+                       IEncryptionService encryptionService,
+                       IAvatarMirrorService avatarMirrorService,
+                       IUserChangeNotifier userChangeNotifier) {
         this.userRepository = userRepository;
         this.tokenService = tokenService;
         this.externalAuthValidator = externalAuthValidator;
         this.emailService = emailService;
         this.encryptionService = encryptionService;
+        this.avatarMirrorService = avatarMirrorService;
+        this.userChangeNotifier = userChangeNotifier;
     }
 
     @Override
@@ -56,12 +70,28 @@ public class AuthService implements IAuthService {
                 registroDto.getEmail(),
                 registroDto.getPhone(),
                 RolUsuario.User,
-                registroDto.getTaxId()
+                // "" would collide with every other blank tax id on the unique index
+                registroDto.getTaxId() == null || registroDto.getTaxId().isBlank() ? null : registroDto.getTaxId()
         );
         nuevoUsuario.establecerPasswordHash(passwordEncrypted);
         nuevoUsuario.setEmailVerificationToken(verificationToken);
 
-        userRepository.save(nuevoUsuario);
+        try {
+            userRepository.save(nuevoUsuario);
+            // Flush now so a unique-index violation surfaces here and not at commit
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            UserUniqueConstraints.Key key = UserUniqueConstraints.violatedKey(e);
+            if (key == UserUniqueConstraints.Key.EMAIL) {
+                // A concurrent registration took the email: same answer as the probe above
+                TransactionCallbacks.rollbackOnly();
+                return AuthResult.ok(null, "Si el correo es válido, recibirás un enlace de confirmación.");
+            }
+            if (key == UserUniqueConstraints.Key.TAX_ID) {
+                throw new com.polancou.apibasecore.application.exceptions.ValidationException("El Tax ID ya está registrado.");
+            }
+            throw e;
+        }
 
         sendVerificationEmail(nuevoUsuario);
 
@@ -88,6 +118,7 @@ public class AuthService implements IAuthService {
 
         usuario.setRefreshToken(refreshToken, LocalDateTime.now(ZoneOffset.UTC).plusDays(30));
         userRepository.save(usuario);
+        userChangeNotifier.userChanged(usuario.getId());
 
         return new TokenResponseDto(accessToken, refreshToken);
     }
@@ -115,9 +146,20 @@ public class AuthService implements IAuthService {
                     RolUsuario.User,
                     null
             );
-            usuario.setAvatarUrl(userInfo.getPictureUrl());
+            usuario.setExternalAvatarSource(userInfo.getPictureUrl());
             usuario.markEmailAsVerified();
             userRepository.save(usuario);
+        } else if (usuario.getExternalAvatarUrl() != null
+                || (usuario.getAvatarUrl() != null && usuario.getAvatarUrl().startsWith("http"))) {
+            // Still showing the provider picture (not an own upload): follow changes to it
+            usuario.setExternalAvatarSource(userInfo.getPictureUrl());
+        }
+
+        // Downloaded in the background once committed; the mirror skips pictures checked recently
+        if (usuario.getExternalAvatarUrl() != null) {
+            UUID id = usuario.getId();
+            String pictureUrl = usuario.getExternalAvatarUrl();
+            TransactionCallbacks.afterCommit(() -> avatarMirrorService.scheduleMirror(id, pictureUrl));
         }
         
         String accessToken = tokenService.crearToken(usuario);
@@ -125,6 +167,7 @@ public class AuthService implements IAuthService {
         
         usuario.setRefreshToken(refreshToken, LocalDateTime.now(ZoneOffset.UTC).plusDays(30));
         userRepository.save(usuario);
+        userChangeNotifier.userChanged(usuario.getId());
         
         return new TokenResponseDto(accessToken, refreshToken);
     }
@@ -132,9 +175,7 @@ public class AuthService implements IAuthService {
     @Override
     @Transactional
     public TokenResponseDto refreshToken(String refreshToken) {
-        Usuario usuario = userRepository.findAll().stream()
-                .filter(u -> refreshToken.equals(u.getRefreshToken()))
-                .findFirst()
+        Usuario usuario = userRepository.findByRefreshToken(refreshToken)
                 .orElseThrow(() -> new com.polancou.apibasecore.application.exceptions.ValidationException("Refresh token inválido."));
                 
         if (usuario.getRefreshTokenExpiryTime().isBefore(LocalDateTime.now(ZoneOffset.UTC))) {
@@ -146,6 +187,7 @@ public class AuthService implements IAuthService {
 
         usuario.setRefreshToken(newRefreshToken, LocalDateTime.now(ZoneOffset.UTC).plusDays(30));
         userRepository.save(usuario);
+        userChangeNotifier.userChanged(usuario.getId());
 
         return new TokenResponseDto(newAccessToken, newRefreshToken);
     }
@@ -163,6 +205,7 @@ public class AuthService implements IAuthService {
 
         usuario.markEmailAsVerified();
         userRepository.save(usuario);
+        userChangeNotifier.userChanged(usuario.getId());
 
         return AuthResult.ok(null, "Email verificado exitosamente.");
     }
@@ -174,6 +217,7 @@ public class AuthService implements IAuthService {
             String resetToken = tokenService.generarRefreshToken();
             usuario.setPasswordResetToken(resetToken, LocalDateTime.now(ZoneOffset.UTC).plusHours(1));
             userRepository.save(usuario);
+            userChangeNotifier.userChanged(usuario.getId());
             sendPasswordResetEmail(usuario);
         });
         return AuthResult.ok(null, "Si existe una cuenta con ese correo, se ha enviado un enlace para restablecer la contraseña.");
@@ -199,6 +243,7 @@ public class AuthService implements IAuthService {
         usuario.establecerPasswordHash(encrypted);
         usuario.clearPasswordResetToken();
         userRepository.save(usuario);
+        userChangeNotifier.userChanged(usuario.getId());
 
         return AuthResult.ok(null, "Contraseña restablecida exitosamente.");
     }
@@ -210,7 +255,7 @@ public class AuthService implements IAuthService {
         try {
             emailService.sendVerificationEmail(usuario.getEmail(), usuario.getName(), link);
         } catch (Exception e) {
-            System.out.println("Error sending email: " + e.getMessage());
+            log.warn("Could not send verification email to user {}: {}", usuario.getId(), e.getMessage());
         }
     }
 
@@ -220,7 +265,7 @@ public class AuthService implements IAuthService {
         try {
             emailService.sendPasswordResetEmail(usuario.getEmail(), usuario.getName(), link);
         } catch (Exception e) {
-            System.out.println("Error sending email: " + e.getMessage());
+            log.warn("Could not send password reset email to user {}: {}", usuario.getId(), e.getMessage());
         }
     }
 }
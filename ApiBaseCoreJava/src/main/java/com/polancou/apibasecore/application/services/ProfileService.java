@@ -6,7 +6,12 @@ import com.polancou.apibasecore.application.dtos.PerfilUsuarioDto;
 import com.polancou.apibasecore.application.interfaces.IEncryptionService;
 import com.polancou.apibasecore.application.interfaces.IFileStorageService;
 import com.polancou.apibasecore.application.interfaces.IProfileService;
+import com.polancou.apibasecore.application.interfaces.IThumbnailService;
+import com.polancou.apibasecore.application.interfaces.IUserChangeNotifier;
+import com.polancou.apibasecore.application.utilities.FileSignatureValidator;
+import com.polancou.apibasecore.application.utilities.TransactionCallbacks;
 import com.polancou.apibasecore.application.utilities.UserMapper;
+import com.polancou.apibasecore.application.utilities.ValidatingImageInputStream;
 import com.polancou.apibasecore.domain.models.AuthResult;
 import com.polancou.apibasecore.domain.models.Usuario;
 import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
@@ -15,21 +20,32 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @Service
 public class ProfileService implements IProfileService {
 
+    public static final long MAX_AVATAR_BYTES = 2 * 1024 * 1024;
+
     private final UserRepository userRepository;
     private final IFileStorageService fileStorageService;
     private final IEncryptionService encryptionService;
+    private final IThumbnailService thumbnailService;
+    private final IUserChangeNotifier userChangeNotifier;
 
     public ProfileService(UserRepository userRepository, 
                           IFileStorageService fileStorageService, 
-                          IEncryptionService encryptionService) {
+                          IEncryptionService encryptionService,
+                          IThumbnailService thumbnailService,
+                          IUserChangeNotifier userChangeNotifier) {
         this.userRepository = userRepository;
         this.fileStorageService = fileStorageService;
         this.encryptionService = encryptionService;
+        this.thumbnailService = thumbnailService;
+        this.userChangeNotifier = userChangeNotifier;
     }
 
     @Override
@@ -48,6 +64,7 @@ public class ProfileService implements IProfileService {
 
         usuario.updateProfile(perfilDto.getName(), perfilDto.getPhone(), perfilDto.getTaxId());
         userRepository.save(usuario);
+        userChangeNotifier.userChanged(userId);
         return true;
     }
 
@@ -69,6 +86,7 @@ public class ProfileService implements IProfileService {
         String newEncrypted = encryptionService.encrypt(dto.getNewPassword());
         usuario.establecerPasswordHash(newEncrypted);
         userRepository.save(usuario);
+        userChangeNotifier.userChanged(userId);
 
         return AuthResult.ok(null, "Contraseña actualizada exitosamente.");
     }
@@ -76,23 +94,69 @@ public class ProfileService implements IProfileService {
     @Override
     @Transactional
     public String uploadAvatar(UUID userId, MultipartFile file) {
+        try (InputStream content = file.getInputStream()) {
+            return uploadAvatar(userId, content, file.getOriginalFilename());
+        } catch (IOException e) {
+            throw new RuntimeException("Error uploading file", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public String uploadAvatar(UUID userId, InputStream content, String fileName) {
         Usuario usuario = userRepository.findById(userId)
                 .orElseThrow(() -> new com.polancou.apibasecore.application.exceptions.NotFoundException("Usuario no encontrado."));
 
-        if (usuario.getAvatarUrl() != null && !usuario.getAvatarUrl().isBlank()) {
-            fileStorageService.deleteFile(usuario.getAvatarUrl());
+        String originalName = fileName == null ? "" : fileName;
+        int dot = originalName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : originalName.substring(dot).toLowerCase();
+        if (!FileSignatureValidator.isSupportedExtension(extension)) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException(ValidatingImageInputStream.INVALID_SIGNATURE);
         }
 
-        String uniqueFileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
+        String uniqueFileName = UUID.randomUUID().toString() + "_" + originalName;
         String fileUrl;
-        try {
-            fileUrl = fileStorageService.saveFile(file.getInputStream(), uniqueFileName);
+        try (InputStream upload = new ValidatingImageInputStream(content, extension, MAX_AVATAR_BYTES)) {
+            // Signature and size are checked while the store consumes the stream: a single pass
+            fileUrl = fileStorageService.saveFile(upload, uniqueFileName);
         } catch (IOException e) {
             throw new RuntimeException("Error uploading file", e);
         }
 
+        // Header-only dimension check on the stored copy, before anything decodes it
+        try (InputStream stored = fileStorageService.openFile(fileUrl.substring(fileUrl.lastIndexOf('/') + 1))) {
+            thumbnailService.verifyDimensions(stored);
+        } catch (IOException | RuntimeException e) {
+            fileStorageService.deleteFile(fileUrl);
+            if (e instanceof RuntimeException runtime) throw runtime;
+            throw new RuntimeException("Error uploading file", e);
+        }
+
+        // If the user row never commits, the new file is not referenced by anyone
+        TransactionCallbacks.afterRollback(() -> fileStorageService.deleteFile(fileUrl));
+
+        // The old files are released only once the new avatar is committed; a rollback keeps them.
+        // With content addressing a re-upload of the same image maps to the same file, so the
+        // release must come after the save or its ref count would hit zero.
+        List<String> previousFiles = new ArrayList<>(4);
+        if (usuario.getAvatarUrl() != null && !usuario.getAvatarUrl().isBlank()) {
+            previousFiles.add(usuario.getAvatarUrl());
+        }
+        previousFiles.add(usuario.getAvatarUrl64());
+        previousFiles.add(usuario.getAvatarUrl128());
+        previousFiles.add(usuario.getAvatarUrl512());
+        TransactionCallbacks.afterCommit(() -> previousFiles.forEach(fileStorageService::deleteFile));
+
         usuario.setAvatarUrl(fileUrl);
+        usuario.clearAvatarVariants();
+        // An own upload replaces the provider picture for good
+        usuario.clearExternalAvatarSource();
         userRepository.save(usuario);
+        userChangeNotifier.userChanged(userId);
+
+        // The worker must see the committed avatar, otherwise its conditional update matches nothing
+        UUID id = usuario.getId();
+        TransactionCallbacks.afterCommit(() -> thumbnailService.scheduleVariants(id, fileUrl));
 
         return fileUrl;
     }
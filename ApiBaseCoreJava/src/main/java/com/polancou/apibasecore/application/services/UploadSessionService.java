@@ -0,0 +1,275 @@
+package com.polancou.apibasecore.application.services;
+
+import com.polancou.apibasecore.application.dtos.CreateUploadSessionDto;
+import com.polancou.apibasecore.application.dtos.UploadSessionDto;
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import com.polancou.apibasecore.application.interfaces.IProfileService;
+import com.polancou.apibasecore.application.interfaces.IUploadChunkStore;
+import com.polancou.apibasecore.application.interfaces.IUploadSessionService;
+import com.polancou.apibasecore.application.utilities.BoundedInputStream;
+import com.polancou.apibasecore.application.utilities.TransactionCallbacks;
+import com.polancou.apibasecore.application.utilities.ValidatingImageInputStream;
+import com.polancou.apibasecore.domain.models.UploadSession;
+import com.polancou.apibasecore.domain.models.Usuario;
+import com.polancou.apibasecore.infrastructure.repositories.UploadSessionRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Resumable uploads: a client opens a session with the total size, PUTs chunks at the offset
+ * the server reports, and completes the session once every byte has arrived. Each chunk is
+ * streamed straight into the private chunk store, so server memory does not depend on the file
+ * size, and after a dropped connection the client resumes from {@code receivedBytes}. Only the
+ * assembled, validated avatar reaches the public avatar store.
+ */
+@Service
+public class UploadSessionService implements IUploadSessionService {
+
+    private static final String NOT_FOUND = "Sesión de carga no encontrada.";
+    // Chunks stored before the private chunk store existed live in the avatar store
+    private static final String LEGACY_CHUNK_PREFIX = "/uploads/avatars/";
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UserRepository userRepository;
+    private final IFileStorageService fileStorageService;
+    private final IUploadChunkStore uploadChunkStore;
+    private final IProfileService profileService;
+    private final TransactionTemplate transactionTemplate;
+    private final long maxChunkSize;
+    private final Duration sessionTtl;
+    private final int maxActiveSessions;
+
+    public UploadSessionService(UploadSessionRepository uploadSessionRepository,
+                                UserRepository userRepository,
+                                IFileStorageService fileStorageService,
+                                IUploadChunkStore uploadChunkStore,
+                                IProfileService profileService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${uploads.max-chunk-size:1048576}") long maxChunkSize,
+                                @Value("${uploads.session-ttl:PT6H}") Duration sessionTtl,
+                                @Value("${uploads.max-active-sessions:5}") int maxActiveSessions) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.userRepository = userRepository;
+        this.fileStorageService = fileStorageService;
+        this.uploadChunkStore = uploadChunkStore;
+        this.profileService = profileService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxChunkSize = maxChunkSize;
+        this.sessionTtl = sessionTtl;
+        this.maxActiveSessions = maxActiveSessions;
+    }
+
+    @Override
+    @Transactional
+    public UploadSessionDto createSession(UUID userId, CreateUploadSessionDto dto) {
+        Usuario usuario = userRepository.findById(userId)
+                .orElseThrow(() -> new com.polancou.apibasecore.application.exceptions.NotFoundException("Usuario no encontrado."));
+
+        if (dto.getTotalSize() > ProfileService.MAX_AVATAR_BYTES) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException(ValidatingImageInputStream.TOO_LARGE);
+        }
+        LocalDateTime now = now();
+        if (uploadSessionRepository.countActiveByUsuarioId(userId, now) >= maxActiveSessions) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("Hay demasiadas cargas en curso.");
+        }
+
+        UploadSession session = new UploadSession(usuario, dto.getFileName(), dto.getTotalSize(), now.plus(sessionTtl));
+        uploadSessionRepository.save(session);
+        return toDto(session);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UploadSessionDto getSession(UUID userId, UUID sessionId) {
+        return toDto(findActive(userId, sessionId));
+    }
+
+    // Not transactional: the chunk is streamed to storage first, then recorded in a short transaction
+    @Override
+    public UploadSessionDto appendChunk(UUID userId, UUID sessionId, long offset, String sha256, InputStream content) {
+        UploadSession session = transactionTemplate.execute(status -> findActive(userId, sessionId));
+        String expectedDigest = sha256 == null ? "" : sha256.trim().toLowerCase(Locale.ROOT);
+        if (expectedDigest.length() != 64) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("Se requiere el SHA-256 del fragmento.");
+        }
+
+        if (offset < session.getReceivedBytes()) {
+            // A retry after a lost response: fine if it is the chunk we already have
+            boolean alreadyStored = uploadSessionRepository.findChunk(sessionId, offset)
+                    .map(chunk -> chunk.getSha256().equals(expectedDigest))
+                    .orElse(false);
+            if (alreadyStored) {
+                return toDto(session);
+            }
+            throw offsetConflict(session.getReceivedBytes());
+        }
+        if (offset > session.getReceivedBytes()) {
+            throw offsetConflict(session.getReceivedBytes());
+        }
+
+        long allowed = Math.min(maxChunkSize, session.getTotalSize() - offset);
+        MessageDigest digest = sha256();
+        BoundedInputStream bounded = new BoundedInputStream(content, allowed, "El fragmento excede el tamaño permitido.");
+        String fileUrl;
+        try (InputStream in = new DigestInputStream(bounded, digest)) {
+            fileUrl = uploadChunkStore.saveChunk(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error storing upload chunk", e);
+        }
+
+        long length = bounded.getCount();
+        String actualDigest = HexFormat.of().formatHex(digest.digest());
+        if (length == 0 || !actualDigest.equals(expectedDigest)) {
+            uploadChunkStore.deleteChunk(fileUrl);
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("El checksum del fragmento no coincide.");
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (uploadSessionRepository.advance(sessionId, offset, offset + length, now()) == 0) {
+                    // A concurrent request appended at this offset first, or the session expired
+                    throw offsetConflict(uploadSessionRepository.findById(sessionId).map(UploadSession::getReceivedBytes).orElse(0L));
+                }
+                uploadSessionRepository.findById(sessionId)
+                        .ifPresent(current -> current.addChunk(offset, length, actualDigest, fileUrl));
+            });
+        } catch (RuntimeException e) {
+            uploadChunkStore.deleteChunk(fileUrl);
+            throw e;
+        }
+        return transactionTemplate.execute(status -> toDto(findActive(userId, sessionId)));
+    }
+
+    @Override
+    @Transactional
+    public String completeAvatarUpload(UUID userId, UUID sessionId) {
+        UploadSession session = findActive(userId, sessionId);
+        if (!session.isComplete()) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("La carga está incompleta.");
+        }
+
+        List<String> chunkUrls = uploadSessionRepository.findChunkUrls(sessionId);
+        // Chunks are opened one at a time as the avatar store reads through them
+        Iterator<String> urls = chunkUrls.iterator();
+        Enumeration<InputStream> chunks = new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return urls.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return openChunk(urls.next());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        String avatarUrl;
+        try (InputStream assembled = new SequenceInputStream(chunks)) {
+            avatarUrl = profileService.uploadAvatar(userId, assembled, session.getFileName());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error assembling upload", e);
+        }
+
+        delete(List.of(sessionId), chunkUrls);
+        return avatarUrl;
+    }
+
+    @Override
+    @Transactional
+    public void cancelSession(UUID userId, UUID sessionId) {
+        UploadSession session = uploadSessionRepository.findByIdAndUsuarioId(sessionId, userId)
+                .orElseThrow(() -> new com.polancou.apibasecore.application.exceptions.NotFoundException(NOT_FOUND));
+        delete(List.of(session.getId()), uploadSessionRepository.findChunkUrls(sessionId));
+    }
+
+    @Override
+    @Transactional
+    public int purgeExpired(int max) {
+        List<UUID> expired = uploadSessionRepository.findExpiredIds(now(), Limit.of(max));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        List<String> chunkUrls = expired.stream()
+                .flatMap(id -> uploadSessionRepository.findChunkUrls(id).stream())
+                .toList();
+        delete(expired, chunkUrls);
+        return expired.size();
+    }
+
+    // Rows go now; the chunk files only once the delete has committed
+    private void delete(List<UUID> sessionIds, List<String> chunkUrls) {
+        uploadSessionRepository.deleteChunksBySessionIds(sessionIds);
+        uploadSessionRepository.deleteByIds(sessionIds);
+        TransactionCallbacks.afterCommit(() -> chunkUrls.forEach(this::deleteChunk));
+    }
+
+    private InputStream openChunk(String url) throws IOException {
+        return url.startsWith(LEGACY_CHUNK_PREFIX)
+                ? fileStorageService.openFile(url.substring(LEGACY_CHUNK_PREFIX.length()))
+                : uploadChunkStore.openChunk(url);
+    }
+
+    private void deleteChunk(String url) {
+        if (url.startsWith(LEGACY_CHUNK_PREFIX)) {
+            fileStorageService.deleteFile(url);
+        } else {
+            uploadChunkStore.deleteChunk(url);
+        }
+    }
+
+    private UploadSession findActive(UUID userId, UUID sessionId) {
+        UploadSession session = uploadSessionRepository.findByIdAndUsuarioId(sessionId, userId)
+                .orElseThrow(() -> new com.polancou.apibasecore.application.exceptions.NotFoundException(NOT_FOUND));
+        if (!session.getExpiresAt().isAfter(now())) {
+            throw new com.polancou.apibasecore.application.exceptions.NotFoundException(NOT_FOUND);
+        }
+        return session;
+    }
+
+    private UploadSessionDto toDto(UploadSession session) {
+        return new UploadSessionDto(session.getId(), session.getFileName(), session.getTotalSize(),
+                session.getReceivedBytes(), maxChunkSize, session.getExpiresAt(), session.isComplete());
+    }
+
+    private static com.polancou.apibasecore.application.exceptions.ConflictException offsetConflict(long receivedBytes) {
+        return new com.polancou.apibasecore.application.exceptions.ConflictException(
+                "El fragmento debe comenzar en el byte " + receivedBytes + ".");
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneId.of("UTC"));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.polancou.apibasecore.application.services;
+
+import com.polancou.apibasecore.application.dtos.BulkOperationResultDto;
+import com.polancou.apibasecore.application.dtos.BulkUpdateUsersDto;
+import com.polancou.apibasecore.application.dtos.BulkUserSelectionDto;
+import com.polancou.apibasecore.application.dtos.RegistroUsuarioDto;
+import com.polancou.apibasecore.application.dtos.UserImportResultDto;
+import com.polancou.apibasecore.application.interfaces.IEncryptionService;
+import com.polancou.apibasecore.application.interfaces.IUserBulkService;
+import com.polancou.apibasecore.application.interfaces.IUserChangeNotifier;
+import com.polancou.apibasecore.application.utilities.UserUniqueConstraints;
+import com.polancou.apibasecore.application.utilities.ValidationUtilities;
+import com.polancou.apibasecore.domain.enums.RolUsuario;
+import com.polancou.apibasecore.domain.models.Usuario;
+import com.polancou.apibasecore.infrastructure.repositories.AddressRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UploadSessionRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UserSpecification;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+@Service
+public class UserBulkService implements IUserBulkService {
+
+    private static final int MAX_EXPLICIT_IDS = 10_000;
+    // Keeps IN lists well below the SQL Server parameter limit (2100)
+    private static final int MAX_IN_LIST = 1000;
+
+    private final UserRepository userRepository;
+    private final AddressRepository addressRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final IEncryptionService encryptionService;
+    private final IUserChangeNotifier userChangeNotifier;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int bulkChunkSize;
+
+    public UserBulkService(UserRepository userRepository,
+                           AddressRepository addressRepository,
+                           UploadSessionRepository uploadSessionRepository,
+                           IEncryptionService encryptionService,
+                           IUserChangeNotifier userChangeNotifier,
+                           PlatformTransactionManager transactionManager,
+                           ObjectMapper objectMapper,
+                           Validator validator,
+                           @Value("${users.import.chunk-size:500}") int chunkSize,
+                           @Value("${users.bulk.chunk-size:500}") int bulkChunkSize) {
+        this.userRepository = userRepository;
+        this.addressRepository = addressRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.encryptionService = encryptionService;
+        this.userChangeNotifier = userChangeNotifier;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        // Every bulk statement binds the whole chunk as one IN list
+        this.bulkChunkSize = Math.max(1, Math.min(bulkChunkSize, MAX_IN_LIST));
+    }
+
+    @Override
+    public void importUsers(InputStream ndjson, Consumer<List<UserImportResultDto>> resultSink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+        List<ImportRecord> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+
+            chunk.add(new ImportRecord(lineNumber, line));
+            if (chunk.size() == chunkSize) {
+                resultSink.accept(processChunk(chunk));
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            resultSink.accept(processChunk(chunk));
+        }
+    }
+
+    @Override
+    public BulkOperationResultDto updateUsers(BulkUpdateUsersDto updateDto) {
+        RolUsuario rol = null;
+        if (updateDto.getRol() != null && !updateDto.getRol().isBlank()) {
+            rol = parseRol(updateDto.getRol());
+        }
+        if (rol == null && !updateDto.isRevokeSessions()) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("No se indicó ningún cambio a aplicar.");
+        }
+
+        RolUsuario newRol = rol;
+        boolean revokeSessions = updateDto.isRevokeSessions();
+        return execute(updateDto.getIds(), updateDto.getFilter(), updateDto.isDryRun(), ids -> {
+            int affected = 0;
+            if (newRol != null) {
+                affected = userRepository.updateRolByIds(newRol, ids);
+            }
+            if (revokeSessions) {
+                affected = Math.max(affected, userRepository.clearRefreshTokensByIds(ids));
+            }
+            return affected;
+        });
+    }
+
+    @Override
+    public BulkOperationResultDto deleteUsers(BulkUserSelectionDto selection) {
+        return execute(selection.getIds(), selection.getFilter(), selection.isDryRun(), ids -> {
+            // Children first: the bulk delete bypasses the JPA cascades and the foreign keys to Usuarios
+            addressRepository.deleteByUsuarioIds(ids);
+            uploadSessionRepository.deleteChunksByUsuarioIds(ids);
+            uploadSessionRepository.deleteByUsuarioIds(ids);
+            userRepository.deleteLoginsByUsuarioIds(ids);
+            return userRepository.deleteByIds(ids);
+        });
+    }
+
+    /**
+     * Runs {@code operation} over the selected users in chunks of {@code users.bulk.chunk-size},
+     * one short transaction per chunk. Filter selections are walked with keyset pagination on id,
+     * so no entity is ever loaded.
+     */
+    private BulkOperationResultDto execute(List<UUID> ids, String filter, boolean dryRun, ToIntFunction<List<UUID>> operation) {
+        boolean hasIds = ids != null && !ids.isEmpty();
+        boolean hasFilter = filter != null && !filter.isBlank();
+
+        if (hasIds == hasFilter) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("Debe indicar 'ids' o 'filter', pero no ambos.");
+        }
+
+        if (hasIds) {
+            if (ids.size() > MAX_EXPLICIT_IDS) {
+                throw new com.polancou.apibasecore.application.exceptions.ValidationException("Se permiten como máximo " + MAX_EXPLICIT_IDS + " ids por solicitud.");
+            }
+            List<UUID> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+            long matched = 0;
+            long affected = 0;
+            for (int from = 0; from < distinct.size(); from += bulkChunkSize) {
+                List<UUID> chunk = distinct.subList(from, Math.min(from + bulkChunkSize, distinct.size()));
+                if (dryRun) {
+                    matched += userRepository.countByIds(chunk);
+                } else {
+                    affected += transactionTemplate.execute(status -> applyAndAnnounce(operation, chunk));
+                }
+            }
+            return new BulkOperationResultDto(dryRun ? matched : affected, affected, dryRun);
+        }
+
+        if (!UserSpecification.isSupportedFilter(filter)) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("El filtro no es válido para operaciones masivas.");
+        }
+        Specification<Usuario> spec = UserSpecification.filterBy(filter);
+
+        if (dryRun) {
+            return new BulkOperationResultDto(userRepository.count(spec), 0, true);
+        }
+
+        long matched = 0;
+        long affected = 0;
+        UUID after = null;
+        while (true) {
+            List<UUID> chunk = userRepository.findIdsAfter(spec, after, bulkChunkSize);
+            if (chunk.isEmpty()) break;
+
+            matched += chunk.size();
+            affected += transactionTemplate.execute(status -> applyAndAnnounce(operation, chunk));
+            after = chunk.get(chunk.size() - 1);
+        }
+        return new BulkOperationResultDto(matched, affected, false);
+    }
+
+    // Other instances drop what they hold about these users once the chunk commits
+    private int applyAndAnnounce(ToIntFunction<List<UUID>> operation, List<UUID> chunk) {
+        int affected = operation.applyAsInt(chunk);
+        userChangeNotifier.usersChanged(chunk);
+        return affected;
+    }
+
+    private static RolUsuario parseRol(String value) {
+        for (RolUsuario rol : RolUsuario.values()) {
+            if (rol.name().equalsIgnoreCase(value.trim())) return rol;
+        }
+        throw new com.polancou.apibasecore.application.exceptions.ValidationException("Rol inválido: " + value);
+    }
+
+    private List<UserImportResultDto> processChunk(List<ImportRecord> chunk) {
+        // Parsing and bean validation are CPU-bound and independent per record
+        chunk.parallelStream().forEach(this::parseAndValidate);
+
+        List<ImportRecord> parsed = new ArrayList<>(chunk.size());
+        List<RegistroUsuarioDto> dtos = new ArrayList<>(chunk.size());
+        for (ImportRecord record : chunk) {
+            if (record.result != null) continue;
+            parsed.add(record);
+            dtos.add(record.dto);
+        }
+        List<String> errors = ValidationUtilities.validateAll(dtos, false);
+        for (int i = 0; i < parsed.size(); i++) {
+            if (errors.get(i) != null) {
+                ImportRecord record = parsed.get(i);
+                record.result = UserImportResultDto.rejected(record.line, record.dto.getEmail(), errors.get(i));
+            }
+        }
+
+        rejectDuplicates(chunk);
+
+        List<ImportRecord> accepted = new ArrayList<>(chunk.size());
+        for (ImportRecord record : chunk) {
+            if (record.result == null) accepted.add(record);
+        }
+
+        if (!accepted.isEmpty()) {
+            List<String> passwords = new ArrayList<>(accepted.size());
+            for (ImportRecord record : accepted) {
+                passwords.add(record.dto.getPassword());
+            }
+            List<String> encrypted = encryptionService.encryptAll(passwords);
+
+            for (int i = 0; i < accepted.size(); i++) {
+                accepted.get(i).usuario = newUsuario(accepted.get(i).dto, encrypted.get(i));
+            }
+            insert(accepted);
+        }
+
+        List<UserImportResultDto> results = new ArrayList<>(chunk.size());
+        for (ImportRecord record : chunk) {
+            results.add(record.result);
+        }
+        return results;
+    }
+
+    private void parseAndValidate(ImportRecord record) {
+        try {
+            record.dto = objectMapper.readValue(record.json, RegistroUsuarioDto.class);
+        } catch (JacksonException e) {
+            record.result = UserImportResultDto.rejected(record.line, null, "JSON inválido.");
+            return;
+        }
+        if (record.dto == null) {
+            record.result = UserImportResultDto.rejected(record.line, null, "JSON inválido.");
+            return;
+        }
+
+        RegistroUsuarioDto dto = record.dto;
+        Set<ConstraintViolation<RegistroUsuarioDto>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<RegistroUsuarioDto> violation = violations.iterator().next();
+            record.result = UserImportResultDto.rejected(record.line, dto.getEmail(),
+                    violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+    }
+
+    /**
+     * Rejects records whose email or tax id repeats inside the chunk or already exists.
+     * The database is probed with one IN query per column and up to {@value #MAX_IN_LIST}
+     * values, whatever the import chunk size; earlier chunks are already committed, so they
+     * are covered by the same probe.
+     */
+    private void rejectDuplicates(List<ImportRecord> chunk) {
+        Set<String> emails = new HashSet<>();
+        Set<String> taxIds = new HashSet<>();
+        for (ImportRecord record : chunk) {
+            if (record.result != null) continue;
+            emails.add(record.dto.getEmail());
+            if (record.dto.getTaxId() != null && !record.dto.getTaxId().isBlank()) taxIds.add(record.dto.getTaxId());
+        }
+        if (emails.isEmpty()) return;
+
+        Set<String> existingEmails = findExisting(emails, userRepository::findExistingEmails);
+        Set<String> existingTaxIds = findExisting(taxIds, userRepository::findExistingTaxIds);
+
+        Set<String> seenEmails = new HashSet<>();
+        Set<String> seenTaxIds = new HashSet<>();
+        for (ImportRecord record : chunk) {
+            if (record.result != null) continue;
+            String email = record.dto.getEmail().toLowerCase(Locale.ROOT);
+            String taxId = record.dto.getTaxId() == null || record.dto.getTaxId().isBlank()
+                    ? null
+                    : record.dto.getTaxId().toLowerCase(Locale.ROOT);
+
+            if (existingEmails.contains(email) || !seenEmails.add(email)) {
+                record.result = UserImportResultDto.rejected(record.line, record.dto.getEmail(), "El email ya está registrado.");
+            } else if (taxId != null && (existingTaxIds.contains(taxId) || !seenTaxIds.add(taxId))) {
+                record.result = UserImportResultDto.rejected(record.line, record.dto.getEmail(), "El Tax ID ya está registrado.");
+            }
+        }
+    }
+
+    private void insert(List<ImportRecord> accepted) {
+        List<Usuario> users = new ArrayList<>(accepted.size());
+        for (ImportRecord record : accepted) {
+            users.add(record.usuario);
+        }
+
+        try {
+            // saveAll + flush lets Hibernate send the inserts as JDBC batches
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.saveAll(users);
+                userRepository.flush();
+            });
+            for (ImportRecord record : accepted) {
+                record.result = UserImportResultDto.created(record.line, record.usuario.getId(), record.usuario.getEmail());
+            }
+        } catch (RuntimeException chunkFailure) {
+            // A concurrent writer won a race on a unique key; isolate the offending rows.
+            // The entities were touched by the rolled-back persist, so start from fresh ones.
+            for (ImportRecord record : accepted) {
+                record.usuario = newUsuario(record.dto, record.usuario.getPasswordHash());
+                try {
+                    transactionTemplate.executeWithoutResult(status -> userRepository.saveAndFlush(record.usuario));
+                    record.result = UserImportResultDto.created(record.line, record.usuario.getId(), record.usuario.getEmail());
+                } catch (DataIntegrityViolationException e) {
+                    UserUniqueConstraints.Key key = UserUniqueConstraints.violatedKey(e);
+                    String message = key == UserUniqueConstraints.Key.EMAIL ? "El email ya está registrado."
+                            : key == UserUniqueConstraints.Key.TAX_ID ? "El Tax ID ya está registrado."
+                            : "No se pudo guardar el usuario.";
+                    record.result = UserImportResultDto.rejected(record.line, record.usuario.getEmail(), message);
+                } catch (RuntimeException e) {
+                    record.result = UserImportResultDto.rejected(record.line, record.usuario.getEmail(), "No se pudo guardar el usuario.");
+                }
+            }
+        }
+    }
+
+    private static Usuario newUsuario(RegistroUsuarioDto dto, String passwordHash) {
+        Usuario usuario = new Usuario(dto.getName(), dto.getEmail(), dto.getPhone(), RolUsuario.User, blankToNull(dto.getTaxId()));
+        usuario.establecerPasswordHash(passwordHash);
+        return usuario;
+    }
+
+    private static Set<String> findExisting(Set<String> values, Function<List<String>, List<String>> lookup) {
+        List<String> pending = new ArrayList<>(values);
+        Set<String> result = new HashSet<>();
+        for (int from = 0; from < pending.size(); from += MAX_IN_LIST) {
+            for (String value : lookup.apply(pending.subList(from, Math.min(from + MAX_IN_LIST, pending.size())))) {
+                if (value != null) result.add(value.toLowerCase(Locale.ROOT));
+            }
+        }
+        return result;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static final class ImportRecord {
+        private final long line;
+        private final String json;
+        private RegistroUsuarioDto dto;
+        private Usuario usuario;
+        private UserImportResultDto result;
+
+        private ImportRecord(long line, String json) {
+            this.line = line;
+            this.json = json;
+        }
+    }
+}
@@ -1,62 +1,82 @@
 package com.polancou.apibasecore.application.services;
 
+import com.polancou.apibasecore.application.dtos.AddressDto;
 import com.polancou.apibasecore.application.dtos.PerfilUsuarioDto;
 import com.polancou.apibasecore.application.dtos.RegistroUsuarioDto;
 import com.polancou.apibasecore.application.dtos.UpdateUserDto;
 import com.polancou.apibasecore.application.dtos.UserFilterDto;
 import com.polancou.apibasecore.application.interfaces.IEncryptionService;
+import com.polancou.apibasecore.application.interfaces.IUserChangeNotifier;
 import com.polancou.apibasecore.application.interfaces.IUserService;
+import com.polancou.apibasecore.application.utilities.UserFieldSet;
 import com.polancou.apibasecore.application.utilities.UserMapper;
+import com.polancou.apibasecore.application.utilities.UserUniqueConstraints;
 import com.polancou.apibasecore.application.utilities.ValidationUtilities;
 import com.polancou.apibasecore.domain.enums.RolUsuario;
+import com.polancou.apibasecore.domain.models.Address;
 import com.polancou.apibasecore.domain.models.Usuario;
+import com.polancou.apibasecore.infrastructure.repositories.AddressRepository;
 import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
 import com.polancou.apibasecore.infrastructure.repositories.UserSpecification;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService implements IUserService {
 
+    // Keeps IN lists well below the SQL Server parameter limit (2100)
+    private static final int ADDRESS_LOOKUP_CHUNK = 1000;
+
     private final UserRepository userRepository;
+    private final AddressRepository addressRepository;
     private final IEncryptionService encryptionService;
+    private final IUserChangeNotifier userChangeNotifier;
 
-    public UserService(UserRepository userRepository, IEncryptionService encryptionService) {
+    public UserService(UserRepository userRepository, AddressRepository addressRepository, IEncryptionService encryptionService,
+                       IUserChangeNotifier userChangeNotifier) {
         this.userRepository = userRepository;
+        this.addressRepository = addressRepository;
         this.encryptionService = encryptionService;
+        this.userChangeNotifier = userChangeNotifier;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<PerfilUsuarioDto> getUsers(UserFilterDto filterDto) {
-        Specification<Usuario> spec = Specification.where((Specification<Usuario>) null);
+        return userRepository.findAll(buildSpecification(filterDto), resolveSort(filterDto.getSortedBy())).stream()
+                .map(UserMapper::toPerfilUsuarioDto)
+                .collect(Collectors.toList());
+    }
 
-        if (filterDto.getFilter() != null && !filterDto.getFilter().isBlank()) {
-            spec = spec.and(UserSpecification.filterBy(filterDto.getFilter()));
-        }
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getUsersFields(UserFilterDto filterDto) {
+        UserFieldSet fieldSet = UserFieldSet.parse(filterDto.getFields());
+        List<Map<String, Object>> rows = userRepository.findProjected(
+                buildSpecification(filterDto), resolveSort(filterDto.getSortedBy()), fieldSet.getAttributes());
+        return toSparseProfiles(rows, fieldSet);
+    }
 
-        Sort sort = Sort.unsorted();
-        if (filterDto.getSortedBy() != null && !filterDto.getSortedBy().isBlank()) {
-            String sortBy = filterDto.getSortedBy().toLowerCase();
-            switch (sortBy) {
-                case "email": sort = Sort.by("email"); break;
-                case "id": sort = Sort.by("id"); break;
-                case "name": sort = Sort.by("name"); break;
-                case "phone": sort = Sort.by("phone"); break;
-                case "tax_id": sort = Sort.by("taxId"); break;
-                case "created_at": sort = Sort.by("createdAt"); break;
-            }
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getUserFieldsById(UUID id, String fields) {
+        UserFieldSet fieldSet = UserFieldSet.parse(fields);
+        Specification<Usuario> byId = (root, query, cb) -> cb.equal(root.get("id"), id);
+        List<Map<String, Object>> rows = userRepository.findProjected(byId, Sort.unsorted(), fieldSet.getAttributes());
+        if (rows.isEmpty()) {
+            throw new com.polancou.apibasecore.application.exceptions.NotFoundException("Usuario no encontrado.");
         }
-
-        return userRepository.findAll(spec, sort).stream()
-                .map(UserMapper::toPerfilUsuarioDto)
-                .collect(Collectors.toList());
+        return toSparseProfiles(rows, fieldSet).get(0);
     }
 
     @Override
@@ -71,22 +91,13 @@ public class UserService implements IUserService {
     @Transactional
     public PerfilUsuarioDto createUser(RegistroUsuarioDto createUserDto) {
         // Validation
-        if (createUserDto.getTaxId() != null && !createUserDto.getTaxId().isBlank()) {
-            if (!ValidationUtilities.validateTaxIdRFC(createUserDto.getTaxId())) {
-                throw new com.polancou.apibasecore.application.exceptions.ValidationException("El formato del Tax ID (RFC) es inválido.");
-            }
-            if (userRepository.existsByTaxId(createUserDto.getTaxId())) {
-                throw new com.polancou.apibasecore.application.exceptions.ValidationException("El Tax ID ya está registrado.");
-            }
-        }
-
-        if (!ValidationUtilities.validatePhoneAndresFormat(createUserDto.getPhone())) {
-            throw new com.polancou.apibasecore.application.exceptions.ValidationException("El formato del teléfono es inválido (AndresFormat). Debe ser de 10 dígitos.");
+        String validationError = ValidationUtilities.validate(createUserDto, false);
+        if (validationError != null) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException(validationError);
         }
 
-        if (userRepository.existsByEmail(createUserDto.getEmail())) {
-            throw new com.polancou.apibasecore.application.exceptions.ValidationException("El email ya está registrado.");
-        }
+        String taxId = createUserDto.getTaxId() == null || createUserDto.getTaxId().isBlank() ? null : createUserDto.getTaxId();
+        checkUniqueness(null, createUserDto.getEmail(), taxId, "El email ya está registrado.", "El Tax ID ya está registrado.");
 
         String encryptedPassword = encryptionService.encrypt(createUserDto.getPassword());
 
@@ -99,7 +110,7 @@ public class UserService implements IUserService {
         );
         newUser.establecerPasswordHash(encryptedPassword);
 
-        userRepository.save(newUser);
+        save(newUser, "El email ya está registrado.", "El Tax ID ya está registrado.");
 
         return UserMapper.toPerfilUsuarioDto(newUser);
     }
@@ -110,29 +121,12 @@ public class UserService implements IUserService {
         Usuario user = userRepository.findById(id)
                 .orElseThrow(() -> new com.polancou.apibasecore.application.exceptions.NotFoundException("Usuario no encontrado."));
 
-        if (updateDto.getEmail() != null) {
-            // Check uniqueness excluding self
-             userRepository.findByEmail(updateDto.getEmail())
-                     .ifPresent(u -> {
-                         if (!u.getId().equals(id)) throw new com.polancou.apibasecore.application.exceptions.ValidationException("El email ya existe.");
-                     });
+        String validationError = ValidationUtilities.validate(updateDto, true);
+        if (validationError != null) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException(updateMessage(validationError));
         }
 
-        if (updateDto.getTaxId() != null) {
-            if (!ValidationUtilities.validateTaxIdRFC(updateDto.getTaxId())) {
-                throw new com.polancou.apibasecore.application.exceptions.ValidationException("Invalid Tax ID format.");
-            }
-            userRepository.findByTaxId(updateDto.getTaxId())
-                    .ifPresent(u -> {
-                        if (!u.getId().equals(id)) throw new com.polancou.apibasecore.application.exceptions.ValidationException("Tax ID already in use.");
-                    });
-        }
-
-        if (updateDto.getPhone() != null) {
-             if (!ValidationUtilities.validatePhoneAndresFormat(updateDto.getPhone())) {
-                 throw new com.polancou.apibasecore.application.exceptions.ValidationException("Invalid Phone format.");
-             }
-        }
+        checkUniqueness(id, updateDto.getEmail(), updateDto.getTaxId(), "El email ya existe.", "Tax ID already in use.");
 
         user.updateProfile(
                 updateDto.getName(), 
@@ -145,7 +139,8 @@ public class UserService implements IUserService {
             user.establecerPasswordHash(encrypted);
         }
 
-        userRepository.save(user);
+        save(user, "El email ya existe.", "Tax ID already in use.");
+        userChangeNotifier.userChanged(id);
 
         return UserMapper.toPerfilUsuarioDto(user);
     }
@@ -156,5 +151,112 @@ public class UserService implements IUserService {
         Usuario user = userRepository.findById(id)
                 .orElseThrow(() -> new com.polancou.apibasecore.application.exceptions.NotFoundException("Usuario no encontrado."));
         userRepository.delete(user);
+        userChangeNotifier.userChanged(id);
+    }
+
+    /**
+     * Single probe for both unique keys, ignoring the user being updated. The probe is only a
+     * fast path for the common case; {@link #save} still covers inserts that race past it.
+     */
+    private void checkUniqueness(UUID selfId, String email, String taxId, String emailMessage, String taxIdMessage) {
+        if (email == null && taxId == null) {
+            return;
+        }
+        boolean emailTaken = false;
+        boolean taxIdTaken = false;
+        for (UserRepository.UniqueKeyMatch match : userRepository.findUniqueKeyMatches(email, taxId)) {
+            if (match.getId().equals(selfId)) continue;
+            // SQL Server collations are case-insensitive, so compare the same way
+            if (email != null && email.equalsIgnoreCase(match.getEmail())) emailTaken = true;
+            if (taxId != null && taxId.equalsIgnoreCase(match.getTaxId())) taxIdTaken = true;
+        }
+        if (taxIdTaken) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException(taxIdMessage);
+        }
+        if (emailTaken) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException(emailMessage);
+        }
+    }
+
+    private void save(Usuario user, String emailMessage, String taxIdMessage) {
+        try {
+            // Flush now so a unique-index violation surfaces here and not at commit
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            UserUniqueConstraints.Key key = UserUniqueConstraints.violatedKey(e);
+            if (key == UserUniqueConstraints.Key.EMAIL) {
+                throw new com.polancou.apibasecore.application.exceptions.ValidationException(emailMessage);
+            }
+            if (key == UserUniqueConstraints.Key.TAX_ID) {
+                throw new com.polancou.apibasecore.application.exceptions.ValidationException(taxIdMessage);
+            }
+            throw e;
+        }
+    }
+
+    private Specification<Usuario> buildSpecification(UserFilterDto filterDto) {
+        Specification<Usuario> spec = Specification.unrestricted();
+
+        if (filterDto.getFilter() != null && !filterDto.getFilter().isBlank()) {
+            spec = spec.and(UserSpecification.filterBy(filterDto.getFilter()));
+        }
+        return spec;
+    }
+
+    private Sort resolveSort(String sortedBy) {
+        Sort sort = Sort.unsorted();
+        if (sortedBy != null && !sortedBy.isBlank()) {
+            String sortBy = sortedBy.toLowerCase();
+            switch (sortBy) {
+                case "email": sort = Sort.by("email"); break;
+                case "id": sort = Sort.by("id"); break;
+                case "name": sort = Sort.by("name"); break;
+                case "phone": sort = Sort.by("phone"); break;
+                case "tax_id": sort = Sort.by("taxId"); break;
+                case "created_at": sort = Sort.by("createdAt"); break;
+            }
+        }
+        return sort;
+    }
+
+    private List<Map<String, Object>> toSparseProfiles(List<Map<String, Object>> rows, UserFieldSet fieldSet) {
+        Map<UUID, List<AddressDto>> addressesByUser = fieldSet.includesAddresses()
+                ? loadAddresses(rows)
+                : null;
+
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            // The id is only selected when addresses are requested
+            List<AddressDto> addresses = addressesByUser != null ? addressesByUser.get((UUID) row.get("id")) : null;
+            result.add(UserMapper.toSparseProfile(row, fieldSet, addresses));
+        }
+        return result;
+    }
+
+    // One query per chunk of users instead of one lazy load per user
+    private Map<UUID, List<AddressDto>> loadAddresses(List<Map<String, Object>> rows) {
+        List<UUID> ids = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            ids.add((UUID) row.get("id"));
+        }
+
+        Map<UUID, List<AddressDto>> addressesByUser = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += ADDRESS_LOOKUP_CHUNK) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + ADDRESS_LOOKUP_CHUNK, ids.size()));
+            for (Address address : addressRepository.findByUsuarioIds(chunk)) {
+                addressesByUser.computeIfAbsent(address.getUsuario().getId(), k -> new ArrayList<>())
+                        .add(UserMapper.toAddressDto(address));
+            }
+        }
+        return addressesByUser;
+    }
+
+    // PATCH has always answered with these English messages; clients may match on them
+    private static String updateMessage(String validationError) {
+        return switch (validationError) {
+            case ValidationUtilities.INVALID_TAX_ID -> "Invalid Tax ID format.";
+            case ValidationUtilities.INVALID_PHONE -> "Invalid Phone format.";
+            default -> validationError;
+        };
     }
 }
@@ -28,6 +28,37 @@ public class FileSignatureValidator {
         FILE_SIGNATURES.put(".png", pngSignatures);
     }
 
+    /** Longest signature, i.e. how many leading bytes {@link #matches} needs to see. */
+    public static final int MAX_SIGNATURE_LENGTH = 8;
+
+    public static boolean isSupportedExtension(String extension) {
+        return extension != null && FILE_SIGNATURES.containsKey(extension.toLowerCase());
+    }
+
+    /**
+     * Checks the first {@code length} bytes of {@code header} against the signatures registered
+     * for {@code extension} (with leading dot, e.g. ".png").
+     */
+    public static boolean matches(byte[] header, int length, String extension) {
+        if (extension == null) return false;
+        byte[][] signatures = FILE_SIGNATURES.get(extension.toLowerCase());
+        if (signatures == null) return false;
+
+        for (byte[] signature : signatures) {
+            if (length >= signature.length) {
+                boolean match = true;
+                for (int i = 0; i < signature.length; i++) {
+                    if (header[i] != signature[i]) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (match) return true;
+            }
+        }
+        return false;
+    }
+
     public static boolean isValidImage(InputStream inputStream, String extension) throws IOException {
         if (extension == null || extension.isBlank()) return false;
         
@@ -87,19 +118,6 @@ public class FileSignatureValidator {
             if (bytesRead < 0) return false; 
         }
 
-        for (byte[] signature : signatures) {
-            if (bytesRead >= signature.length) {
-                boolean match = true;
-                for (int i = 0; i < signature.length; i++) {
-                    if (headerBytes[i] != signature[i]) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) return true;
-            }
-        }
-
-        return false;
+        return matches(headerBytes, bytesRead, ext);
     }
 }
@@ -0,0 +1,106 @@
+package com.polancou.apibasecore.application.utilities;
+
+import com.polancou.apibasecore.application.exceptions.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse fieldset requested through the {@code fields=} query parameter.
+ * Field names are the JSON names of {@code PerfilUsuarioDto}; scalar fields map to
+ * {@code Usuario} attributes so only those columns are selected.
+ */
+public final class UserFieldSet {
+
+    public static final String ADDRESSES = "addresses";
+
+    // JSON name -> entity attribute, in the same order as PerfilUsuarioDto
+    private static final Map<String, String> ATTRIBUTES = new LinkedHashMap<>();
+    private static final Map<String, String> LOOKUP = new LinkedHashMap<>();
+
+    static {
+        ATTRIBUTES.put("id", "id");
+        ATTRIBUTES.put("name", "name");
+        ATTRIBUTES.put("email", "email");
+        ATTRIBUTES.put("phone", "phone");
+        ATTRIBUTES.put("tax_id", "taxId");
+        ATTRIBUTES.put("created_at", "createdAt");
+        ATTRIBUTES.put("avatarUrl", "avatarUrl");
+        ATTRIBUTES.put("rol", "rol");
+
+        for (String field : ATTRIBUTES.keySet()) {
+            LOOKUP.put(field.toLowerCase(Locale.ROOT), field);
+        }
+        LOOKUP.put(ADDRESSES, ADDRESSES);
+    }
+
+    private final Set<String> fields;
+
+    private UserFieldSet(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static UserFieldSet parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            throw new ValidationException("Debe indicar al menos un campo en 'fields'.");
+        }
+
+        Set<String> requested = new LinkedHashSet<>();
+        for (String part : fields.split(",")) {
+            String key = part.trim().toLowerCase(Locale.ROOT);
+            if (key.isEmpty()) continue;
+            String field = LOOKUP.get(key);
+            if (field == null) {
+                throw new ValidationException("Campo desconocido en 'fields': " + part.trim());
+            }
+            requested.add(field);
+        }
+        if (requested.isEmpty()) {
+            throw new ValidationException("Debe indicar al menos un campo en 'fields'.");
+        }
+
+        // Keep the canonical DTO order regardless of the order in the query string
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String field : LOOKUP.values()) {
+            if (requested.contains(field)) ordered.add(field);
+        }
+        return new UserFieldSet(Collections.unmodifiableSet(ordered));
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    public boolean includes(String field) {
+        return fields.contains(field);
+    }
+
+    public boolean includesAddresses() {
+        return fields.contains(ADDRESSES);
+    }
+
+    /**
+     * Entity attributes to select. The id is always selected when addresses are
+     * requested because it is needed to attach them to their owner.
+     */
+    public List<String> getAttributes() {
+        List<String> attributes = new ArrayList<>();
+        if (includesAddresses() && !fields.contains("id")) {
+            attributes.add("id");
+        }
+        for (Map.Entry<String, String> entry : ATTRIBUTES.entrySet()) {
+            if (fields.contains(entry.getKey())) attributes.add(entry.getValue());
+        }
+        return attributes;
+    }
+
+    public static String attributeOf(String field) {
+        return ATTRIBUTES.get(field);
+    }
+}
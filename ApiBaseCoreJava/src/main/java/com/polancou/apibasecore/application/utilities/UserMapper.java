@@ -5,6 +5,9 @@ import com.polancou.apibasecore.application.dtos.PerfilUsuarioDto;
 import com.polancou.apibasecore.domain.models.Address;
 import com.polancou.apibasecore.domain.models.Usuario;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class UserMapper {
@@ -20,6 +23,13 @@ public class UserMapper {
         dto.setTaxId(usuario.getTaxId());
         dto.setCreatedAt(usuario.getCreatedAt().toString()); // ISO 8601
         dto.setAvatarUrl(usuario.getAvatarUrl());
+        if (usuario.getAvatarUrl512() != null) {
+            Map<String, String> variants = new LinkedHashMap<>();
+            variants.put("64", usuario.getAvatarUrl64());
+            variants.put("128", usuario.getAvatarUrl128());
+            variants.put("512", usuario.getAvatarUrl512());
+            dto.setAvatarVariants(variants);
+        }
         dto.setRol(usuario.getRol().toString());
 
         if (usuario.getAddresses() != null) {
@@ -31,6 +41,26 @@ public class UserMapper {
         return dto;
     }
 
+    /**
+     * Builds a sparse profile from a projected row (keyed by entity attribute),
+     * applying the same conversions as {@link #toPerfilUsuarioDto(Usuario)}.
+     */
+    public static Map<String, Object> toSparseProfile(Map<String, Object> row, UserFieldSet fieldSet, List<AddressDto> addresses) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String field : fieldSet.getFields()) {
+            if (UserFieldSet.ADDRESSES.equals(field)) {
+                result.put(field, addresses != null ? addresses : List.of());
+                continue;
+            }
+            Object value = row.get(UserFieldSet.attributeOf(field));
+            if (value != null && ("created_at".equals(field) || "rol".equals(field))) {
+                value = value.toString();
+            }
+            result.put(field, value);
+        }
+        return result;
+    }
+
     public static AddressDto toAddressDto(Address address) {
         if (address == null) return null;
         AddressDto dto = new AddressDto();
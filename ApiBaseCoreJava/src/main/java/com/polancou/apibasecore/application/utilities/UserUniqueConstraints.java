@@ -0,0 +1,44 @@
+package com.polancou.apibasecore.application.utilities;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+/**
+ * Maps unique-index violations on the Usuarios table (or, with sharding, on the user directory)
+ * back to the field that caused them,
+ * so a write that loses a race against a concurrent insert reports the same error as the probe.
+ */
+public class UserUniqueConstraints {
+
+    // Must match the index names declared on Usuario
+    public static final String EMAIL_INDEX = "IX_Usuarios_Email";
+    public static final String TAX_ID_INDEX = "IX_Usuarios_TaxId";
+
+    // Must match the index names created by UserDirectory
+    public static final String DIRECTORY_EMAIL_INDEX = "IX_UserDirectory_Email";
+    public static final String DIRECTORY_TAX_ID_INDEX = "IX_UserDirectory_TaxId";
+
+    public enum Key { EMAIL, TAX_ID }
+
+    /**
+     * Returns the unique key behind the violation, or null when it was caused by something
+     * else (FK, NOT NULL, an unknown constraint).
+     */
+    public static Key violatedKey(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            String text = cause instanceof org.hibernate.exception.ConstraintViolationException violation
+                    && violation.getConstraintName() != null
+                    ? violation.getConstraintName()
+                    : cause.getMessage();
+            if (text == null) continue;
+
+            String lower = text.toLowerCase(Locale.ROOT);
+            if (lower.contains(EMAIL_INDEX.toLowerCase(Locale.ROOT))
+                    || lower.contains(DIRECTORY_EMAIL_INDEX.toLowerCase(Locale.ROOT))) return Key.EMAIL;
+            if (lower.contains(TAX_ID_INDEX.toLowerCase(Locale.ROOT))
+                    || lower.contains(DIRECTORY_TAX_ID_INDEX.toLowerCase(Locale.ROOT))) return Key.TAX_ID;
+        }
+        return null;
+    }
+}
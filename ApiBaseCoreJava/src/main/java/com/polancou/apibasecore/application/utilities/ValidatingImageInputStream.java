@@ -0,0 +1,113 @@
+package com.polancou.apibasecore.application.utilities;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Validates an image upload while it is being consumed: the magic bytes are checked against the
+ * declared extension on the first read, and reading past {@code maxBytes} aborts the copy.
+ * Both failures surface as ValidationException from {@code read}, so the consumer (e.g. the file
+ * store) stops at the first bad chunk and never needs the whole upload buffered or re-read.
+ */
+public class ValidatingImageInputStream extends FilterInputStream {
+
+    public static final String INVALID_SIGNATURE = "El archivo no es una imagen válida.";
+    public static final String TOO_LARGE = "El archivo debe ser menor a 2 MB.";
+
+    private final String extension;
+    private final long maxBytes;
+
+    // Header bytes read ahead for the signature check, handed out before the rest of the stream
+    private byte[] header;
+    private int headerLength;
+    private int headerPosition;
+    private long count;
+
+    public ValidatingImageInputStream(InputStream in, String extension, long maxBytes) {
+        super(in);
+        this.extension = extension;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (header == null) {
+            readHeader();
+        }
+        if (length == 0) {
+            return 0;
+        }
+
+        int read;
+        if (headerPosition < headerLength) {
+            read = Math.min(length, headerLength - headerPosition);
+            System.arraycopy(header, headerPosition, buffer, offset, read);
+            headerPosition += read;
+        } else {
+            read = in.read(buffer, offset, length);
+            if (read == -1) {
+                return -1;
+            }
+        }
+
+        count += read;
+        if (count > maxBytes) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException(TOO_LARGE);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes must still be counted and the header still checked
+        byte[] discard = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(discard, 0, (int) Math.min(discard.length, n - skipped));
+            if (read == -1) break;
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (headerLength - headerPosition) + in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // Not supported: a reset would bypass the byte count
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void readHeader() throws IOException {
+        header = new byte[FileSignatureValidator.MAX_SIGNATURE_LENGTH];
+        // read() may return short counts; keep going until the signature window is full or EOF
+        while (headerLength < header.length) {
+            int read = in.read(header, headerLength, header.length - headerLength);
+            if (read == -1) break;
+            headerLength += read;
+        }
+        if (!FileSignatureValidator.matches(header, headerLength, extension)) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException(INVALID_SIGNATURE);
+        }
+    }
+}
@@ -1,26 +1,235 @@
 package com.polancou.apibasecore.application.utilities;
 
-import java.util.regex.Pattern;
+import com.polancou.apibasecore.application.dtos.UserContactFields;
 
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Single-pass validators for the user contact fields. None of the checks allocate
+ * on the success path; they scan the input once and bail out on the first bad char.
+ */
 public class ValidationUtilities {
 
-    // Regex for Mexican RFC
-    private static final Pattern RFC_PATTERN = Pattern.compile("^[A-Z&Ñ]{3,4}\\d{6}[A-Z0-9]{3}$", Pattern.CASE_INSENSITIVE);
+    public static final String INVALID_EMAIL = "El formato del email es inválido.";
+    public static final String INVALID_TAX_ID = "El formato del Tax ID (RFC) es inválido.";
+    public static final String INVALID_PHONE = "El formato del teléfono es inválido (AndresFormat). Debe ser de 10 dígitos.";
+
+    // Batches smaller than this are cheaper to validate on the calling thread
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    // Generic RFCs (público en general / extranjeros) do not carry a valid check digit
+    private static final String GENERIC_RFC_NATIONAL = "XAXX010101000";
+    private static final String GENERIC_RFC_FOREIGN = "XEXX010101000";
+
+    private static final int CENTURY_PIVOT = Year.now(ZoneOffset.UTC).getValue() % 100;
 
+    private static final int[] DAYS_IN_MONTH = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    /**
+     * Validates a Mexican RFC: 3 (moral) or 4 (física) letters, a YYMMDD date that
+     * exists on the calendar, a 2-char homoclave and the SAT check digit.
+     * Case-insensitive, like the regex it replaces.
+     */
     public static boolean validateTaxIdRFC(String taxId) {
-        if (taxId == null || taxId.isBlank()) {
+        if (taxId == null) {
+            return false;
+        }
+        int length = taxId.length();
+        if (length != 12 && length != 13) {
+            return false;
+        }
+        if (GENERIC_RFC_NATIONAL.equalsIgnoreCase(taxId) || GENERIC_RFC_FOREIGN.equalsIgnoreCase(taxId)) {
+            return true;
+        }
+
+        int prefixLength = length - 9;
+        // Weights run 13..2 over the first 12 chars of a 13-char RFC. Moral (12-char) RFCs
+        // are treated as if padded with a leading space, which takes weight 13.
+        int weight = length;
+        int sum = length == 12 ? rfcValue(' ') * 13 : 0;
+
+        for (int i = 0; i < length - 1; i++, weight--) {
+            char c = Character.toUpperCase(taxId.charAt(i));
+            if (i < prefixLength) {
+                if (!((c >= 'A' && c <= 'Z') || c == '&' || c == 'Ñ')) return false;
+            } else if (i < prefixLength + 6) {
+                if (c < '0' || c > '9') return false;
+            } else if (!((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+            sum += rfcValue(c) * weight;
+        }
+
+        if (!isValidDate(taxId, prefixLength)) {
             return false;
         }
-        return RFC_PATTERN.matcher(taxId).matches();
+
+        int mod = sum % 11;
+        char expected = mod == 0 ? '0' : (11 - mod == 10 ? 'A' : (char) ('0' + (11 - mod)));
+        return Character.toUpperCase(taxId.charAt(length - 1)) == expected;
     }
 
+    /**
+     * Phone numbers must contain exactly 10 digits; any other character is treated
+     * as formatting and ignored, same as the previous strip-then-count check.
+     */
     public static boolean validatePhoneAndresFormat(String phone) {
-        if (phone == null || phone.isBlank()) {
+        if (phone == null) {
+            return false;
+        }
+        int digits = 0;
+        for (int i = 0, n = phone.length(); i < n; i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9' && ++digits > 10) {
+                return false;
+            }
+        }
+        return digits == 10;
+    }
+
+    /**
+     * Syntax check for {@code local@domain.tld}: ASCII atext local part without
+     * leading, trailing or doubled dots; hostname labels of letters, digits and inner
+     * hyphens; an alphabetic TLD of at least two chars. Length limits follow RFC 5321.
+     */
+    public static boolean validateEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        int length = email.length();
+        if (length < 6 || length > 254) {
+            return false;
+        }
+
+        int at = -1;
+        char previous = 0;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                if (at >= 0 || i == 0 || i > 64 || previous == '.') return false;
+                at = i;
+            } else if (at < 0) {
+                if (c == '.') {
+                    if (i == 0 || previous == '.') return false;
+                } else if (!isLocalChar(c)) {
+                    return false;
+                }
+            } else if (c == '.') {
+                // Label must be non-empty and not end with a hyphen
+                if (previous == '@' || previous == '.' || previous == '-') return false;
+            } else if (c == '-') {
+                if (previous == '@' || previous == '.') return false;
+            } else if (!isAlphaNumeric(c)) {
+                return false;
+            }
+            previous = c;
+        }
+        if (at < 0) {
+            return false;
+        }
+
+        // Walk the last label backwards: TLD, letters only, at least 2 chars, preceded by a dot
+        int tldLength = 0;
+        int labelLength = 0;
+        for (int i = length - 1; i > at; i--) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) return false;
+                if (tldLength == 0) tldLength = labelLength;
+                labelLength = 0;
+                continue;
+            }
+            if (tldLength == 0 && !isLetter(c)) return false;
+            if (++labelLength > 63) return false;
+        }
+        return tldLength >= 2;
+    }
+
+    /**
+     * Validates the contact fields of a user write. Returns the error message of the first
+     * failing field, or null when valid. With {@code partial} (PATCH semantics) null fields
+     * are skipped; otherwise email and phone are required and the tax id is optional.
+     */
+    public static String validate(UserContactFields fields, boolean partial) {
+        String email = fields.getEmail();
+        if (email != null || !partial) {
+            if (!validateEmail(email)) return INVALID_EMAIL;
+        }
+
+        String taxId = fields.getTaxId();
+        if (taxId != null && (partial || !taxId.isBlank())) {
+            if (!validateTaxIdRFC(taxId)) return INVALID_TAX_ID;
+        }
+
+        String phone = fields.getPhone();
+        if (phone != null || !partial) {
+            if (!validatePhoneAndresFormat(phone)) return INVALID_PHONE;
+        }
+        return null;
+    }
+
+    /**
+     * Batch form of {@link #validate}: element {@code i} of the result is the error for
+     * {@code items.get(i)} or null. Large batches are validated in parallel.
+     */
+    public static List<String> validateAll(List<? extends UserContactFields> items, boolean partial) {
+        String[] errors = new String[items.size()];
+        IntStream indexes = IntStream.range(0, errors.length);
+        if (errors.length >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> errors[i] = validate(items.get(i), partial));
+        return Arrays.asList(errors);
+    }
+
+    private static boolean isValidDate(String taxId, int offset) {
+        int year = twoDigits(taxId, offset);
+        int month = twoDigits(taxId, offset + 2);
+        int day = twoDigits(taxId, offset + 4);
+
+        if (month < 1 || month > 12 || day < 1 || day > DAYS_IN_MONTH[month - 1]) {
             return false;
         }
-        // Remove non-digit characters
-        String cleanPhone = phone.replaceAll("[^\\d]", "");
-        // Must be exactly 10 digits
-        return cleanPhone.length() == 10;
+        // Two-digit years up to the current one are 20YY, the rest 19YY, so "00" is 2000
+        int fullYear = year <= CENTURY_PIVOT ? 2000 + year : 1900 + year;
+        return month != 2 || day != 29 || Year.isLeap(fullYear);
+    }
+
+    // Value of a char in the SAT check digit alphabet "0123456789ABCDEFGHIJKLMN&OPQRSTUVWXYZ Ñ"
+    private static int rfcValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'A' && c <= 'N') return 10 + (c - 'A');
+        if (c == '&') return 24;
+        if (c >= 'O' && c <= 'Z') return 25 + (c - 'O');
+        if (c == ' ') return 37;
+        return 38; // Ñ
+    }
+
+    private static int twoDigits(String value, int offset) {
+        return (value.charAt(offset) - '0') * 10 + (value.charAt(offset + 1) - '0');
+    }
+
+    private static boolean isLocalChar(char c) {
+        if (isAlphaNumeric(c)) return true;
+        switch (c) {
+            case '!': case '#': case '$': case '%': case '&': case '\'': case '*': case '+':
+            case '/': case '=': case '?': case '^': case '_': case '`': case '{': case '|':
+            case '}': case '~': case '-':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isAlphaNumeric(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
     }
 }
@@ -0,0 +1,47 @@
+package com.polancou.apibasecore.domain.models;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "UploadChunks", indexes = {
+    @Index(name = "IX_UploadChunks_Session_Offset", columnList = "UploadSessionId, ChunkOffset", unique = true)
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class UploadChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "UploadSessionId", nullable = false)
+    private UploadSession session;
+
+    // OFFSET is a T-SQL keyword
+    @Column(nullable = false)
+    private long chunkOffset;
+
+    @Column(nullable = false)
+    private long length;
+
+    // Hex SHA-256 of the chunk, as sent by the client and verified on receipt
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    // Where the chunk bytes were stored: a key from IUploadChunkStore.saveChunk, or an avatar
+    // store URL for chunks written before the private chunk store
+    @Column(nullable = false)
+    private String fileUrl;
+
+    public UploadChunk(UploadSession session, long chunkOffset, long length, String sha256, String fileUrl) {
+        this.session = session;
+        this.chunkOffset = chunkOffset;
+        this.length = length;
+        this.sha256 = sha256;
+        this.fileUrl = fileUrl;
+    }
+}
@@ -0,0 +1,70 @@
+package com.polancou.apibasecore.domain.models;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A resumable upload in progress. Chunks are appended strictly in order; {@code receivedBytes}
+ * is the offset the next chunk must start at.
+ */
+@Entity
+@Table(name = "UploadSessions", indexes = {
+    @Index(name = "IX_UploadSessions_ExpiresAt", columnList = "ExpiresAt")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class UploadSession {
+
+    @Id
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "UsuarioId", nullable = false)
+    private Usuario usuario;
+
+    @Column(nullable = false, length = 255)
+    private String fileName;
+
+    @Column(nullable = false)
+    private long totalSize;
+
+    @Column(nullable = false)
+    private long receivedBytes;
+
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @OneToMany(mappedBy = "session", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("chunkOffset")
+    private List<UploadChunk> chunks = new ArrayList<>();
+
+    public UploadSession(Usuario usuario, String fileName, long totalSize, LocalDateTime expiresAt) {
+        if (usuario == null) throw new IllegalArgumentException("Usuario cannot be null");
+        if (fileName == null || fileName.isBlank()) throw new IllegalArgumentException("FileName cannot be null or empty");
+
+        this.id = UUID.randomUUID();
+        this.usuario = usuario;
+        this.fileName = fileName;
+        this.totalSize = totalSize;
+        this.createdAt = LocalDateTime.now(ZoneId.of("UTC"));
+        this.expiresAt = expiresAt;
+    }
+
+    public void addChunk(long offset, long length, String sha256, String fileUrl) {
+        chunks.add(new UploadChunk(this, offset, length, sha256, fileUrl));
+    }
+
+    public boolean isComplete() {
+        return receivedBytes == totalSize;
+    }
+}
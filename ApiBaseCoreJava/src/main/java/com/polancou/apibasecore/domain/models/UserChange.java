@@ -0,0 +1,46 @@
+package com.polancou.apibasecore.domain.models;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * One "user X changed" announcement. The identity id gives the order other instances read them
+ * in; rows are only kept for a while, they are not a history.
+ */
+@Entity
+@Table(name = "UserChanges", indexes = {
+    @Index(name = "IX_UserChanges_ChangedAt", columnList = "ChangedAt")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class UserChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // No foreign key: deleting a user must be announced as well
+    @Column(name = "UsuarioId", nullable = false)
+    private UUID usuarioId;
+
+    // Instance that made the change, which has already applied it
+    @Column(nullable = false)
+    private UUID origin;
+
+    @Column(nullable = false)
+    private LocalDateTime changedAt;
+
+    public UserChange(UUID usuarioId, UUID origin) {
+        if (usuarioId == null) throw new IllegalArgumentException("UsuarioId cannot be null");
+
+        this.usuarioId = usuarioId;
+        this.origin = origin;
+        this.changedAt = LocalDateTime.now(ZoneId.of("UTC"));
+    }
+}
@@ -15,7 +15,8 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "Usuarios", indexes = {
-    @Index(name = "IX_Usuarios_TaxId", columnList = "TaxId", unique = true)
+    @Index(name = "IX_Usuarios_Email", columnList = "Email", unique = true),
+    @Index(name = "IX_Usuarios_RefreshToken", columnList = "RefreshToken")
 })
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -41,7 +42,8 @@ public class Usuario {
     @Column(name = "PasswordHash")
     private String passwordHash;
 
-    @Column(length = 20, unique = true)
+    // Unique through IX_Usuarios_TaxId, filtered on NOT NULL (see UserSchemaInitializer)
+    @Column(length = 20)
     @JsonProperty("tax_id")
     private String taxId;
 
@@ -62,6 +64,31 @@ public class Usuario {
     @JsonIgnore
     private String avatarUrl;
 
+    // Resized variants of avatarUrl, filled in asynchronously after the upload
+    @JsonIgnore
+    private String avatarUrl64;
+
+    @JsonIgnore
+    private String avatarUrl128;
+
+    @JsonIgnore
+    private String avatarUrl512;
+
+    // Provider picture (e.g. Google) that avatarUrl mirrors; null once the user uploads their own
+    @JsonIgnore
+    @Column(length = 2048)
+    private String externalAvatarUrl;
+
+    // Validators from the last download, sent back for conditional revalidation
+    @JsonIgnore
+    private String externalAvatarEtag;
+
+    @JsonIgnore
+    private String externalAvatarLastModified;
+
+    @JsonIgnore
+    private LocalDateTime externalAvatarCheckedAt;
+
     @JsonIgnore
     private String refreshToken;
 
@@ -130,6 +157,34 @@ public class Usuario {
         if (nuevoUrl != null && !nuevoUrl.isBlank()) this.avatarUrl = nuevoUrl;
     }
 
+    /**
+     * Points the avatar at a provider picture. The avatar URL is only replaced while it is not a
+     * stored file yet; otherwise the current mirrored copy stays until the new one is downloaded.
+     */
+    public void setExternalAvatarSource(String pictureUrl) {
+        if (pictureUrl == null || pictureUrl.isBlank() || pictureUrl.equals(this.externalAvatarUrl)) return;
+        this.externalAvatarUrl = pictureUrl;
+        this.externalAvatarEtag = null;
+        this.externalAvatarLastModified = null;
+        this.externalAvatarCheckedAt = null;
+        if (this.avatarUrl == null || this.avatarUrl.isBlank() || this.avatarUrl.startsWith("http")) {
+            this.avatarUrl = pictureUrl;
+        }
+    }
+
+    public void clearExternalAvatarSource() {
+        this.externalAvatarUrl = null;
+        this.externalAvatarEtag = null;
+        this.externalAvatarLastModified = null;
+        this.externalAvatarCheckedAt = null;
+    }
+
+    public void clearAvatarVariants() {
+        this.avatarUrl64 = null;
+        this.avatarUrl128 = null;
+        this.avatarUrl512 = null;
+    }
+
     public void setRefreshToken(String refreshToken, LocalDateTime expiryTime) {
         this.refreshToken = refreshToken;
         this.refreshTokenExpiryTime = expiryTime;
@@ -0,0 +1,41 @@
+package com.polancou.apibasecore.infrastructure.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class AvatarMirrorExecutorConfig {
+
+    /**
+     * Bounded pool for provider picture downloads. The worker count is also the cap on concurrent
+     * outbound requests, so a burst of logins cannot open an unbounded number of connections.
+     */
+    @Bean(name = "avatarMirrorExecutor", destroyMethod = "shutdown")
+    public ExecutorService avatarMirrorExecutor(@Value("${avatars.mirror.threads:4}") int threads,
+                                                @Value("${avatars.mirror.queue-capacity:500}") int queueCapacity,
+                                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        // Downloads only wait on the network: in virtual-thread mode the workers are virtual,
+        // the pool still caps how many run at once
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = Thread.ofVirtual().name("avatar-mirror-", 1).factory();
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "avatar-mirror-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
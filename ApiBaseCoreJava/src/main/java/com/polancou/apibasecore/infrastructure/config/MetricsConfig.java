@@ -0,0 +1,87 @@
+package com.polancou.apibasecore.infrastructure.config;
+
+import com.polancou.apibasecore.application.interfaces.IAuthService;
+import com.polancou.apibasecore.application.interfaces.IAvatarMirrorService;
+import com.polancou.apibasecore.application.interfaces.IEmailService;
+import com.polancou.apibasecore.application.interfaces.IEncryptionService;
+import com.polancou.apibasecore.application.interfaces.IExternalAuthValidator;
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import com.polancou.apibasecore.application.interfaces.IProfileService;
+import com.polancou.apibasecore.application.interfaces.IThumbnailService;
+import com.polancou.apibasecore.application.interfaces.ITokenService;
+import com.polancou.apibasecore.application.interfaces.IUploadSessionService;
+import com.polancou.apibasecore.application.interfaces.IUserBulkService;
+import com.polancou.apibasecore.application.interfaces.IUserService;
+import com.polancou.apibasecore.infrastructure.services.AvatarGarbageCollectionJob;
+import com.polancou.apibasecore.infrastructure.services.CachingFileStorageService;
+import com.polancou.apibasecore.infrastructure.services.VirtualThreadPinningMonitor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application metrics and spans on top of what the actuator binds by itself (HTTP server
+ * requests, JVM, Hikari pool gauges). Scraped in Prometheus format from the management port.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Static: post-processors are created before regular beans, the registry is resolved lazily
+    @Bean
+    public static ServiceObservationPostProcessor serviceObservationPostProcessor(ObjectProvider<ObservationRegistry> registry) {
+        return new ServiceObservationPostProcessor(registry, List.of(
+                IAuthService.class,
+                IUserService.class,
+                IUserBulkService.class,
+                IProfileService.class,
+                IUploadSessionService.class,
+                ITokenService.class,
+                IEncryptionService.class,
+                IEmailService.class,
+                IExternalAuthValidator.class,
+                IFileStorageService.class,
+                IThumbnailService.class,
+                IAvatarMirrorService.class));
+    }
+
+    @Bean
+    public MeterBinder avatarStorageMetrics(CachingFileStorageService cache,
+                                            AvatarGarbageCollectionJob garbageCollection,
+                                            ObjectProvider<VirtualThreadPinningMonitor> pinningMonitor) {
+        return registry -> {
+            FunctionCounter.builder("avatars.cache.requests", cache, CachingFileStorageService::getHits)
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("avatars.cache.requests", cache, CachingFileStorageService::getMisses)
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("avatars.cache.evictions", cache, CachingFileStorageService::getEvictions)
+                    .register(registry);
+            Gauge.builder("avatars.cache.size", cache, CachingFileStorageService::getCachedBytes)
+                    .baseUnit("bytes").register(registry);
+            Gauge.builder("avatars.cache.files", cache, CachingFileStorageService::getCachedFiles)
+                    .register(registry);
+
+            FunctionCounter.builder("avatars.gc.runs", garbageCollection, AvatarGarbageCollectionJob::getRuns)
+                    .register(registry);
+            FunctionCounter.builder("avatars.gc.reclaimed.files", garbageCollection, AvatarGarbageCollectionJob::getFilesReclaimed)
+                    .register(registry);
+            FunctionCounter.builder("avatars.gc.reclaimed", garbageCollection, AvatarGarbageCollectionJob::getBytesReclaimed)
+                    .baseUnit("bytes").register(registry);
+
+            VirtualThreadPinningMonitor monitor = pinningMonitor.getIfAvailable();
+            if (monitor != null) {
+                FunctionCounter.builder("jvm.threads.virtual.pinned", monitor, VirtualThreadPinningMonitor::getPinnedEvents)
+                        .register(registry);
+                FunctionCounter.builder("jvm.threads.virtual.pinned.time", monitor,
+                                m -> m.getPinnedTime().toNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                        .baseUnit("seconds").register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.polancou.apibasecore.infrastructure.config;
+
+import com.polancou.apibasecore.infrastructure.persistence.ReadWriteRoutingDataSource;
+import com.polancou.apibasecore.infrastructure.services.UserChangedEvent;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces Boot's single pool with a primary pool plus one read-only pool per replica URL in
+ * {@code datasource.replicas.urls}, routed per transaction by {@link ReadWriteRoutingDataSource}.
+ * The primary pool is built from {@code spring.datasource.*} and binds every
+ * {@code spring.datasource.hikari.*} setting, as Boot's own pool would. Replicas use the
+ * primary's credentials and driver unless overridden.
+ * <p>
+ * Read-your-writes is tracked per instance: only the node that committed a write knows to keep
+ * that user's reads on the primary. Other nodes hear of it through {@link UserChangedEvent} once
+ * the broadcast arrives, and only for profile changes, so behind a load balancer the guarantee
+ * holds only with sticky sessions (affinity on the user's token or session).
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    private final ObjectProvider<ReadWriteRoutingDataSource> routingDataSource;
+
+    public ReadReplicaDataSourceConfig(ObjectProvider<ReadWriteRoutingDataSource> routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    /**
+     * The write pool. Hikari settings are bound onto it after this method returns, so
+     * {@code spring.datasource.hikari.pool-name} still overrides the default name.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("primary");
+        return pool;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            @Value("${datasource.replicas.urls}") List<String> replicaUrls,
+            @Value("${datasource.replicas.username:${spring.datasource.username:}}") String replicaUsername,
+            @Value("${datasource.replicas.password:${spring.datasource.password:}}") String replicaPassword,
+            @Value("${datasource.replicas.maximum-pool-size:10}") int replicaPoolSize,
+            @Value("${datasource.replicas.read-your-writes-window:PT5S}") Duration readYourWritesWindow,
+            MeterRegistry meterRegistry) {
+        String driverClassName = properties.getDriverClassName() == null ? "" : properties.getDriverClassName();
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicas.add(pool("replica-" + (i + 1), replicaUrls.get(i).trim(), replicaUsername, replicaPassword,
+                    driverClassName, replicaPoolSize, true, meterRegistry));
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas, readYourWritesWindow);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(routingDataSource);
+        // Known up front, so the proxy never opens a connection just to find them out
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return proxy;
+    }
+
+    @Bean
+    public MeterBinder readReplicaMetrics(ReadWriteRoutingDataSource routingDataSource) {
+        return registry -> Gauge.builder("app.datasource.replicas.healthy", routingDataSource,
+                        ReadWriteRoutingDataSource::getHealthyReplicas)
+                .description("Read replicas currently taking read-only transactions")
+                .register(registry);
+    }
+
+    // A user's change committed on another instance may not have reached the replicas yet either
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.remote()) {
+            routingDataSource.ifAvailable(routing -> routing.userChangedElsewhere(event.userId()));
+        }
+    }
+
+    static HikariDataSource pool(String name, String url, String username, String password,
+                                 String driverClassName, int maximumPoolSize, boolean readOnly,
+                                 MeterRegistry meterRegistry) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        if (!driverClassName.isBlank()) {
+            pool.setDriverClassName(driverClassName);
+        }
+        pool.setMaximumPoolSize(maximumPoolSize);
+        pool.setReadOnly(readOnly);
+        // Replica pools are not beans, so the actuator would not bind their gauges by itself
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
@@ -0,0 +1,150 @@
+package com.polancou.apibasecore.infrastructure.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Wraps every call through the listed service interfaces, and every Spring Data repository
+ * method, in an {@link Observation}. Only methods the interface declares are observed: public
+ * helpers on the implementation (e.g. the counters the metrics binders read on every scrape) are
+ * not service calls and stay unwrapped. With the actuator and tracing bridge on the classpath each
+ * observation becomes both a timer ({@code app.service.calls} / {@code app.repository.calls},
+ * tagged with service, method, outcome and error) and a child span named
+ * {@code Service.method}, so a slow request shows which call the time went to.
+ * <p>
+ * Beans that already have a Spring AOP proxy (e.g. for {@code @Transactional}, or the repository
+ * proxies) get the observation as their outermost advice, so the measured time includes the
+ * commit; other beans get a class proxy so they can still be injected by concrete type.
+ * Deliberately not {@code Ordered}, so it runs after the auto-proxy creator has applied the
+ * transactional proxy.
+ */
+public class ServiceObservationPostProcessor implements BeanPostProcessor {
+
+    static final String SERVICE_CALLS = "app.service.calls";
+    static final String REPOSITORY_CALLS = "app.repository.calls";
+
+    private final ObjectProvider<ObservationRegistry> registryProvider;
+    private final List<Class<?>> observedInterfaces;
+    private volatile ObservationRegistry registry;
+
+    public ServiceObservationPostProcessor(ObjectProvider<ObservationRegistry> registryProvider,
+                                           List<Class<?>> observedInterfaces) {
+        this.registryProvider = registryProvider;
+        this.observedInterfaces = observedInterfaces;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Advisor advisor = advisorFor(bean);
+        if (advisor == null) {
+            return bean;
+        }
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvisor(0, advisor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(advisor);
+        return proxyFactory.getProxy();
+    }
+
+    private Advisor advisorFor(Object bean) {
+        for (Class<?> type : observedInterfaces) {
+            if (type.isInstance(bean)) return advisor(SERVICE_CALLS, type);
+        }
+        if (bean instanceof Repository<?, ?>) {
+            for (Class<?> type : bean.getClass().getInterfaces()) {
+                if (Repository.class.isAssignableFrom(type) && !type.getName().startsWith("org.springframework.")) {
+                    return advisor(REPOSITORY_CALLS, type);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Advisor advisor(String name, Class<?> type) {
+        return new DefaultPointcutAdvisor(new DeclaredByPointcut(type), new ObservingInterceptor(name, type.getSimpleName()));
+    }
+
+    // Resolved on first call: post-processors are built before the registry bean exists
+    private ObservationRegistry registry() {
+        ObservationRegistry current = registry;
+        if (current == null) {
+            current = registryProvider.getIfAvailable(() -> ObservationRegistry.NOOP);
+            registry = current;
+        }
+        return current;
+    }
+
+    /**
+     * Matches the methods {@code type} declares or inherits from its super-interfaces, whatever
+     * class the proxy resolved them on. Spring caches the answer per method.
+     */
+    private static final class DeclaredByPointcut extends StaticMethodMatcherPointcut {
+
+        private final Class<?> type;
+
+        private DeclaredByPointcut(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            if (method.getDeclaringClass() == Object.class) {
+                return false;
+            }
+            try {
+                type.getMethod(method.getName(), method.getParameterTypes());
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    }
+
+    private final class ObservingInterceptor implements MethodInterceptor {
+
+        private final String name;
+        private final String component;
+
+        private ObservingInterceptor(String name, String component) {
+            this.name = name;
+            this.component = component;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            Observation observation = Observation.createNotStarted(name, registry())
+                    .contextualName(component + "." + method.getName())
+                    .lowCardinalityKeyValue("service", component)
+                    .lowCardinalityKeyValue("method", method.getName())
+                    .start();
+            try (Observation.Scope scope = observation.openScope()) {
+                Object result = invocation.proceed();
+                observation.lowCardinalityKeyValue("outcome", "success");
+                return result;
+            } catch (Throwable t) {
+                observation.lowCardinalityKeyValue("outcome", "error");
+                observation.error(t);
+                throw t;
+            } finally {
+                observation.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.polancou.apibasecore.infrastructure.config;
+
+import com.polancou.apibasecore.infrastructure.persistence.UserSchemaInitializer;
+import com.polancou.apibasecore.infrastructure.sharding.ShardContext;
+import com.polancou.apibasecore.infrastructure.sharding.ShardRoutingDataSource;
+import com.polancou.apibasecore.infrastructure.sharding.ShardingRepositoryPostProcessor;
+import com.polancou.apibasecore.infrastructure.sharding.UserDirectory;
+import com.polancou.apibasecore.infrastructure.sharding.UserDirectoryListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads users, with their addresses, logins and upload sessions, over the databases in
+ * {@code sharding.urls} by a hash of the user id. The first URL is the home shard: it also holds
+ * the user directory and is where the schema is managed by {@code ddl-auto}; the other shards get
+ * the mapped tables created on first start.
+ * <p>
+ * Replaces Boot's single pool, so it cannot be combined with read replicas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardingConfig.class);
+
+    public ShardingConfig(@Value("${datasource.replicas.enabled:false}") boolean replicasEnabled) {
+        if (replicasEnabled) {
+            throw new IllegalStateException("sharding.enabled and datasource.replicas.enabled cannot both be set");
+        }
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            @Value("${sharding.urls}") List<String> urls,
+            @Value("${sharding.username:${spring.datasource.username:}}") String username,
+            @Value("${sharding.password:${spring.datasource.password:}}") String password,
+            @Value("${spring.datasource.driverClassName:}") String driverClassName,
+            @Value("${sharding.maximum-pool-size:10}") int poolSize,
+            MeterRegistry meterRegistry) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            shards.add(ReadReplicaDataSourceConfig.pool("shard-" + i, urls.get(i).trim(), username, password,
+                    driverClassName, poolSize, false, meterRegistry));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource routingDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(routingDataSource);
+        // Known up front, so the proxy never opens a connection just to find them out
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return proxy;
+    }
+
+    @Bean
+    public UserDirectory userDirectory(ShardRoutingDataSource routingDataSource) {
+        UserDirectory directory = new UserDirectory(routingDataSource.getShard(ShardRoutingDataSource.HOME_SHARD));
+        directory.createTableIfMissing();
+        return directory;
+    }
+
+    // Static: post-processors are created before regular beans, so everything is resolved lazily
+    @Bean
+    public static ShardingRepositoryPostProcessor shardingRepositoryPostProcessor(
+            ObjectProvider<ShardRoutingDataSource> shards,
+            ObjectProvider<UserDirectory> directory,
+            ObjectProvider<PlatformTransactionManager> transactionManager) {
+        return new ShardingRepositoryPostProcessor(shards, directory, transactionManager);
+    }
+
+    /**
+     * Hooks the directory into Hibernate's events and creates the mapped tables on shards that
+     * do not have them yet. Later schema changes on those shards need a migration, as anywhere
+     * {@code ddl-auto} is not in charge; the filtered tax id index, which {@link UserSchemaInitializer}
+     * only adds to the home shard, is checked on every start.
+     */
+    @Bean
+    public SmartInitializingSingleton shardInitializer(EntityManagerFactory entityManagerFactory,
+                                                       ShardRoutingDataSource routingDataSource,
+                                                       UserDirectory directory) {
+        return () -> {
+            SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+            UserDirectoryListener listener = new UserDirectoryListener(directory, routingDataSource);
+            EventListenerRegistry listeners = sessionFactory.getEventListenerRegistry();
+            listeners.appendListeners(EventType.POST_INSERT, listener);
+            listeners.appendListeners(EventType.POST_UPDATE, listener);
+            listeners.appendListeners(EventType.POST_DELETE, listener);
+
+            for (int shard = 0; shard < routingDataSource.getShardCount(); shard++) {
+                if (shard == ShardRoutingDataSource.HOME_SHARD) continue;
+                if (!hasUsers(routingDataSource, shard)) {
+                    log.info("Creating the schema on shard {}", shard);
+                    ShardContext.runOn(shard, () -> sessionFactory.getSchemaManager().exportMappedObjects(true));
+                }
+                UserSchemaInitializer.TAX_ID_INDEX.ensure(routingDataSource.getShard(shard));
+            }
+        };
+    }
+
+    private static boolean hasUsers(ShardRoutingDataSource routingDataSource, int shard) {
+        try {
+            return routingDataSource.hasTable(shard, "usuarios");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Shard " + shard + " is not reachable", e);
+        }
+    }
+}
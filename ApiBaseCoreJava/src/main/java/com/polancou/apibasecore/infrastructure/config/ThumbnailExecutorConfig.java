@@ -0,0 +1,35 @@
+package com.polancou.apibasecore.infrastructure.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ThumbnailExecutorConfig {
+
+    /**
+     * Bounded pool for image decoding. Decoding is CPU and memory heavy, so both the number of
+     * workers and the backlog are capped; submissions beyond the queue are rejected rather than
+     * piling up heap. Always platform threads, also in virtual-thread mode: the work is CPU-bound
+     * and would only occupy carrier threads that request handling needs.
+     */
+    @Bean(name = "thumbnailExecutor", destroyMethod = "shutdown")
+    public ExecutorService thumbnailExecutor(@Value("${avatars.thumbnails.threads:2}") int threads,
+                                             @Value("${avatars.thumbnails.queue-capacity:100}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
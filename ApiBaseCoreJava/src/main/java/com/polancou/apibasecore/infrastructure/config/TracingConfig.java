@@ -0,0 +1,25 @@
+package com.polancou.apibasecore.infrastructure.config;
+
+import com.polancou.apibasecore.infrastructure.tracing.JsonLinesSpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Local span export. Every {@code SpanExporter} bean is added to the tracer's batch processor,
+ * next to the OTLP exporter when {@code management.opentelemetry.tracing.export.otlp.endpoint}
+ * is set.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "tracing.export.file")
+    public JsonLinesSpanExporter jsonLinesSpanExporter(@Value("${tracing.export.file}") String file) throws IOException {
+        return new JsonLinesSpanExporter(Path.of(file));
+    }
+}
@@ -0,0 +1,18 @@
+package com.polancou.apibasecore.infrastructure.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Async appender that, once its queue is nearly full, drops only TRACE and DEBUG events.
+ * Logback's stock appender also drops INFO at that point, which loses the request and job
+ * summaries; INFO and above here still wait for space instead.
+ */
+public class DebugDiscardingAsyncAppender extends AsyncAppender {
+
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        return event.getLevel().toInt() <= Level.DEBUG_INT;
+    }
+}
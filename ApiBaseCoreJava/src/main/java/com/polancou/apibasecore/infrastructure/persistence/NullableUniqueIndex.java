@@ -0,0 +1,46 @@
+package com.polancou.apibasecore.infrastructure.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Unique index over a nullable column that lets any number of rows leave it NULL. SQL Server
+ * treats NULLs as equal in a unique index, so there it has to be filtered on
+ * {@code column is not null}; JPA's {@code @Index} cannot express that, hence the plain JDBC.
+ * Other databases already keep NULLs apart and get a regular unique index.
+ */
+public record NullableUniqueIndex(String name, String table, String column) {
+
+    private static final Logger log = LoggerFactory.getLogger(NullableUniqueIndex.class);
+
+    /**
+     * Creates the index if missing. On SQL Server an unfiltered index left by an earlier version
+     * is replaced by the filtered one.
+     */
+    public void ensure(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String product = jdbcTemplate.execute((Connection connection) -> connection.getMetaData().getDatabaseProductName());
+        if (product == null || !product.startsWith("Microsoft SQL Server")) {
+            jdbcTemplate.execute("create unique index if not exists " + name + " on " + table + " (" + column + ")");
+            return;
+        }
+
+        List<Boolean> filtered = jdbcTemplate.queryForList(
+                "select has_filter from sys.indexes where name = ? and object_id = object_id(?)",
+                Boolean.class, name, table);
+        if (!filtered.isEmpty() && Boolean.TRUE.equals(filtered.get(0))) {
+            return;
+        }
+        if (!filtered.isEmpty()) {
+            log.info("Replacing unique index {} with one that allows several NULL {}", name, column);
+            jdbcTemplate.execute("drop index " + name + " on " + table);
+        }
+        jdbcTemplate.execute("create unique index " + name + " on " + table + " (" + column + ") where "
+                + column + " is not null");
+    }
+}
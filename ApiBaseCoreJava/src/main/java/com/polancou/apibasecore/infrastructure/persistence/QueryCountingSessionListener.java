@@ -0,0 +1,34 @@
+package com.polancou.apibasecore.infrastructure.persistence;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Adds each JDBC statement or batch a Hibernate session executes to the thread's
+ * {@link QueryStats}. Registered for every session through
+ * {@code hibernate.session.events.auto}, so Hibernate creates one instance per session.
+ */
+public class QueryCountingSessionListener implements SessionEventListener {
+
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        QueryStats.record(System.nanoTime() - statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        QueryStats.record(System.nanoTime() - batchStart);
+    }
+}
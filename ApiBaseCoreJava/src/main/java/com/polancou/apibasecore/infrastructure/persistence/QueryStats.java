@@ -0,0 +1,62 @@
+package com.polancou.apibasecore.infrastructure.persistence;
+
+/**
+ * JDBC statements executed and time spent in them on the current thread, between
+ * {@link #begin()} and {@link #end()}. Filled in by {@link QueryCountingSessionListener}; a
+ * thread that never called {@code begin()} is not counted.
+ */
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private int queries;
+    private long nanos;
+
+    private QueryStats() {
+    }
+
+    /**
+     * Starts counting on this thread, replacing any earlier scope that was not ended.
+     */
+    public static QueryStats begin() {
+        QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Stops counting on this thread and returns what was recorded since {@link #begin()}.
+     */
+    public static QueryStats end() {
+        QueryStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats != null ? stats : new QueryStats();
+    }
+
+    /**
+     * The scope open on this thread, or null.
+     */
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    static void record(long elapsedNanos) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.queries++;
+            stats.nanos += elapsedNanos;
+        }
+    }
+
+    public int getQueries() {
+        return queries;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getMillis() {
+        return nanos / 1_000_000;
+    }
+}
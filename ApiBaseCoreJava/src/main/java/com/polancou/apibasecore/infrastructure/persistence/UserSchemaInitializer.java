@@ -0,0 +1,31 @@
+package com.polancou.apibasecore.infrastructure.persistence;
+
+import com.polancou.apibasecore.application.utilities.UserUniqueConstraints;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Adds the parts of the Usuarios schema {@code ddl-auto} cannot generate. Runs once every
+ * singleton is up, so Hibernate has already created or updated the table.
+ */
+@Component
+public class UserSchemaInitializer implements SmartInitializingSingleton {
+
+    // Many users have no tax id; declared here instead of on Usuario so it can be filtered.
+    // Physical names, as produced by the snake-case naming strategy
+    public static final NullableUniqueIndex TAX_ID_INDEX =
+            new NullableUniqueIndex(UserUniqueConstraints.TAX_ID_INDEX, "usuarios", "tax_id");
+
+    private final DataSource dataSource;
+
+    public UserSchemaInitializer(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TAX_ID_INDEX.ensure(dataSource);
+    }
+}
@@ -2,8 +2,22 @@ package com.polancou.apibasecore.infrastructure.repositories;
 
 import com.polancou.apibasecore.domain.models.Address;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
 @Repository
 public interface AddressRepository extends JpaRepository<Address, Integer> {
+
+    @Query("select a from Address a where a.usuario.id in :userIds")
+    List<Address> findByUsuarioIds(@Param("userIds") Collection<UUID> userIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Address a where a.usuario.id in :userIds")
+    int deleteByUsuarioIds(@Param("userIds") Collection<UUID> userIds);
 }
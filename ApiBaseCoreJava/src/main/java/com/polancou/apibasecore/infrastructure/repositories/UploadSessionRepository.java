@@ -0,0 +1,67 @@
+package com.polancou.apibasecore.infrastructure.repositories;
+
+import com.polancou.apibasecore.domain.models.UploadChunk;
+import com.polancou.apibasecore.domain.models.UploadSession;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    @Query("select s from UploadSession s where s.id = :id and s.usuario.id = :userId")
+    Optional<UploadSession> findByIdAndUsuarioId(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    @Query("select count(s) from UploadSession s where s.usuario.id = :userId and s.expiresAt > :now")
+    long countActiveByUsuarioId(@Param("userId") UUID userId, @Param("now") LocalDateTime now);
+
+    @Query("select c from UploadChunk c where c.session.id = :sessionId and c.chunkOffset = :offset")
+    Optional<UploadChunk> findChunk(@Param("sessionId") UUID sessionId, @Param("offset") long offset);
+
+    @Query("select c.fileUrl from UploadChunk c where c.session.id = :sessionId order by c.chunkOffset")
+    List<String> findChunkUrls(@Param("sessionId") UUID sessionId);
+
+    // Chunk files of every open session, so the avatar GC does not sweep uploads in progress
+    @Query("select c.fileUrl from UploadChunk c")
+    List<String> findAllChunkUrls();
+
+    @Query("select s.id from UploadSession s where s.expiresAt <= :now")
+    List<UUID> findExpiredIds(@Param("now") LocalDateTime now, Limit limit);
+
+    /**
+     * Advances the session only if nobody else appended since {@code expectedOffset} was read.
+     * Returns 0 when another chunk won the race.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update UploadSession s set s.receivedBytes = :newOffset " +
+           "where s.id = :id and s.receivedBytes = :expectedOffset and s.expiresAt > :now")
+    int advance(@Param("id") UUID id,
+                @Param("expectedOffset") long expectedOffset,
+                @Param("newOffset") long newOffset,
+                @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from UploadChunk c where c.session.id in :ids")
+    int deleteChunksBySessionIds(@Param("ids") Collection<UUID> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from UploadSession s where s.id in :ids")
+    int deleteByIds(@Param("ids") Collection<UUID> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from UploadChunk c where c.session.id in (select s.id from UploadSession s where s.usuario.id in :userIds)")
+    int deleteChunksByUsuarioIds(@Param("userIds") Collection<UUID> userIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from UploadSession s where s.usuario.id in :userIds")
+    int deleteByUsuarioIds(@Param("userIds") Collection<UUID> userIds);
+}
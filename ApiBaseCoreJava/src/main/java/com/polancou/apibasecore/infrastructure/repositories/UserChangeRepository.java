@@ -0,0 +1,36 @@
+package com.polancou.apibasecore.infrastructure.repositories;
+
+import com.polancou.apibasecore.domain.models.UserChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+    @Query("select max(c.id) from UserChange c")
+    Long findMaxId();
+
+    /**
+     * Changes past the watermark, oldest first.
+     */
+    @Query("select c from UserChange c where c.id > :after order by c.id")
+    List<UserChange> findAfter(@Param("after") long after, Limit limit);
+
+    // Ids that were skipped because their transaction had not committed yet
+    @Query("select c from UserChange c where c.id in :ids")
+    List<UserChange> findByIds(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserChange c where c.changedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
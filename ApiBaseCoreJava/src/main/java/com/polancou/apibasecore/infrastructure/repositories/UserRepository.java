@@ -1,15 +1,24 @@
 package com.polancou.apibasecore.infrastructure.repositories;
 
+import com.polancou.apibasecore.domain.enums.RolUsuario;
 import com.polancou.apibasecore.domain.models.Usuario;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface UserRepository extends JpaRepository<Usuario, UUID>, JpaSpecificationExecutor<Usuario> {
+public interface UserRepository extends JpaRepository<Usuario, UUID>, JpaSpecificationExecutor<Usuario>, UserRepositoryCustom {
     
     Optional<Usuario> findByEmail(String email);
     
@@ -19,7 +28,114 @@ public interface UserRepository extends JpaRepository<Usuario, UUID>, JpaSpecifi
     
     Optional<Usuario> findByTaxId(String taxId);
     
+    /**
+     * Users that already hold the given email or tax id, fetched in one round trip.
+     * A null argument never matches. At most two rows come back since both keys are unique.
+     */
+    @Query("select u.id as id, u.email as email, u.taxId as taxId from Usuario u where u.email = :email or u.taxId = :taxId")
+    List<UniqueKeyMatch> findUniqueKeyMatches(@Param("email") String email, @Param("taxId") String taxId);
+
     Optional<Usuario> findByEmailVerificationToken(String token);
     
     Optional<Usuario> findByPasswordResetToken(String token);
+
+    Optional<Usuario> findByRefreshToken(String refreshToken);
+
+    @Query("select u.email from Usuario u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("select u.taxId from Usuario u where u.taxId in :taxIds")
+    List<String> findExistingTaxIds(@Param("taxIds") Collection<String> taxIds);
+
+    @Query("select count(u) from Usuario u where u.id in :ids")
+    long countByIds(@Param("ids") Collection<UUID> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Usuario u set u.rol = :rol, u.rowVersion = u.rowVersion + 1 where u.id in :ids")
+    int updateRolByIds(@Param("rol") RolUsuario rol, @Param("ids") Collection<UUID> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Usuario u set u.refreshToken = null, u.refreshTokenExpiryTime = null, u.rowVersion = u.rowVersion + 1 where u.id in :ids")
+    int clearRefreshTokensByIds(@Param("ids") Collection<UUID> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from UserLogin l where l.usuario.id in :ids")
+    int deleteLoginsByUsuarioIds(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Attaches avatar variants only while the user still has {@code avatarUrl}, so variants of a
+     * superseded upload are never stored. Returns 0 when the avatar changed in the meantime.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Usuario u set u.avatarUrl64 = :url64, u.avatarUrl128 = :url128, u.avatarUrl512 = :url512, "
+            + "u.rowVersion = u.rowVersion + 1 where u.id = :id and u.avatarUrl = :avatarUrl")
+    int updateAvatarVariants(@Param("id") UUID id, @Param("avatarUrl") String avatarUrl,
+                             @Param("url64") String url64, @Param("url128") String url128, @Param("url512") String url512);
+
+    interface ExternalAvatarState {
+        String getAvatarUrl();
+        String getAvatarUrl64();
+        String getAvatarUrl128();
+        String getAvatarUrl512();
+        String getExternalAvatarUrl();
+        String getExternalAvatarEtag();
+        String getExternalAvatarLastModified();
+        LocalDateTime getExternalAvatarCheckedAt();
+    }
+
+    @Query("select u.avatarUrl as avatarUrl, u.avatarUrl64 as avatarUrl64, u.avatarUrl128 as avatarUrl128, "
+            + "u.avatarUrl512 as avatarUrl512, u.externalAvatarUrl as externalAvatarUrl, "
+            + "u.externalAvatarEtag as externalAvatarEtag, u.externalAvatarLastModified as externalAvatarLastModified, "
+            + "u.externalAvatarCheckedAt as externalAvatarCheckedAt from Usuario u where u.id = :id")
+    Optional<ExternalAvatarState> findExternalAvatarState(@Param("id") UUID id);
+
+    /**
+     * Swaps the avatar to a mirrored copy of the provider picture, only if neither the picture
+     * nor the avatar changed since {@code expectedAvatarUrl} was read. Returns 0 otherwise.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Usuario u set u.avatarUrl = :newAvatarUrl, u.avatarUrl64 = null, u.avatarUrl128 = null, "
+            + "u.avatarUrl512 = null, u.externalAvatarEtag = :etag, u.externalAvatarLastModified = :lastModified, "
+            + "u.externalAvatarCheckedAt = :checkedAt, u.rowVersion = u.rowVersion + 1 "
+            + "where u.id = :id and u.externalAvatarUrl = :pictureUrl and u.avatarUrl = :expectedAvatarUrl")
+    int swapMirroredAvatar(@Param("id") UUID id, @Param("pictureUrl") String pictureUrl,
+                           @Param("expectedAvatarUrl") String expectedAvatarUrl, @Param("newAvatarUrl") String newAvatarUrl,
+                           @Param("etag") String etag, @Param("lastModified") String lastModified,
+                           @Param("checkedAt") LocalDateTime checkedAt);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Usuario u set u.externalAvatarEtag = :etag, u.externalAvatarLastModified = :lastModified, "
+            + "u.externalAvatarCheckedAt = :checkedAt where u.id = :id and u.externalAvatarUrl = :pictureUrl")
+    int markExternalAvatarChecked(@Param("id") UUID id, @Param("pictureUrl") String pictureUrl,
+                                  @Param("etag") String etag, @Param("lastModified") String lastModified,
+                                  @Param("checkedAt") LocalDateTime checkedAt);
+
+    /**
+     * Keyset page of the avatar columns, ordered by id and strictly after {@code after}
+     * (or from the start when null). Used by the orphaned-file sweep.
+     */
+    @Query("select u.id as id, u.avatarUrl as avatarUrl, u.avatarUrl64 as avatarUrl64, u.avatarUrl128 as avatarUrl128, "
+            + "u.avatarUrl512 as avatarUrl512 from Usuario u where (:after is null or u.id > :after) order by u.id")
+    List<AvatarReferences> findAvatarReferencesAfter(@Param("after") UUID after, Limit limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Usuario u where u.id in :ids")
+    int deleteByIds(@Param("ids") Collection<UUID> ids);
+
+    interface AvatarReferences {
+        UUID getId();
+        String getAvatarUrl();
+        String getAvatarUrl64();
+        String getAvatarUrl128();
+        String getAvatarUrl512();
+    }
+
+    interface UniqueKeyMatch {
+        UUID getId();
+        String getEmail();
+        String getTaxId();
+    }
 }
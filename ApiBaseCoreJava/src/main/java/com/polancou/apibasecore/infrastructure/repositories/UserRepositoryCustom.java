@@ -0,0 +1,25 @@
+package com.polancou.apibasecore.infrastructure.repositories;
+
+import com.polancou.apibasecore.domain.models.Usuario;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Selects only the given {@code Usuario} attributes instead of whole entities.
+     * Each row is keyed by attribute name.
+     */
+    List<Map<String, Object>> findProjected(Specification<Usuario> spec, Sort sort, Collection<String> attributes);
+
+    /**
+     * Keyset page of ids matching {@code spec}, ordered by id and strictly after {@code after}
+     * (or from the start when null).
+     */
+    List<UUID> findIdsAfter(Specification<Usuario> spec, UUID after, int limit);
+}
@@ -9,6 +9,36 @@ import org.springframework.data.jpa.domain.Specification;
 
 public class UserSpecification {
 
+    private static final java.util.Set<String> TEXT_ATTRIBUTES = java.util.Set.of("name", "email", "phone", "tax_id");
+    private static final java.util.Set<String> TEXT_OPS = java.util.Set.of("co", "eq", "sw", "ew");
+
+    /**
+     * True when {@link #filterBy(String)} would produce a real predicate. Unsupported filters
+     * degrade to "match everything", which is fine for listing but not for bulk writes.
+     */
+    public static boolean isSupportedFilter(String filterString) {
+        if (filterString == null || filterString.isBlank()) {
+            return false;
+        }
+        String[] parts = filterString.split("[ +]");
+        if (parts.length < 3) {
+            return false;
+        }
+        String attribute = parts[0].toLowerCase().trim();
+        String op = parts[1].toLowerCase().trim();
+
+        if ("id".equals(attribute)) {
+            if (!"eq".equals(op)) return false;
+            try {
+                java.util.UUID.fromString(parts[2]);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return TEXT_ATTRIBUTES.contains(attribute) && TEXT_OPS.contains(op);
+    }
+
     public static Specification<Usuario> filterBy(String filterString) {
         return (Root<Usuario> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> {
             if (filterString == null || filterString.isBlank()) {
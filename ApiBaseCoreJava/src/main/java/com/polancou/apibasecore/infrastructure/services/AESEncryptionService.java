@@ -8,7 +8,9 @@ import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 
 @Service
 public class AESEncryptionService implements IEncryptionService {
@@ -47,6 +49,34 @@ public class AESEncryptionService implements IEncryptionService {
         }
     }
 
+    /**
+     * Encrypts a batch with a single initialized cipher; {@code doFinal} leaves the
+     * cipher ready for the next message with the same key and IV.
+     */
+    @Override
+    public List<String> encryptAll(List<String> plainTexts) {
+        List<String> result = new ArrayList<>(plainTexts.size());
+        try {
+            SecretKeySpec secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "AES");
+            IvParameterSpec ivSpec = new IvParameterSpec(iv.getBytes(StandardCharsets.UTF_8));
+
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivSpec);
+
+            Base64.Encoder encoder = Base64.getEncoder();
+            for (String plainText : plainTexts) {
+                if (plainText == null || plainText.isEmpty()) {
+                    result.add(plainText);
+                    continue;
+                }
+                result.add(encoder.encodeToString(cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8))));
+            }
+            return result;
+        } catch (Exception e) {
+            throw new RuntimeException("Error occurred during encryption", e);
+        }
+    }
+
     @Override
     public String decrypt(String cipherText) {
         if (cipherText == null || cipherText.isEmpty()) {
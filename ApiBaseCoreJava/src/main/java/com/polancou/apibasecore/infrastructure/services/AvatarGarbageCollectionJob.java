@@ -0,0 +1,136 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.infrastructure.repositories.UploadSessionRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mark-and-sweep for avatar files that no user points at any more (rolled-back uploads, deleted
+ * users, lost ref counts). Mark walks the avatar columns in keyset pages; sweep walks the store
+ * and deletes unmarked files older than the grace period.
+ */
+@Component
+public class AvatarGarbageCollectionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(AvatarGarbageCollectionJob.class);
+
+    private final UserRepository userRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final SweepableFileStore fileStore;
+    private final boolean enabled;
+    private final int pageSize;
+    private final Duration gracePeriod;
+
+    // Cumulative since start-up
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong filesReclaimed = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+
+    public AvatarGarbageCollectionJob(UserRepository userRepository,
+                                      UploadSessionRepository uploadSessionRepository,
+                                      SweepableFileStore fileStore,
+                                      @Value("${avatars.gc.enabled:true}") boolean enabled,
+                                      @Value("${avatars.gc.page-size:1000}") int pageSize,
+                                      @Value("${avatars.gc.grace-period:PT24H}") Duration gracePeriod) {
+        this.userRepository = userRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.fileStore = fileStore;
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.gracePeriod = gracePeriod;
+    }
+
+    @Scheduled(initialDelayString = "${avatars.gc.initial-delay-ms:600000}",
+               fixedDelayString = "${avatars.gc.interval-ms:21600000}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        // Taken before marking: anything touched after this may reference rows we did not see
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        long started = System.nanoTime();
+        try {
+            long[] marked = mark();
+            SweepResult result = fileStore.sweepOrphans(
+                    name -> Arrays.binarySearch(marked, fingerprint(name)) >= 0, cutoff);
+
+            runs.incrementAndGet();
+            filesReclaimed.addAndGet(result.getFiles());
+            bytesReclaimed.addAndGet(result.getBytes());
+            log.info("Avatar GC: {} referenced files, reclaimed {} files / {} bytes in {} ms (total {} bytes)",
+                    marked.length, result.getFiles(), result.getBytes(),
+                    (System.nanoTime() - started) / 1_000_000, bytesReclaimed.get());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Avatar GC run failed", e);
+        }
+    }
+
+    /**
+     * Fingerprints of every file name referenced by a user or an open upload session, sorted for binary search. Eight bytes
+     * per reference instead of the full name keeps this small; a collision can only make a file
+     * look referenced, never the other way round.
+     */
+    private long[] mark() {
+        long[] marked = new long[1024];
+        int size = 0;
+        UUID after = null;
+        while (true) {
+            List<UserRepository.AvatarReferences> page = userRepository.findAvatarReferencesAfter(after, Limit.of(pageSize));
+            for (UserRepository.AvatarReferences references : page) {
+                for (String url : new String[] {references.getAvatarUrl(), references.getAvatarUrl64(),
+                        references.getAvatarUrl128(), references.getAvatarUrl512()}) {
+                    if (url == null || url.isBlank()) continue;
+                    if (size == marked.length) marked = Arrays.copyOf(marked, size * 2);
+                    marked[size++] = fingerprint(url.substring(url.lastIndexOf('/') + 1));
+                }
+                after = references.getId();
+            }
+            if (page.size() < pageSize) break;
+        }
+        // Chunks of resumable uploads still in progress; only sessions opened before the private
+        // chunk store have theirs in the avatar store, other keys simply match nothing
+        for (String url : uploadSessionRepository.findAllChunkUrls()) {
+            if (size == marked.length) marked = Arrays.copyOf(marked, size * 2);
+            marked[size++] = fingerprint(url.substring(url.lastIndexOf('/') + 1));
+        }
+        long[] result = Arrays.copyOf(marked, size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // 64-bit FNV-1a over the UTF-8 name
+    static long fingerprint(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public long getRuns() {
+        return runs.get();
+    }
+
+    public long getFilesReclaimed() {
+        return filesReclaimed.get();
+    }
+
+    public long getBytesReclaimed() {
+        return bytesReclaimed.get();
+    }
+}
@@ -0,0 +1,277 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.application.interfaces.IAvatarMirrorService;
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import com.polancou.apibasecore.application.interfaces.IThumbnailService;
+import com.polancou.apibasecore.application.services.ProfileService;
+import com.polancou.apibasecore.application.utilities.ValidatingImageInputStream;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Copies provider pictures (Google {@code picture}) into the avatar store so clients never
+ * render from a third party. Downloads run on a bounded pool; a picture that was mirrored before
+ * is revalidated with If-None-Match / If-Modified-Since, so an unchanged picture costs one 304.
+ * The avatar column is swapped with a conditional update: an own upload or a newer picture
+ * that lands meanwhile always wins over the download. Redirects are followed by hand, so every
+ * hop has to pass the same host allow-list as the original URL.
+ */
+@Service
+public class AvatarMirrorService implements IAvatarMirrorService {
+
+    private static final Logger log = LoggerFactory.getLogger(AvatarMirrorService.class);
+    private static final int MAX_REDIRECTS = 5;
+
+    private final UserRepository userRepository;
+    private final IFileStorageService fileStorageService;
+    private final IThumbnailService thumbnailService;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final Duration revalidateAfter;
+    private final List<String> allowedHosts;
+    private final boolean allowInsecure;
+
+    // One download per user at a time; repeated logins while one is queued are dropped
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    public AvatarMirrorService(UserRepository userRepository,
+                               IFileStorageService fileStorageService,
+                               IThumbnailService thumbnailService,
+                               @Qualifier("avatarMirrorExecutor") ExecutorService executor,
+                               @Value("${avatars.mirror.connect-timeout:PT5S}") Duration connectTimeout,
+                               @Value("${avatars.mirror.request-timeout:PT10S}") Duration requestTimeout,
+                               @Value("${avatars.mirror.revalidate-after:P7D}") Duration revalidateAfter,
+                               @Value("${avatars.mirror.allowed-hosts:googleusercontent.com}") List<String> allowedHosts,
+                               @Value("${avatars.mirror.allow-insecure:false}") boolean allowInsecure) {
+        this(userRepository, fileStorageService, thumbnailService, executor,
+                HttpClient.newBuilder()
+                        .connectTimeout(connectTimeout)
+                        .followRedirects(HttpClient.Redirect.NEVER)
+                        .build(),
+                requestTimeout, revalidateAfter, allowedHosts, allowInsecure);
+    }
+
+    AvatarMirrorService(UserRepository userRepository,
+                        IFileStorageService fileStorageService,
+                        IThumbnailService thumbnailService,
+                        ExecutorService executor,
+                        HttpClient httpClient,
+                        Duration requestTimeout,
+                        Duration revalidateAfter,
+                        List<String> allowedHosts,
+                        boolean allowInsecure) {
+        this.userRepository = userRepository;
+        this.fileStorageService = fileStorageService;
+        this.thumbnailService = thumbnailService;
+        this.executor = executor;
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+        this.revalidateAfter = revalidateAfter;
+        this.allowedHosts = allowedHosts.stream().map(host -> host.trim().toLowerCase(Locale.ROOT)).toList();
+        this.allowInsecure = allowInsecure;
+    }
+
+    @Override
+    public void scheduleMirror(UUID userId, String pictureUrl) {
+        if (!inFlight.add(userId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    mirror(userId, pictureUrl);
+                } finally {
+                    inFlight.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The provider URL keeps working; the next login retries
+            inFlight.remove(userId);
+            log.warn("Avatar mirror queue full, skipping user {}", userId);
+        }
+    }
+
+    void mirror(UUID userId, String pictureUrl) {
+        UserRepository.ExternalAvatarState state = userRepository.findExternalAvatarState(userId).orElse(null);
+        if (state == null || !pictureUrl.equals(state.getExternalAvatarUrl())) {
+            // Own upload or a newer picture since this was queued
+            return;
+        }
+        boolean mirrored = isStored(state.getAvatarUrl());
+        LocalDateTime now = LocalDateTime.now(ZoneId.of("UTC"));
+        if (mirrored && state.getExternalAvatarCheckedAt() != null
+                && state.getExternalAvatarCheckedAt().isAfter(now.minus(revalidateAfter))) {
+            return;
+        }
+
+        URI uri;
+        try {
+            uri = URI.create(pictureUrl);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed avatar URL for user {}", userId);
+            return;
+        }
+        if (!isAllowed(uri)) {
+            log.warn("Avatar host not allowed for mirroring: {}", uri.getHost());
+            return;
+        }
+
+        String newUrl = null;
+        try {
+            HttpResponse<InputStream> response = fetch(uri,
+                    mirrored ? state.getExternalAvatarEtag() : null,
+                    mirrored ? state.getExternalAvatarLastModified() : null);
+            if (response == null) {
+                return;
+            }
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+
+            try (InputStream body = response.body()) {
+                if (response.statusCode() == 304) {
+                    userRepository.markExternalAvatarChecked(userId, pictureUrl,
+                            etag != null ? etag : state.getExternalAvatarEtag(),
+                            lastModified != null ? lastModified : state.getExternalAvatarLastModified(), now);
+                    return;
+                }
+                if (response.statusCode() != 200) {
+                    log.warn("Avatar download for user {} returned HTTP {}", userId, response.statusCode());
+                    return;
+                }
+                String extension = extensionFor(response.headers().firstValue("Content-Type").orElse(""));
+                if (extension == null) {
+                    log.warn("Avatar download for user {} is not a JPEG or PNG", userId);
+                    return;
+                }
+                // Same checks as an upload, applied while the body streams into the store
+                try (InputStream image = new ValidatingImageInputStream(body, extension, ProfileService.MAX_AVATAR_BYTES)) {
+                    newUrl = fileStorageService.saveFile(image, "avatar" + extension);
+                }
+            }
+
+            try (InputStream stored = fileStorageService.openFile(newUrl.substring(newUrl.lastIndexOf('/') + 1))) {
+                thumbnailService.verifyDimensions(stored);
+            }
+
+            if (newUrl.equals(state.getAvatarUrl())) {
+                // Same bytes under new validators: drop the extra reference, keep the variants
+                fileStorageService.deleteFile(newUrl);
+                newUrl = null;
+                userRepository.markExternalAvatarChecked(userId, pictureUrl, etag, lastModified, now);
+                return;
+            }
+
+            if (userRepository.swapMirroredAvatar(userId, pictureUrl, state.getAvatarUrl(), newUrl, etag, lastModified, now) == 0) {
+                fileStorageService.deleteFile(newUrl);
+                return;
+            }
+
+            List<String> previous = new ArrayList<>(4);
+            if (mirrored) previous.add(state.getAvatarUrl());
+            previous.add(state.getAvatarUrl64());
+            previous.add(state.getAvatarUrl128());
+            previous.add(state.getAvatarUrl512());
+            previous.forEach(fileStorageService::deleteFile);
+
+            thumbnailService.scheduleVariants(userId, newUrl);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (newUrl != null) fileStorageService.deleteFile(newUrl);
+        } catch (IOException | RuntimeException e) {
+            if (newUrl != null) fileStorageService.deleteFile(newUrl);
+            log.warn("Could not mirror avatar for user {} from {}", userId, uri.getHost(), e);
+        }
+    }
+
+    // Null when a redirect leads somewhere it must not go, or goes on for too long
+    private HttpResponse<InputStream> fetch(URI uri, String ifNoneMatch, String ifModifiedSince)
+            throws IOException, InterruptedException {
+        URI current = uri;
+        for (int redirects = 0; ; redirects++) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(current)
+                    .timeout(requestTimeout)
+                    .header("Accept", "image/jpeg, image/png")
+                    .GET();
+            if (ifNoneMatch != null) {
+                request.header("If-None-Match", ifNoneMatch);
+            }
+            if (ifModifiedSince != null) {
+                request.header("If-Modified-Since", ifModifiedSince);
+            }
+            HttpResponse<InputStream> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            if (!isRedirect(response.statusCode())) {
+                return response;
+            }
+            response.body().close();
+
+            String location = response.headers().firstValue("Location").orElse(null);
+            if (location == null || redirects == MAX_REDIRECTS) {
+                log.warn("Avatar download from {} did not settle after {} redirects", uri.getHost(), redirects);
+                return null;
+            }
+            URI next;
+            try {
+                next = current.resolve(location);
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring malformed avatar redirect from {}", current.getHost());
+                return null;
+            }
+            if (!isAllowed(next)) {
+                log.warn("Avatar redirect to a host not allowed for mirroring: {}", next.getHost());
+                return null;
+            }
+            current = next;
+        }
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    private boolean isAllowed(URI uri) {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("https") && !(allowInsecure && scheme.equals("http"))) {
+            return false;
+        }
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+        for (String allowed : allowedHosts) {
+            if (host.equals(allowed) || host.endsWith("." + allowed)) return true;
+        }
+        return false;
+    }
+
+    // Avatar URLs served by this API are relative; provider pictures are absolute
+    private static boolean isStored(String avatarUrl) {
+        return avatarUrl != null && avatarUrl.startsWith("/");
+    }
+
+    private static String extensionFor(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("image/jpeg") || type.startsWith("image/jpg")) return ".jpg";
+        if (type.startsWith("image/png")) return ".png";
+        return null;
+    }
+}
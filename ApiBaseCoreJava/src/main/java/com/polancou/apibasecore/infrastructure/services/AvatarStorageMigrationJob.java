@@ -0,0 +1,59 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Moves avatars from the old flat folder into the sharded layout in small batches, one batch per
+ * tick, so the migration never competes with uploads for disk I/O. Safe to stop at any time:
+ * the next start simply continues with whatever is still flat.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "local", matchIfMissing = true)
+public class AvatarStorageMigrationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(AvatarStorageMigrationJob.class);
+
+    private final FileStorageService fileStorageService;
+    private final boolean enabled;
+    private final int batchSize;
+
+    // New files are always written sharded, so once the flat folder is empty it stays empty
+    private volatile boolean finished;
+    private long totalMoved;
+
+    public AvatarStorageMigrationJob(FileStorageService fileStorageService,
+                                     @Value("${avatars.migration.enabled:true}") boolean enabled,
+                                     @Value("${avatars.migration.batch-size:200}") int batchSize) {
+        this.fileStorageService = fileStorageService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${avatars.migration.initial-delay-ms:30000}",
+               fixedDelayString = "${avatars.migration.interval-ms:5000}")
+    public void migrateBatch() {
+        if (!enabled || finished) {
+            return;
+        }
+        try {
+            int moved = fileStorageService.migrateFlatFiles(batchSize);
+            totalMoved += moved;
+            if (moved == 0) {
+                finished = true;
+                log.info("Avatar shard migration complete, {} files moved", totalMoved);
+            } else {
+                log.debug("Avatar shard migration moved {} files ({} total)", moved, totalMoved);
+            }
+        } catch (IOException e) {
+            // Retried on the next tick
+            log.warn("Avatar shard migration batch failed", e);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.application.dtos.StoredFileInfo;
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Byte-bounded LRU cache of hot avatar files in front of the configured store. A small set of
+ * avatars takes most reads; those are kept in direct buffers (off the Java heap, so a large
+ * cache does not grow GC pauses) and served without touching the disk or the object store.
+ * <p>
+ * Entries are dropped on {@code saveFile}/{@code deleteFile} of the same name and when the GC
+ * sweep finds a name unreferenced. Cached files are reported without a local path, so the
+ * avatar controller writes them from memory instead of handing the file to sendfile.
+ */
+@Service
+@Primary
+public class CachingFileStorageService implements IFileStorageService, SweepableFileStore {
+
+    private final IFileStorageService backend;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Access-ordered: iteration starts at the least recently used entry. Guarded by "this".
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+    // Bumped on every invalidation; a load that raced with one is not inserted
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingFileStorageService(@Qualifier("fileStorageBackend") IFileStorageService backend,
+                                     @Value("${avatars.cache.max-bytes:67108864}") long maxBytes,
+                                     @Value("${avatars.cache.max-entry-bytes:1048576}") long maxEntryBytes) {
+        this.backend = backend;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    private record Entry(StoredFileInfo info, ByteBuffer data) {
+    }
+
+    @Override
+    public String saveFile(InputStream fileStream, String fileName) throws IOException {
+        String url = backend.saveFile(fileStream, fileName);
+        invalidate(nameOf(url));
+        return url;
+    }
+
+    @Override
+    public void deleteFile(String fileRoute) {
+        backend.deleteFile(fileRoute);
+        if (fileRoute != null && !fileRoute.isEmpty()) {
+            invalidate(nameOf(fileRoute));
+        }
+    }
+
+    @Override
+    public StoredFileInfo getFileInfo(String fileName) throws IOException {
+        Entry entry = lookup(fileName, true);
+        if (entry != null) {
+            return entry.info();
+        }
+        StoredFileInfo info = backend.getFileInfo(fileName);
+        if (info == null || info.getSize() > maxEntryBytes) {
+            return info;
+        }
+        Entry loaded = load(fileName, info);
+        return loaded != null ? loaded.info() : info;
+    }
+
+    @Override
+    public InputStream openFile(String fileName) throws IOException {
+        Entry entry = lookup(fileName, true);
+        return entry != null ? new BufferInputStream(entry.data().duplicate()) : backend.openFile(fileName);
+    }
+
+    @Override
+    public long transferTo(String fileName, long position, long count, WritableByteChannel target) throws IOException {
+        // Not counted: it follows a getFileInfo for the same request
+        Entry entry = lookup(fileName, false);
+        if (entry == null) {
+            return backend.transferTo(fileName, position, count, target);
+        }
+        ByteBuffer data = entry.data();
+        if (position >= data.capacity()) {
+            return 0;
+        }
+        // Independent position/limit per request over the shared bytes
+        ByteBuffer slice = data.duplicate();
+        slice.position((int) position).limit((int) Math.min(data.capacity(), position + count));
+        long written = 0;
+        while (slice.hasRemaining()) {
+            written += target.write(slice);
+        }
+        return written;
+    }
+
+    @Override
+    public SweepResult sweepOrphans(Predicate<String> isReferenced, Instant cutoff) throws IOException {
+        if (!(backend instanceof SweepableFileStore sweepable)) {
+            return new SweepResult();
+        }
+        // Whatever the sweep considers unreferenced may be deleted: drop it from the cache too
+        return sweepable.sweepOrphans(name -> {
+            boolean referenced = isReferenced.test(name);
+            if (!referenced) invalidate(name);
+            return referenced;
+        }, cutoff);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized int getCachedFiles() {
+        return entries.size();
+    }
+
+    private Entry lookup(String fileName, boolean count) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(fileName);
+        }
+        if (count) {
+            (entry != null ? hits : misses).incrementAndGet();
+        }
+        return entry;
+    }
+
+    // Reads the whole file into a direct buffer and inserts it; null if it raced with an invalidation
+    private Entry load(String fileName, StoredFileInfo info) throws IOException {
+        long startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+
+        ByteBuffer data = ByteBuffer.allocateDirect((int) info.getSize());
+        try (InputStream in = backend.openFile(fileName)) {
+            byte[] chunk = new byte[(int) Math.min(64 * 1024, Math.max(1, info.getSize()))];
+            int read;
+            while (data.hasRemaining() && (read = in.read(chunk, 0, Math.min(chunk.length, data.remaining()))) != -1) {
+                data.put(chunk, 0, read);
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (data.hasRemaining()) {
+            // Shorter than its metadata said; do not cache a partial file
+            return null;
+        }
+        data.flip();
+
+        Entry entry = new Entry(new StoredFileInfo(info.getName(), info.getContentType(), info.getSize(),
+                info.getLastModified(), info.getEtag(), null), data.asReadOnlyBuffer());
+        synchronized (this) {
+            if (generation != startGeneration) {
+                return null;
+            }
+            Entry previous = entries.put(fileName, entry);
+            if (previous != null) {
+                cachedBytes -= previous.data().capacity();
+            }
+            cachedBytes += data.capacity();
+            evictToFit();
+        }
+        return entry;
+    }
+
+    private void evictToFit() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getValue().data().capacity();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private synchronized void invalidate(String fileName) {
+        generation++;
+        Entry removed = entries.remove(fileName);
+        if (removed != null) {
+            cachedBytes -= removed.data().capacity();
+        }
+    }
+
+    private static String nameOf(String fileRoute) {
+        return Paths.get(fileRoute).getFileName().toString();
+    }
+
+    /** Reads a buffer without copying it onto the heap first. */
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
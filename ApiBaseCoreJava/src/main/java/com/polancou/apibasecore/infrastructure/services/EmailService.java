@@ -1,6 +1,8 @@
 package com.polancou.apibasecore.infrastructure.services;
 
 import com.polancou.apibasecore.application.interfaces.IEmailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -8,27 +10,23 @@ import java.math.BigDecimal;
 @Service
 public class EmailService implements IEmailService {
 
+    private static final Logger log = LoggerFactory.getLogger(EmailService.class);
+
     @Override
     public void sendVerificationEmail(String toEmail, String userName, String verificationLink) {
-        System.out.println("----- Mock Email Service -----");
-        System.out.println("To: " + toEmail);
-        System.out.println("Subject: Verify your email");
-        System.out.println("Body: Hello " + userName + ", please verify your email: " + verificationLink);
+        log.info("Mock email to {}: Verify your email. Hello {}, please verify your email: {}",
+                toEmail, userName, verificationLink);
     }
 
     @Override
     public void sendPasswordResetEmail(String toEmail, String userName, String resetLink) {
-        System.out.println("----- Mock Email Service -----");
-        System.out.println("To: " + toEmail);
-        System.out.println("Subject: Reset your password");
-        System.out.println("Body: Hello " + userName + ", click here to reset password: " + resetLink);
+        log.info("Mock email to {}: Reset your password. Hello {}, click here to reset password: {}",
+                toEmail, userName, resetLink);
     }
 
     @Override
     public void sendOrderConfirmationEmail(String toEmail, String userName, int orderId, BigDecimal totalAmount) {
-        System.out.println("----- Mock Email Service -----");
-        System.out.println("To: " + toEmail);
-        System.out.println("Subject: Order Confirmation #" + orderId);
-        System.out.println("Body: Hello " + userName + ", your order of $" + totalAmount + " is confirmed.");
+        log.info("Mock email to {}: Order Confirmation #{}. Hello {}, your order of ${} is confirmed.",
+                toEmail, orderId, userName, totalAmount);
     }
 }
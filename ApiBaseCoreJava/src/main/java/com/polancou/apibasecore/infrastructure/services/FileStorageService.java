@@ -1,94 +1,518 @@
 package com.polancou.apibasecore.infrastructure.services;
 
+import com.polancou.apibasecore.application.dtos.StoredFileInfo;
 import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import com.polancou.apibasecore.application.interfaces.IUploadChunkStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
-@Service
-public class FileStorageService implements IFileStorageService {
+/**
+ * Content-addressed avatar store. Uploads are streamed into a temp file while hashed, then
+ * moved atomically to {@code {sha256}.{ext}}, so a crash never leaves a torn avatar and
+ * identical images are kept once. A {@code .ref} sidecar counts the users pointing at a blob.
+ * <p>
+ * Blobs live in two levels of hash-prefix directories ({@code avatars/ab/cd/{name}}) while URLs
+ * stay flat ({@code /uploads/avatars/{name}}). Files from the old flat layout are still found
+ * until {@link #migrateFlatFiles} has moved them.
+ * <p>
+ * Chunks of resumable uploads are staged in {@code {uploadDir}/chunks}, outside the avatars
+ * folder, so nothing a client sent is reachable through an avatar URL before it is validated.
+ */
+@Service("fileStorageBackend")
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "local", matchIfMissing = true)
+public class FileStorageService implements IFileStorageService, IUploadChunkStore, SweepableFileStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileStorageService.class);
 
-    private final Path fileStorageLocation;
     private static final String CONTAINER_NAME = "uploads/avatars";
+    private static final String REF_SUFFIX = ".ref";
+    private static final String REF_TEMP_PREFIX = "ref-";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Ref counts are read-modify-write; stripe the locks by content hash
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path fileStorageLocation;
+    private final Path avatarsLocation;
+    private final Path tempLocation;
+    private final Path chunksLocation;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
 
     public FileStorageService(@Value("${file.upload-dir:./uploads}") String uploadDir) {
         // Base upload dir, then subfolder
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.avatarsLocation = this.fileStorageLocation.resolve("avatars");
+        // Same file system as the avatars folder so the final move can be atomic
+        this.tempLocation = this.avatarsLocation.resolve(".tmp");
+        this.chunksLocation = this.fileStorageLocation.resolve("chunks");
 
         try {
-            Files.createDirectories(this.fileStorageLocation.resolve("avatars"));
+            Files.createDirectories(this.tempLocation);
+            Files.createDirectories(this.chunksLocation);
         } catch (Exception ex) {
             throw new RuntimeException("Could not create the directory where the uploaded files will be stored.", ex);
         }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
     }
 
     @Override
     public String saveFile(InputStream inputStream, String fileName) throws IOException {
         String cleanFileName = StringUtils.cleanPath(fileName);
-        
+
         // Check if filename contains invalid characters
         if(cleanFileName.contains("..")) {
             throw new RuntimeException("Sorry! Filename contains invalid path sequence " + cleanFileName);
         }
 
-        // Target location: {uploadDir}/avatars/{fileName}
-        Path targetLocation = this.fileStorageLocation.resolve("avatars").resolve(cleanFileName);
-        
-        Files.copy(inputStream, targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        Path tempFile = Files.createTempFile(tempLocation, "upload-", ".part");
+        try {
+            String storedName;
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                storedName = writeAndHash(inputStream, channel) + extensionOf(cleanFileName);
 
-        // Return relative URL matching C# logic: /uploads/avatars/filename
-        return "/" + CONTAINER_NAME + "/" + cleanFileName;
+                ReentrantLock lock = lockFor(storedName);
+                lock.lock();
+                try {
+                    Path existing = locate(storedName);
+                    if (existing != null) {
+                        // Same bytes already stored; just take another reference
+                        writeRefCount(existing, readRefCount(existing) + 1);
+                    } else {
+                        // Only blobs that get published pay for the fsync, on the channel that wrote them;
+                        // the move happens after close so it also works where open files cannot be renamed
+                        channel.force(false);
+                        channel.close();
+                        Path targetLocation = shardedPath(storedName);
+                        Files.createDirectories(targetLocation.getParent());
+                        moveAtomically(tempFile, targetLocation);
+                        writeRefCount(targetLocation, 1);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            // Return relative URL matching C# logic: /uploads/avatars/filename
+            return "/" + CONTAINER_NAME + "/" + storedName;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
     }
 
     @Override
     public void deleteFile(String fileRoute) {
         if (fileRoute == null || fileRoute.isBlank()) return;
 
-        // Convert relative URL to path
-        // url: /uploads/avatars/abc.jpg
-        // remove leading / and 'uploads/' part if we mapped it weirdly, 
-        // but simple logic: we know it is in 'avatars' folder inside our storage root if it follows convention.
-        // However, C# logic joined WebRoot + relativePath.
-        // Here we have `fileStorageLocation` which is `{root}/uploads`.
-        // And requested fileRoute is `/uploads/avatars/file.jpg`.
-        
-        String cleanRoute = fileRoute.replace("/", java.io.File.separator);
-        if (cleanRoute.startsWith(java.io.File.separator)) cleanRoute = cleanRoute.substring(1);
-        
-        // cleanRoute is "uploads/avatars/file.jpg"
-        // storageLocation is ".../uploads"
-        
-        // Resolving: we need to be careful.
-        // If fileRoute contains "uploads/avatars", we should construct path relative to parent of storageLocation?
-        // Or simpler: just extract filename if we know structure?
-        // Let's replicate C# logic: LocalFileStorageService uses WebRootPath + relativeRoute.
-        // Here we defined `fileStorageLocation` as base. 
-        // Let's assume `file.upload-dir` is the root where `uploads` folder sits? 
-        // defaulted to `./uploads`. 
-        // logic: `this.fileStorageLocation` = `./uploads`.
-        // `CONTAINER_NAME` = `uploads/avatars`. 
-        // Wait, if container is `uploads/avatars`, then `fileStorageLocation` should probably be just `./`.
-        // C# : WebRootPath + "uploads/avatars" + fileName.
-        
-        // Let's just implement robustly:
-        // Identify filename from route.
-        Path filePath; 
-        // We know we store in `fileStorageLocation/avatars/`.
+        // url: /uploads/avatars/abc.jpg -> {uploadDir}/avatars/{shard}/abc.jpg
         String fileName = Paths.get(fileRoute).getFileName().toString();
-        filePath = this.fileStorageLocation.resolve("avatars").resolve(fileName);
 
+        ReentrantLock lock = lockFor(fileName);
+        lock.lock();
         try {
+            Path filePath = locate(fileName);
+            if (filePath == null) return;
+
+            // Files stored before content addressing have no sidecar and count as one reference
+            int references = readRefCount(filePath);
+            if (references > 1) {
+                writeRefCount(filePath, references - 1);
+                return;
+            }
             Files.deleteIfExists(filePath);
+            Files.deleteIfExists(refPath(filePath));
+        } catch (IOException e) {
+            log.warn("Could not delete file {}: {}", fileName, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public StoredFileInfo getFileInfo(String fileName) throws IOException {
+        Path filePath = resolveServable(fileName);
+        if (filePath == null) {
+            return null;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String baseName = stripExtension(fileName);
+        // Content-addressed names are their own validator; legacy names fall back to size + mtime
+        String etag = isSha256Hex(baseName)
+                ? baseName
+                : Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified);
+        return new StoredFileInfo(fileName, contentTypeOf(fileName), attributes.size(), lastModified, etag, filePath);
+    }
+
+    @Override
+    public InputStream openFile(String fileName) throws IOException {
+        Path filePath = resolveServable(fileName);
+        if (filePath == null) {
+            throw new NoSuchFileException(fileName);
+        }
+        return Files.newInputStream(filePath);
+    }
+
+    @Override
+    public long transferTo(String fileName, long position, long count, WritableByteChannel target) throws IOException {
+        Path filePath = resolveServable(fileName);
+        if (filePath == null) {
+            throw new NoSuchFileException(fileName);
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long written = 0;
+            while (written < count) {
+                long transferred = channel.transferTo(position + written, count - written, target);
+                if (transferred <= 0) break;
+                written += transferred;
+            }
+            return written;
+        }
+    }
+
+    @Override
+    public String saveChunk(InputStream content) throws IOException {
+        String key = UUID.randomUUID() + ".part";
+        Files.copy(content, chunksLocation.resolve(key));
+        return key;
+    }
+
+    @Override
+    public InputStream openChunk(String key) throws IOException {
+        return Files.newInputStream(chunkPath(key));
+    }
+
+    @Override
+    public void deleteChunk(String key) {
+        try {
+            Files.deleteIfExists(chunkPath(key));
         } catch (IOException e) {
-            // Log?
-            System.err.println("Could not delete file: " + filePath + " " + e.getMessage());
+            log.warn("Could not delete upload chunk {}: {}", key, e.getMessage());
+        }
+    }
+
+    // Keys are only ever the names saveChunk hands out
+    private Path chunkPath(String key) throws NoSuchFileException {
+        try {
+            UUID.fromString(stripExtension(key));
+        } catch (IllegalArgumentException e) {
+            throw new NoSuchFileException(key);
+        }
+        return chunksLocation.resolve(key);
+    }
+
+    /**
+     * Moves up to {@code maxFiles} blobs (with their sidecars) from the flat avatars folder into
+     * their shard directories. Each move holds the blob's stripe lock, so it is safe while the
+     * store is serving traffic. Returns how many files were moved; 0 means nothing is left.
+     * Resumable by construction: whatever is still flat is what remains to be done.
+     */
+    public int migrateFlatFiles(int maxFiles) throws IOException {
+        int moved = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(avatarsLocation, Files::isRegularFile)) {
+            for (Path entry : entries) {
+                if (moved >= maxFiles) break;
+                String name = entry.getFileName().toString();
+                if (name.startsWith(".")) continue;
+
+                String blobName = name.endsWith(REF_SUFFIX) ? name.substring(0, name.length() - REF_SUFFIX.length()) : name;
+                // Sidecars travel with their blob; only orphaned ones are moved on their own
+                if (!blobName.equals(name) && Files.exists(avatarsLocation.resolve(blobName))) continue;
+
+                ReentrantLock lock = lockFor(blobName);
+                lock.lock();
+                try {
+                    if (migrate(blobName)) moved++;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        return moved;
+    }
+
+    // Caller holds the stripe lock for blobName
+    private boolean migrate(String blobName) throws IOException {
+        Path flat = avatarsLocation.resolve(blobName);
+        Path flatRef = refPath(flat);
+        Path sharded = shardedPath(blobName);
+        Files.createDirectories(sharded.getParent());
+
+        if (Files.exists(flat)) {
+            if (Files.exists(sharded)) {
+                // Same content landed in both layouts; merge the references into the sharded copy
+                writeRefCount(sharded, readRefCount(sharded) + readRefCount(flat));
+                Files.deleteIfExists(flat);
+                Files.deleteIfExists(flatRef);
+                return true;
+            }
+            // Blob first: if we crash before the sidecar follows, it is left as an orphan that
+            // the next run picks up through the branch below
+            moveAtomically(flat, sharded);
+            if (Files.exists(flatRef)) {
+                moveAtomically(flatRef, refPath(sharded));
+            }
+            return true;
+        }
+        if (Files.exists(flatRef)) {
+            Path shardedRef = refPath(sharded);
+            if (!Files.exists(sharded)) {
+                // The blob was released after the crash; there is nothing left to count
+                Files.deleteIfExists(flatRef);
+            } else if (Files.exists(shardedRef)) {
+                // References taken since the crash started from the blob's implicit one; merge
+                // them with the orphaned count instead of overwriting either
+                writeRefCount(sharded, readRefCount(flat) + readRefCount(sharded) - 1);
+                Files.deleteIfExists(flatRef);
+            } else {
+                moveAtomically(flatRef, shardedRef);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Deletes every blob that {@code isReferenced} rejects and that has not been written or had its
+     * ref count touched since {@code cutoff}, along with its sidecar. Stale upload temp files and
+     * chunks of abandoned upload sessions are removed too. The grace period covers uploads whose
+     * database row is not committed yet.
+     */
+    @Override
+    public SweepResult sweepOrphans(Predicate<String> isReferenced, Instant cutoff) throws IOException {
+        SweepResult result = new SweepResult();
+        // Sessions expire well within the grace period, so an older chunk has no session left
+        try (DirectoryStream<Path> chunks = Files.newDirectoryStream(chunksLocation)) {
+            for (Path chunk : chunks) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(chunk, BasicFileAttributes.class);
+                    if (attributes.lastModifiedTime().toInstant().isBefore(cutoff) && Files.deleteIfExists(chunk)) {
+                        result.add(attributes.size());
+                    }
+                } catch (NoSuchFileException e) {
+                    // Deleted with its session meanwhile
+                }
+            }
+        }
+        Files.walkFileTree(avatarsLocation, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                String name = file.getFileName().toString();
+                if (file.getParent().equals(tempLocation)) {
+                    // Ref-count scratch files are reused under their stripe lock, never abandoned
+                    if (!name.startsWith(REF_TEMP_PREFIX) && attributes.lastModifiedTime().toInstant().isBefore(cutoff) && Files.deleteIfExists(file)) {
+                        result.add(attributes.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                String blobName = name.endsWith(REF_SUFFIX) ? name.substring(0, name.length() - REF_SUFFIX.length()) : name;
+                // Sidecars are handled with their blob; only orphaned ones are looked at here
+                if (!blobName.equals(name) && Files.exists(file.resolveSibling(blobName))) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (isReferenced.test(blobName)) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                ReentrantLock lock = lockFor(blobName);
+                lock.lock();
+                try {
+                    // Re-checked under the lock: an upload may have just taken a reference
+                    Path blob = file.resolveSibling(blobName);
+                    if (lastTouched(blob).isBefore(cutoff)) {
+                        long size = Files.exists(blob) ? Files.size(blob) : 0;
+                        if (Files.deleteIfExists(blob)) result.add(size);
+                        Files.deleteIfExists(refPath(blob));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Deleted concurrently; nothing to reclaim
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    // Newest of the blob and its sidecar: a dedup hit rewrites only the sidecar
+    private static Instant lastTouched(Path blob) throws IOException {
+        Instant touched = Instant.EPOCH;
+        for (Path path : new Path[] {blob, refPath(blob)}) {
+            try {
+                Instant modified = Files.getLastModifiedTime(path).toInstant();
+                if (modified.isAfter(touched)) touched = modified;
+            } catch (NoSuchFileException e) {
+                // Missing half of the pair
+            }
+        }
+        return touched;
+    }
+
+    // Only plain blob names are servable: no paths, temp dir or sidecars. Null when missing.
+    private Path resolveServable(String fileName) {
+        if (fileName == null || fileName.isEmpty() || fileName.startsWith(".")
+                || fileName.indexOf('/') >= 0 || fileName.indexOf('\\') >= 0
+                || fileName.endsWith(REF_SUFFIX)) {
+            return null;
+        }
+        return locate(fileName);
+    }
+
+    /** Current location of a blob: the sharded path, else the legacy flat one, else null. */
+    private Path locate(String storedName) {
+        Path sharded = shardedPath(storedName);
+        if (Files.exists(sharded)) return sharded;
+        Path flat = avatarsLocation.resolve(storedName);
+        if (Files.isRegularFile(flat)) return flat;
+        // A migration may have moved it between the two checks
+        return Files.exists(sharded) ? sharded : null;
+    }
+
+    /**
+     * {@code avatars/ab/cd/{name}}. Content-addressed names are already uniform hex, so their own
+     * prefix is used; legacy names are hashed first so they spread just as evenly.
+     */
+    private Path shardedPath(String storedName) {
+        String baseName = stripExtension(storedName);
+        String prefix = isSha256Hex(baseName)
+                ? baseName
+                : HexFormat.of().formatHex(sha256().digest(storedName.getBytes(StandardCharsets.UTF_8)));
+        return avatarsLocation.resolve(prefix.substring(0, 2)).resolve(prefix.substring(2, 4)).resolve(storedName);
+    }
+
+    private static String stripExtension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    private static boolean isSha256Hex(String value) {
+        if (value.length() != 64) return false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return false;
+        }
+        return true;
+    }
+
+    private static String contentTypeOf(String fileName) {
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
+        if (lower.endsWith(".png")) return "image/png";
+        return "application/octet-stream";
+    }
+
+    // Copies the stream into the channel, hashing the same buffer that is written
+    private static String writeAndHash(InputStream inputStream, FileChannel channel) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            byteBuffer.clear().limit(read);
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private int readRefCount(Path blob) throws IOException {
+        try {
+            return Integer.parseInt(Files.readString(refPath(blob), StandardCharsets.US_ASCII).trim());
+        } catch (NoSuchFileException | NumberFormatException e) {
+            return Files.exists(blob) ? 1 : 0;
+        }
+    }
+
+    // Caller holds the stripe lock for the blob, which makes the stripe's temp name private to it
+    private void writeRefCount(Path blob, int count) throws IOException {
+        // Write-then-rename so a crash leaves either the old or the new count
+        Path temp = tempLocation.resolve(REF_TEMP_PREFIX + Math.floorMod(blob.getFileName().toString().hashCode(), LOCK_STRIPES) + ".part");
+        Files.writeString(temp, Integer.toString(count), StandardCharsets.US_ASCII);
+        moveAtomically(temp, refPath(blob));
+    }
+
+    // The sidecar always sits next to its blob, in whichever layout the blob is
+    private static Path refPath(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + REF_SUFFIX);
+    }
+
+    private ReentrantLock lockFor(String storedName) {
+        return locks[Math.floorMod(storedName.hashCode(), LOCK_STRIPES)];
+    }
+
+    // Keeps only a short alphanumeric extension; anything else is dropped from the stored name
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1 || fileName.length() - dot > 6) {
+            return "";
+        }
+        String extension = fileName.substring(dot + 1).toLowerCase();
+        for (int i = 0; i < extension.length(); i++) {
+            if (!Character.isLetterOrDigit(extension.charAt(i))) return "";
+        }
+        return "." + extension;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
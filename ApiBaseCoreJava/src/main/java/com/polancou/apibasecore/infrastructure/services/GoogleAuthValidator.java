@@ -6,6 +6,8 @@ import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
 import com.polancou.apibasecore.application.dtos.ExternalAuthUserInfo;
 import com.polancou.apibasecore.application.interfaces.IExternalAuthValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -16,18 +18,21 @@ import java.util.Collections;
 @Service
 public class GoogleAuthValidator implements IExternalAuthValidator {
 
+    private static final Logger log = LoggerFactory.getLogger(GoogleAuthValidator.class);
+
     @Value("${authentication.google.client-id}")
     private String clientId;
 
+    // Shared so Google's signing keys are fetched once and cached, not on every login
+    private volatile GoogleIdTokenVerifier verifier;
+
     @Override
     public ExternalAuthUserInfo validateToken(String idToken) {
         if (clientId == null || clientId.isBlank()) {
             throw new RuntimeException("Google Client ID not configured.");
         }
 
-        GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(new NetHttpTransport(), new GsonFactory())
-                .setAudience(Collections.singletonList(clientId))
-                .build();
+        GoogleIdTokenVerifier verifier = verifier();
 
         try {
             GoogleIdToken googleIdToken = verifier.verify(idToken);
@@ -43,10 +48,21 @@ public class GoogleAuthValidator implements IExternalAuthValidator {
                 return userInfo;
             }
         } catch (GeneralSecurityException | IOException e) {
-            // Log error
-            System.err.println("Invalid Google Token: " + e.getMessage());
+            log.warn("Invalid Google token: {}", e.getMessage());
         }
 
         return null;
     }
+
+    private GoogleIdTokenVerifier verifier() {
+        GoogleIdTokenVerifier current = verifier;
+        if (current == null) {
+            // Built at most a few times on a race; harmless, all instances are equivalent
+            current = new GoogleIdTokenVerifier.Builder(new NetHttpTransport(), new GsonFactory())
+                    .setAudience(Collections.singletonList(clientId))
+                    .build();
+            verifier = current;
+        }
+        return current;
+    }
 }
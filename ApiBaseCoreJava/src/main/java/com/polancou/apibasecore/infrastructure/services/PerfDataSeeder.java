@@ -0,0 +1,94 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.application.interfaces.IEncryptionService;
+import com.polancou.apibasecore.domain.enums.RolUsuario;
+import com.polancou.apibasecore.domain.models.Address;
+import com.polancou.apibasecore.domain.models.Usuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills an empty database with synthetic users for load tests (the "perf" profile). User i gets
+ * the email {@code perf-user-<i, 7 digits>@perf.test} and the shared password
+ * {@code perf.seed.password}, which is what the load simulation logs in with. Runs before the
+ * application reports itself started, so the load test never sees a half-seeded table.
+ */
+@Component
+@ConditionalOnProperty(name = "perf.seed.users")
+public class PerfDataSeeder implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PerfDataSeeder.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] COUNTRIES = {"MX", "US", "ES", "AR", "CO"};
+
+    private final IEncryptionService encryptionService;
+    private final TransactionTemplate transactionTemplate;
+    private final int users;
+    private final int addressesPerUser;
+    private final String password;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public PerfDataSeeder(IEncryptionService encryptionService,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${perf.seed.users}") int users,
+                          @Value("${perf.seed.addresses-per-user:2}") int addressesPerUser,
+                          @Value("${perf.seed.password}") String password) {
+        this.encryptionService = encryptionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.users = users;
+        this.addressesPerUser = addressesPerUser;
+        this.password = password;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Long existing = transactionTemplate.execute(status ->
+                entityManager.createQuery("select count(u) from Usuario u", Long.class).getSingleResult());
+        if (existing != null && existing > 0) {
+            log.info("Skipping perf seed, {} users already present", existing);
+            return;
+        }
+
+        // Same ciphertext for everyone: encrypting per user would dominate the seed time
+        String passwordHash = encryptionService.encrypt(password);
+        long start = System.nanoTime();
+        for (int from = 0; from < users; from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, users);
+            int batchStart = from;
+            transactionTemplate.executeWithoutResult(status -> insertBatch(batchStart, to, passwordHash));
+            if (to % 100_000 == 0 || to == users) {
+                log.info("Seeded {} of {} users", to, users);
+            }
+        }
+        long seconds = Math.max(1, (System.nanoTime() - start) / 1_000_000_000L);
+        log.info("Perf seed finished: {} users with {} addresses each in {} s", users, addressesPerUser, seconds);
+    }
+
+    private void insertBatch(int from, int to, String passwordHash) {
+        for (int i = from; i < to; i++) {
+            String suffix = String.format("%07d", i);
+            Usuario usuario = new Usuario("Perf User " + suffix, "perf-user-" + suffix + "@perf.test",
+                    "55" + String.format("%08d", i), RolUsuario.User, "PERF" + suffix);
+            usuario.establecerPasswordHash(passwordHash);
+            usuario.markEmailAsVerified();
+            for (int a = 0; a < addressesPerUser; a++) {
+                usuario.addAddress(new Address("Dirección " + (a + 1), "Calle " + i + " #" + a, COUNTRIES[(i + a) % COUNTRIES.length]));
+            }
+            entityManager.persist(usuario);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
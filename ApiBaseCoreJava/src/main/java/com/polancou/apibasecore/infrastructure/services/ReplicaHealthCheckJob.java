@@ -0,0 +1,26 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.infrastructure.persistence.ReadWriteRoutingDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Probes the read replicas so one that failed is put back into rotation once it answers again.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+public class ReplicaHealthCheckJob {
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    public ReplicaHealthCheckJob(ReadWriteRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Scheduled(initialDelayString = "${datasource.replicas.health-check.initial-delay-ms:5000}",
+               fixedDelayString = "${datasource.replicas.health-check.interval-ms:5000}")
+    public void checkReplicas() {
+        routingDataSource.checkReplicas();
+    }
+}
@@ -0,0 +1,493 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.application.dtos.StoredFileInfo;
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import com.polancou.apibasecore.application.interfaces.IUploadChunkStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.MultipartUpload;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Avatar store on an S3-compatible bucket (AWS S3, MinIO, ...), selected with
+ * {@code file.storage.type=s3}. Keys are {@code {prefix}{sha256}.{ext}}, the same names the
+ * local store uses, so URLs do not change when switching backends.
+ * <p>
+ * Uploads are streamed one part at a time; at most one part is held in memory. Objects are
+ * shared by content and there is no atomic counter to track references across API nodes, so
+ * {@link #deleteFile} does not remove anything: unreferenced objects are reclaimed by the
+ * garbage collection sweep once they are older than its grace period. Storing bytes that are
+ * already there rewrites the object's metadata in place, which resets its LastModified, so an
+ * object that just gained a user is as safe from the sweep as one that was just uploaded.
+ * <p>
+ * Chunks of resumable uploads go under a separate {@code chunkPrefix} outside the avatar prefix,
+ * so a bucket policy or CDN that exposes the avatars does not expose unvalidated client bytes.
+ */
+@Service("fileStorageBackend")
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "s3")
+public class S3FileStorageService implements IFileStorageService, IUploadChunkStore, SweepableFileStore {
+
+    private static final Logger log = LoggerFactory.getLogger(S3FileStorageService.class);
+
+    private static final String CONTAINER_NAME = "uploads/avatars";
+    private static final String TEMP_PREFIX = ".tmp/";
+    // S3 rejects non-final multipart parts smaller than 5 MiB
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    private static final int DELETE_BATCH = 1000;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String prefix;
+    private final String chunkPrefix;
+    private final int partSize;
+
+    public S3FileStorageService(@Value("${file.storage.s3.bucket}") String bucket,
+                                @Value("${file.storage.s3.prefix:avatars/}") String prefix,
+                                @Value("${file.storage.s3.chunk-prefix:upload-chunks/}") String chunkPrefix,
+                                @Value("${file.storage.s3.endpoint:}") String endpoint,
+                                @Value("${file.storage.s3.region:us-east-1}") String region,
+                                @Value("${file.storage.s3.access-key:}") String accessKey,
+                                @Value("${file.storage.s3.secret-key:}") String secretKey,
+                                @Value("${file.storage.s3.path-style:false}") boolean pathStyle,
+                                @Value("${file.storage.s3.part-size:8388608}") int partSize) {
+        this(buildClient(endpoint, region, accessKey, secretKey, pathStyle), bucket, prefix, chunkPrefix, partSize);
+    }
+
+    public S3FileStorageService(S3Client s3, String bucket, String prefix, String chunkPrefix, int partSize) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.prefix = asDirectory(prefix);
+        this.chunkPrefix = asDirectory(chunkPrefix);
+        if (this.chunkPrefix.isEmpty() || this.chunkPrefix.startsWith(this.prefix) || this.prefix.startsWith(this.chunkPrefix)) {
+            throw new IllegalArgumentException("file.storage.s3.chunk-prefix must not overlap file.storage.s3.prefix");
+        }
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+    }
+
+    private static String asDirectory(String prefix) {
+        return prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    /**
+     * Builds a client from explicit settings. An endpoint override plus path-style access is what
+     * MinIO and most other S3 stand-ins need; without keys the default AWS credential chain is used.
+     */
+    public static S3Client buildClient(String endpoint, String region, String accessKey, String secretKey, boolean pathStyle) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build());
+        if (endpoint != null && !endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        if (accessKey != null && !accessKey.isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        } else {
+            builder.credentialsProvider(DefaultCredentialsProvider.create());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String saveFile(InputStream inputStream, String fileName) throws IOException {
+        String cleanFileName = StringUtils.cleanPath(fileName);
+
+        // Check if filename contains invalid characters
+        if(cleanFileName.contains("..")) {
+            throw new RuntimeException("Sorry! Filename contains invalid path sequence " + cleanFileName);
+        }
+        String extension = extensionOf(cleanFileName);
+        String contentType = contentTypeOf(extension);
+
+        MessageDigest digest = sha256();
+        byte[] part = new byte[partSize];
+        int length = inputStream.readNBytes(part, 0, part.length);
+        digest.update(part, 0, length);
+
+        String storedName;
+        if (length < part.length) {
+            // Fits in one part (every avatar does): the hash is known before anything is sent
+            storedName = HexFormat.of().formatHex(digest.digest()) + extension;
+            if (!exists(key(storedName))) {
+                s3.putObject(PutObjectRequest.builder().bucket(bucket).key(key(storedName)).contentType(contentType).build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(part, 0, length), length));
+            } else {
+                touch(key(storedName), contentType);
+            }
+        } else {
+            // Larger than a part: stream to a temp key, then copy server-side to the content address
+            String tempKey = prefix + TEMP_PREFIX + UUID.randomUUID();
+            uploadMultipart(tempKey, contentType, inputStream, part, length, digest);
+            try {
+                storedName = HexFormat.of().formatHex(digest.digest()) + extension;
+                if (!exists(key(storedName))) {
+                    s3.copyObject(CopyObjectRequest.builder()
+                            .sourceBucket(bucket).sourceKey(tempKey)
+                            .destinationBucket(bucket).destinationKey(key(storedName))
+                            .build());
+                } else {
+                    touch(key(storedName), contentType);
+                }
+            } finally {
+                s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(tempKey).build());
+            }
+        }
+
+        // Return relative URL matching C# logic: /uploads/avatars/filename
+        return "/" + CONTAINER_NAME + "/" + storedName;
+    }
+
+    private void uploadMultipart(String key, String contentType, InputStream inputStream,
+                                 byte[] part, int firstLength, MessageDigest digest) throws IOException {
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(key).contentType(contentType).build()).uploadId();
+        try {
+            List<CompletedPart> completed = new ArrayList<>();
+            int length = firstLength;
+            int partNumber = 1;
+            while (length > 0) {
+                String eTag = s3.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket).key(key).uploadId(uploadId)
+                                .partNumber(partNumber).contentLength((long) length).build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(part, 0, length), length)).eTag();
+                completed.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+                partNumber++;
+
+                length = inputStream.readNBytes(part, 0, part.length);
+                digest.update(part, 0, length);
+            }
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            // Unfinished parts are billed storage until aborted
+            s3.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucket).key(key).uploadId(uploadId).build());
+            throw e;
+        }
+    }
+
+    // Chunks are capped by uploads.max-chunk-size before they get here, so one fits in memory
+    @Override
+    public String saveChunk(InputStream content) throws IOException {
+        String key = UUID.randomUUID() + ".part";
+        byte[] bytes = content.readAllBytes();
+        s3.putObject(PutObjectRequest.builder().bucket(bucket).key(chunkKey(key)).build(), RequestBody.fromBytes(bytes));
+        return key;
+    }
+
+    @Override
+    public InputStream openChunk(String key) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(chunkKey(key)).build());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) throw new NoSuchFileException(key);
+            throw new IOException("Could not open upload chunk " + key, e);
+        }
+    }
+
+    @Override
+    public void deleteChunk(String key) {
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(chunkKey(key)).build());
+        } catch (NoSuchFileException e) {
+            // Not a chunk key; nothing of ours to delete
+        } catch (SdkException e) {
+            log.warn("Could not delete upload chunk {}: {}", key, e.getMessage());
+        }
+    }
+
+    // Keys are only ever the names saveChunk hands out
+    private String chunkKey(String key) throws NoSuchFileException {
+        try {
+            UUID.fromString(stripExtension(key));
+        } catch (IllegalArgumentException e) {
+            throw new NoSuchFileException(key);
+        }
+        return chunkPrefix + key;
+    }
+
+    @Override
+    public void deleteFile(String fileRoute) {
+        // Intentionally a no-op, see the class comment. Other users may share the object and
+        // there is no cross-node ref count; AvatarGarbageCollectionJob reclaims it instead.
+    }
+
+    @Override
+    public StoredFileInfo getFileInfo(String fileName) throws IOException {
+        if (!isServable(fileName)) {
+            return null;
+        }
+        HeadObjectResponse head;
+        try {
+            head = s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key(fileName)).build());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return null;
+            throw new IOException("Could not read object metadata for " + fileName, e);
+        }
+
+        String baseName = stripExtension(fileName);
+        String etag = isSha256Hex(baseName) ? baseName : head.eTag().replace("\"", "");
+        return new StoredFileInfo(fileName, contentTypeOf(extensionOf(fileName)), head.contentLength(),
+                head.lastModified().toEpochMilli(), etag, null);
+    }
+
+    @Override
+    public InputStream openFile(String fileName) throws IOException {
+        if (!isServable(fileName)) {
+            throw new NoSuchFileException(fileName);
+        }
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(key(fileName)).build());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) throw new NoSuchFileException(fileName);
+            throw new IOException("Could not open " + fileName, e);
+        }
+    }
+
+    @Override
+    public long transferTo(String fileName, long position, long count, WritableByteChannel target) throws IOException {
+        if (!isServable(fileName)) {
+            throw new NoSuchFileException(fileName);
+        }
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket).key(key(fileName))
+                .range("bytes=" + position + "-" + (position + count - 1))
+                .build();
+        try (ResponseInputStream<GetObjectResponse> in = s3.getObject(request)) {
+            OutputStream out = Channels.newOutputStream(target);
+            return in.transferTo(out);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) throw new NoSuchFileException(fileName);
+            throw new IOException("Could not read " + fileName, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The listing can be minutes old by the time a page is deleted, and a dedup hit may have
+     * touched an object since. Each candidate is therefore checked again right before its batch
+     * is deleted, which narrows the race to that final round trip.
+     */
+    @Override
+    public SweepResult sweepOrphans(Predicate<String> isReferenced, Instant cutoff) throws IOException {
+        SweepResult result = new SweepResult();
+        List<S3Object> batch = new ArrayList<>(DELETE_BATCH);
+
+        ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucket).prefix(prefix).build();
+        for (S3Object object : s3.listObjectsV2Paginator(request).contents()) {
+            if (!object.lastModified().isBefore(cutoff)) continue;
+            String name = object.key().substring(prefix.length());
+            // Temp keys of failed large uploads are never referenced
+            if (!name.startsWith(TEMP_PREFIX) && isReferenced.test(name)) continue;
+
+            batch.add(object);
+            if (batch.size() == DELETE_BATCH) {
+                deleteUntouched(batch, cutoff, result);
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleteUntouched(batch, cutoff, result);
+        }
+
+        // Sessions expire well within the grace period, so an older chunk has no session left
+        ListObjectsV2Request chunks = ListObjectsV2Request.builder().bucket(bucket).prefix(chunkPrefix).build();
+        for (S3Object object : s3.listObjectsV2Paginator(chunks).contents()) {
+            if (!object.lastModified().isBefore(cutoff)) continue;
+            batch.add(object);
+            if (batch.size() == DELETE_BATCH) {
+                deleteUntouched(batch, cutoff, result);
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleteUntouched(batch, cutoff, result);
+        }
+
+        // Multipart uploads abandoned by a crashed node
+        ListMultipartUploadsRequest uploads = ListMultipartUploadsRequest.builder().bucket(bucket).prefix(prefix + TEMP_PREFIX).build();
+        for (MultipartUpload upload : s3.listMultipartUploadsPaginator(uploads).uploads()) {
+            if (upload.initiated().isBefore(cutoff)) {
+                s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket).key(upload.key()).uploadId(upload.uploadId()).build());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Uploads a local file under {@code name} unless an object with that name already exists.
+     * Used by the local-to-object-store copy, which keeps the existing names so URLs stay valid.
+     * Returns true when the file was uploaded.
+     */
+    public boolean importFile(String name, Path file) throws IOException {
+        if (!isServable(name)) {
+            throw new IllegalArgumentException("Not a storable file name: " + name);
+        }
+        if (exists(key(name))) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            long size = Files.size(file);
+            s3.putObject(PutObjectRequest.builder().bucket(bucket).key(key(name)).contentType(contentTypeOf(extensionOf(name))).build(),
+                    RequestBody.fromInputStream(in, size));
+        }
+        return true;
+    }
+
+    // Deletes the candidates that are still older than the cutoff; the batch is emptied
+    private void deleteUntouched(List<S3Object> batch, Instant cutoff, SweepResult result) throws IOException {
+        List<ObjectIdentifier> stale = new ArrayList<>(batch.size());
+        for (S3Object object : batch) {
+            Instant lastModified = lastModified(object.key());
+            if (lastModified != null && lastModified.isBefore(cutoff)) {
+                stale.add(ObjectIdentifier.builder().key(object.key()).build());
+                result.add(object.size());
+            }
+        }
+        batch.clear();
+        if (stale.isEmpty()) {
+            return;
+        }
+        s3.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(bucket)
+                .delete(Delete.builder().objects(stale).quiet(true).build())
+                .build());
+    }
+
+    // Null once the object is gone
+    private Instant lastModified(String key) throws IOException {
+        try {
+            return s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build()).lastModified();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return null;
+            throw new IOException("Could not check " + key, e);
+        }
+    }
+
+    // S3 only lets an object be copied onto itself when its metadata is replaced; that is enough
+    // to give it a new LastModified without moving any bytes
+    private void touch(String key, String contentType) {
+        s3.copyObject(CopyObjectRequest.builder()
+                .sourceBucket(bucket).sourceKey(key)
+                .destinationBucket(bucket).destinationKey(key)
+                .metadataDirective(MetadataDirective.REPLACE)
+                .contentType(contentType)
+                .build());
+    }
+
+    private boolean exists(String key) throws IOException {
+        try {
+            s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return false;
+            throw new IOException("Could not check " + key, e);
+        }
+    }
+
+    private String key(String fileName) {
+        return prefix + Paths.get(fileName).getFileName();
+    }
+
+    // Same rule as the local store: plain names only, no temp objects
+    private static boolean isServable(String fileName) {
+        return fileName != null && !fileName.isEmpty() && !fileName.startsWith(".")
+                && fileName.indexOf('/') < 0 && fileName.indexOf('\\') < 0;
+    }
+
+    // Keeps only a short alphanumeric extension; anything else is dropped from the stored name
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1 || fileName.length() - dot > 6) {
+            return "";
+        }
+        String extension = fileName.substring(dot + 1).toLowerCase();
+        for (int i = 0; i < extension.length(); i++) {
+            if (!Character.isLetterOrDigit(extension.charAt(i))) return "";
+        }
+        return "." + extension;
+    }
+
+    private static String stripExtension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    private static boolean isSha256Hex(String value) {
+        if (value.length() != 64) return false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return false;
+        }
+        return true;
+    }
+
+    private static String contentTypeOf(String extension) {
+        String lower = extension.toLowerCase();
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
+        if (lower.endsWith(".png")) return "image/png";
+        return "application/octet-stream";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
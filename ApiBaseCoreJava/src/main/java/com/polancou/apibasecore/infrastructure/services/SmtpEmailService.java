@@ -1,9 +1,14 @@
 package com.polancou.apibasecore.infrastructure.services;
 
 import com.polancou.apibasecore.application.interfaces.IEmailService;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
@@ -14,11 +19,15 @@ import org.springframework.util.StreamUtils;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
 
 @Service
 @Primary
+@ConditionalOnProperty(name = "mail.transport", havingValue = "smtp", matchIfMissing = true)
 public class SmtpEmailService implements IEmailService {
 
+    private static final Logger log = LoggerFactory.getLogger(SmtpEmailService.class);
+
     private final JavaMailSender javaMailSender;
     private final ResourceLoader resourceLoader;
 
@@ -28,9 +37,20 @@ public class SmtpEmailService implements IEmailService {
     @Value("${spring.mail.properties.mail.from.name:ApiBaseCore}")
     private String fromName;
 
-    public SmtpEmailService(JavaMailSender javaMailSender, ResourceLoader resourceLoader) {
+    // JavaMail's SMTPTransport blocks inside synchronized methods, which pins a virtual thread to
+    // its carrier for the whole send. Capping concurrent sends keeps most carriers free. Platform
+    // threads are not pinned, so without virtual threads there is no cap (null).
+    private final Semaphore sendPermits;
+    private final ObservationRegistry observationRegistry;
+
+    public SmtpEmailService(JavaMailSender javaMailSender, ResourceLoader resourceLoader,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                            @Value("${mail.max-concurrent-sends:2}") int maxConcurrentSends,
+                            ObservationRegistry observationRegistry) {
         this.javaMailSender = javaMailSender;
         this.resourceLoader = resourceLoader;
+        this.sendPermits = virtualThreads && maxConcurrentSends > 0 ? new Semaphore(maxConcurrentSends) : null;
+        this.observationRegistry = observationRegistry;
     }
 
     @Override
@@ -75,8 +95,7 @@ public class SmtpEmailService implements IEmailService {
             Resource resource = resourceLoader.getResource("classpath:templates/email/" + templateName);
             return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
         } catch (IOException e) {
-            // Log error
-            System.err.println("Error loading email template: " + templateName + " - " + e.getMessage());
+            log.error("Error loading email template {}: {}", templateName, e.getMessage());
             return null;
         }
     }
@@ -92,10 +111,34 @@ public class SmtpEmailService implements IEmailService {
             helper.setSubject(subject);
             helper.setText(htmlBody, true); // true = isHtml
 
-            javaMailSender.send(message);
+            // Own span for the permit wait plus SMTP round trip; the event marks where the wait ended
+            Observation observation = Observation.createNotStarted("mail.send", observationRegistry)
+                    .contextualName("smtp send")
+                    .start();
+            try (Observation.Scope scope = observation.openScope()) {
+                if (sendPermits == null) {
+                    javaMailSender.send(message);
+                } else {
+                    sendPermits.acquire();
+                    observation.event(Observation.Event.of("mail.permit.acquired"));
+                    try {
+                        javaMailSender.send(message);
+                    } finally {
+                        sendPermits.release();
+                    }
+                }
+            } catch (RuntimeException | InterruptedException e) {
+                observation.error(e);
+                throw e;
+            } finally {
+                observation.stop();
+            }
         } catch (MessagingException e) {
-            System.err.println("Error sending email: " + e.getMessage());
+            log.error("Error sending email: {}", e.getMessage());
             throw new RuntimeException("Error sending email", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while sending email", e);
         }
     }
 }
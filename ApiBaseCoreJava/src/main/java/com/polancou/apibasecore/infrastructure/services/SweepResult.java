@@ -0,0 +1,20 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+/** What one orphan sweep removed from a file store. */
+public class SweepResult {
+    private long files;
+    private long bytes;
+
+    void add(long size) {
+        files++;
+        bytes += size;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,17 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.function.Predicate;
+
+/**
+ * File stores whose unreferenced blobs are reclaimed by {@link AvatarGarbageCollectionJob}.
+ */
+public interface SweepableFileStore {
+
+    /**
+     * Deletes every stored file whose name {@code isReferenced} rejects and that has not been
+     * touched since {@code cutoff}. Leftovers of interrupted uploads older than the cutoff go too.
+     */
+    SweepResult sweepOrphans(Predicate<String> isReferenced, Instant cutoff) throws IOException;
+}
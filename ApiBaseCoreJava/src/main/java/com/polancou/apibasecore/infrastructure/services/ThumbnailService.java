@@ -0,0 +1,220 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import com.polancou.apibasecore.application.interfaces.IThumbnailService;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Generates the 512/128/64 px avatar variants off the request thread. The original is decoded
+ * once, subsampled while decoding when it is much larger than needed, and each smaller variant
+ * is scaled from the previous one.
+ */
+@Service
+public class ThumbnailService implements IThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    // Largest first: each variant is scaled down from the one before it
+    private static final int[] SIZES = {512, 128, 64};
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final IFileStorageService fileStorageService;
+    private final UserRepository userRepository;
+    private final ExecutorService executor;
+    private final int maxSide;
+    private final long maxPixels;
+
+    public ThumbnailService(IFileStorageService fileStorageService,
+                            UserRepository userRepository,
+                            @Qualifier("thumbnailExecutor") ExecutorService executor,
+                            @Value("${avatars.max-side:8000}") int maxSide,
+                            @Value("${avatars.max-pixels:25000000}") long maxPixels) {
+        this.fileStorageService = fileStorageService;
+        this.userRepository = userRepository;
+        this.executor = executor;
+        this.maxSide = maxSide;
+        this.maxPixels = maxPixels;
+    }
+
+    @Override
+    public void verifyDimensions(InputStream imageStream) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(imageStream)) {
+            ImageReader reader = readerFor(input);
+            try {
+                checkDimensions(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    @Override
+    public void scheduleVariants(UUID userId, String avatarUrl) {
+        try {
+            executor.execute(() -> generateVariants(userId, avatarUrl));
+        } catch (RejectedExecutionException e) {
+            // Clients keep using the original until the next upload; not worth failing the request
+            log.warn("Thumbnail queue full, skipping variants for user {}", userId);
+        }
+    }
+
+    private void generateVariants(UUID userId, String avatarUrl) {
+        String fileName = avatarUrl.substring(avatarUrl.lastIndexOf('/') + 1);
+        boolean png = fileName.toLowerCase().endsWith(".png");
+        List<String> urls = new ArrayList<>(SIZES.length);
+        try {
+            BufferedImage image;
+            try (InputStream original = fileStorageService.openFile(fileName)) {
+                image = decode(original, SIZES[0]);
+            }
+            for (int size : SIZES) {
+                image = resize(image, size);
+                byte[] encoded = encode(image, png);
+                urls.add(fileStorageService.saveFile(new ByteArrayInputStream(encoded), "avatar-" + size + (png ? ".png" : ".jpg")));
+            }
+
+            // Only attach the variants if the user still has this avatar; a newer upload wins
+            int updated = userRepository.updateAvatarVariants(userId, avatarUrl, urls.get(2), urls.get(1), urls.get(0));
+            if (updated == 0) {
+                urls.forEach(fileStorageService::deleteFile);
+            }
+        } catch (Exception e) {
+            urls.forEach(fileStorageService::deleteFile);
+            log.warn("Could not generate avatar variants for user {} from {}", userId, avatarUrl, e);
+        }
+    }
+
+    /**
+     * Decodes the first image, reading the dimensions from the header first. Images far larger
+     * than {@code targetSide} are subsampled by the reader so the full raster is never built.
+     */
+    private BufferedImage decode(InputStream stream, int targetSide) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(stream)) {
+            ImageReader reader = readerFor(input);
+            try {
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                checkDimensions(width, height);
+
+                // Keep at least 2x the target so the final scale still has pixels to filter
+                int factor = Math.max(1, Math.max(width, height) / (targetSide * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private ImageReader readerFor(ImageInputStream input) {
+        if (input == null) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("No se pudo leer la imagen.");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("No se pudo leer la imagen.");
+        }
+        ImageReader reader = readers.next();
+        // seekForwardOnly + ignoreMetadata: the reader never buffers what it has already passed
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    private void checkDimensions(int width, int height) {
+        if (width <= 0 || height <= 0 || width > maxSide || height > maxSide || (long) width * height > maxPixels) {
+            throw new com.polancou.apibasecore.application.exceptions.ValidationException("La imagen excede las dimensiones permitidas.");
+        }
+    }
+
+    // Fits the longest side to maxSide, halving first so bilinear filtering does not alias
+    private static BufferedImage resize(BufferedImage source, int maxSide) {
+        BufferedImage current = source;
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        if (longest <= maxSide) {
+            return source;
+        }
+        while (longest / 2 >= maxSide) {
+            current = scale(current, Math.max(1, current.getWidth() / 2), Math.max(1, current.getHeight() / 2));
+            longest = Math.max(current.getWidth(), current.getHeight());
+        }
+        if (longest == maxSide) {
+            return current;
+        }
+        double ratio = (double) maxSide / longest;
+        return scale(current,
+                Math.max(1, (int) Math.round(current.getWidth() * ratio)),
+                Math.max(1, (int) Math.round(current.getHeight() * ratio)));
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encode(BufferedImage image, boolean png) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (png) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+
+        BufferedImage rgb = image;
+        if (image.getColorModel().hasAlpha()) {
+            // JPEG has no alpha channel
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rgb.createGraphics();
+            try {
+                graphics.drawImage(image, 0, 0, null);
+            } finally {
+                graphics.dispose();
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
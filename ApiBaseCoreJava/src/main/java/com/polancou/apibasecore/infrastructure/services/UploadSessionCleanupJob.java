@@ -0,0 +1,64 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.application.interfaces.IUploadSessionService;
+import com.polancou.apibasecore.infrastructure.sharding.ShardContext;
+import com.polancou.apibasecore.infrastructure.sharding.ShardRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops resumable upload sessions past their expiry together with their chunk files, in
+ * batches so a backlog of abandoned sessions never turns into one long transaction. With
+ * sharding on, each shard is purged in turn.
+ */
+@Component
+public class UploadSessionCleanupJob {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionCleanupJob.class);
+
+    private final IUploadSessionService uploadSessionService;
+    private final ObjectProvider<ShardRoutingDataSource> shards;
+    private final int batchSize;
+
+    public UploadSessionCleanupJob(IUploadSessionService uploadSessionService,
+                                   ObjectProvider<ShardRoutingDataSource> shards,
+                                   @Value("${uploads.cleanup.batch-size:100}") int batchSize) {
+        this.uploadSessionService = uploadSessionService;
+        this.shards = shards;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${uploads.cleanup.initial-delay-ms:60000}",
+               fixedDelayString = "${uploads.cleanup.interval-ms:300000}")
+    public void purgeExpired() {
+        ShardRoutingDataSource routing = shards.getIfAvailable();
+        if (routing == null) {
+            purgeShard();
+            return;
+        }
+        for (int shard = 0; shard < routing.getShardCount(); shard++) {
+            ShardContext.runOn(shard, this::purgeShard);
+        }
+    }
+
+    private void purgeShard() {
+        try {
+            int total = 0;
+            int removed;
+            do {
+                removed = uploadSessionService.purgeExpired(batchSize);
+                total += removed;
+            } while (removed == batchSize);
+            if (total > 0) {
+                log.info("Removed {} expired upload sessions", total);
+            }
+        } catch (RuntimeException e) {
+            // Retried on the next tick
+            log.warn("Upload session cleanup failed", e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.application.interfaces.IUserChangeNotifier;
+import com.polancou.apibasecore.application.utilities.TransactionCallbacks;
+import com.polancou.apibasecore.domain.models.UserChange;
+import com.polancou.apibasecore.infrastructure.repositories.UserChangeRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Cache invalidation across instances without a broker: each change is a row in UserChanges,
+ * written in the same transaction as the change itself, which every instance polls (see
+ * {@link UserChangePollingJob}). This instance gets the event straight after the commit.
+ */
+@Service
+public class UserChangeBus implements IUserChangeNotifier {
+
+    // Tells our own rows apart from other instances'
+    private final UUID instanceId = UUID.randomUUID();
+
+    private final UserChangeRepository userChangeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserChangeBus(UserChangeRepository userChangeRepository, ApplicationEventPublisher eventPublisher) {
+        this.userChangeRepository = userChangeRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void userChanged(UUID userId) {
+        usersChanged(List.of(userId));
+    }
+
+    @Override
+    public void usersChanged(Collection<UUID> userIds) {
+        Set<UUID> distinct = new LinkedHashSet<>(userIds);
+        if (distinct.isEmpty()) {
+            return;
+        }
+        List<UserChange> changes = new ArrayList<>(distinct.size());
+        for (UUID userId : distinct) {
+            changes.add(new UserChange(userId, instanceId));
+        }
+        userChangeRepository.saveAll(changes);
+        TransactionCallbacks.afterCommit(() -> {
+            for (UUID userId : distinct) {
+                eventPublisher.publishEvent(new UserChangedEvent(userId, false));
+            }
+        });
+    }
+
+    public UUID getInstanceId() {
+        return instanceId;
+    }
+}
@@ -0,0 +1,212 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.domain.models.UserChange;
+import com.polancou.apibasecore.infrastructure.repositories.UserChangeRepository;
+import com.polancou.apibasecore.infrastructure.sharding.ShardContext;
+import com.polancou.apibasecore.infrastructure.sharding.ShardRoutingDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Reads the changes other instances wrote to UserChanges and republishes them in-process as
+ * {@link UserChangedEvent}s. Each poll is one indexed range query past a watermark on the identity
+ * id, so the propagation delay is bounded by {@code user-changes.poll.interval-ms} plus the
+ * writer's commit.
+ * <p>
+ * Identity values are handed out at insert, not at commit, so a slow transaction can commit an
+ * id below the watermark. Ids skipped over are remembered and asked for again on every poll until
+ * they show up or the gap timeout says their transaction rolled back.
+ */
+@Component
+public class UserChangePollingJob {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangePollingJob.class);
+
+    private static final int MAX_TRACKED_GAPS = 10_000;
+    // Well under SQL Server's 2100 parameters per statement
+    private static final int GAP_QUERY_CHUNK = 500;
+
+    private final UserChangeRepository userChangeRepository;
+    private final UserChangeBus userChangeBus;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<ShardRoutingDataSource> shards;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final Duration retention;
+    private final LongSupplier nanoClock;
+
+    // One per shard; a single entry without sharding
+    private final Map<Integer, Cursor> cursors = new ConcurrentHashMap<>();
+    private volatile long lastPollNanos = -1;
+
+    private final Counter received;
+    private final Timer lag;
+
+    public UserChangePollingJob(UserChangeRepository userChangeRepository,
+                                UserChangeBus userChangeBus,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectProvider<ShardRoutingDataSource> shards,
+                                @Value("${user-changes.poll.batch-size:500}") int batchSize,
+                                @Value("${user-changes.gap-timeout:PT30S}") Duration gapTimeout,
+                                @Value("${user-changes.retention:PT1H}") Duration retention,
+                                MeterRegistry meterRegistry) {
+        this(userChangeRepository, userChangeBus, eventPublisher, shards, batchSize, gapTimeout, retention,
+                meterRegistry, System::nanoTime);
+    }
+
+    UserChangePollingJob(UserChangeRepository userChangeRepository, UserChangeBus userChangeBus,
+                         ApplicationEventPublisher eventPublisher, ObjectProvider<ShardRoutingDataSource> shards,
+                         int batchSize, Duration gapTimeout, Duration retention, MeterRegistry meterRegistry,
+                         LongSupplier nanoClock) {
+        this.userChangeRepository = userChangeRepository;
+        this.userChangeBus = userChangeBus;
+        this.eventPublisher = eventPublisher;
+        this.shards = shards;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.retention = retention;
+        this.nanoClock = nanoClock;
+
+        this.received = Counter.builder("app.user.changes.received")
+                .description("User changes made by other instances and applied here")
+                .register(meterRegistry);
+        this.lag = Timer.builder("app.user.changes.lag")
+                .description("Time from the change on another instance to its event here")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("app.user.changes.gaps", this, UserChangePollingJob::getPendingGaps)
+                .description("Skipped change ids still waiting for their transaction to commit")
+                .register(meterRegistry);
+        Gauge.builder("app.user.changes.poll.age", this, job -> job.lastPollNanos < 0 ? Double.NaN
+                        : (job.nanoClock.getAsLong() - job.lastPollNanos) / (double) Duration.ofSeconds(1).toNanos())
+                .description("Time since the last successful poll")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${user-changes.poll.initial-delay-ms:1000}",
+               fixedDelayString = "${user-changes.poll.interval-ms:500}")
+    public void poll() {
+        try {
+            ShardRoutingDataSource routing = shards.getIfAvailable();
+            if (routing == null) {
+                pollShard(ShardRoutingDataSource.HOME_SHARD);
+            } else {
+                for (int shard = 0; shard < routing.getShardCount(); shard++) {
+                    int current = shard;
+                    ShardContext.runOn(shard, () -> pollShard(current));
+                }
+            }
+            lastPollNanos = nanoClock.getAsLong();
+        } catch (RuntimeException e) {
+            // Picks up from the same watermark on the next tick
+            log.warn("Polling user changes failed", e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${user-changes.purge.initial-delay-ms:60000}",
+               fixedDelayString = "${user-changes.purge.interval-ms:300000}")
+    public void purge() {
+        LocalDateTime before = LocalDateTime.now(ZoneId.of("UTC")).minus(retention);
+        try {
+            ShardRoutingDataSource routing = shards.getIfAvailable();
+            if (routing == null) {
+                userChangeRepository.deleteOlderThan(before);
+                return;
+            }
+            for (int shard = 0; shard < routing.getShardCount(); shard++) {
+                ShardContext.runOn(shard, () -> userChangeRepository.deleteOlderThan(before));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Purging old user changes failed", e);
+        }
+    }
+
+    public int getPendingGaps() {
+        int pending = 0;
+        for (Cursor cursor : cursors.values()) {
+            pending += cursor.gaps.size();
+        }
+        return pending;
+    }
+
+    private void pollShard(int shard) {
+        Cursor cursor = cursors.computeIfAbsent(shard, k -> new Cursor());
+        if (cursor.watermark < 0) {
+            // Caches start empty, so nothing written before this instance came up concerns it
+            Long max = userChangeRepository.findMaxId();
+            cursor.watermark = max != null ? max : 0;
+            return;
+        }
+
+        List<UserChange> page;
+        do {
+            page = userChangeRepository.findAfter(cursor.watermark, Limit.of(batchSize));
+            long now = nanoClock.getAsLong();
+            for (UserChange change : page) {
+                for (long missing = cursor.watermark + 1; missing < change.getId(); missing++) {
+                    if (cursor.gaps.size() >= MAX_TRACKED_GAPS) break;
+                    cursor.gaps.put(missing, now);
+                }
+                cursor.watermark = change.getId();
+                deliver(change);
+            }
+        } while (page.size() == batchSize);
+
+        recheckGaps(cursor);
+    }
+
+    private void recheckGaps(Cursor cursor) {
+        if (cursor.gaps.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(cursor.gaps.keySet());
+        for (int from = 0; from < ids.size(); from += GAP_QUERY_CHUNK) {
+            for (UserChange change : userChangeRepository.findByIds(ids.subList(from, Math.min(from + GAP_QUERY_CHUNK, ids.size())))) {
+                cursor.gaps.remove(change.getId());
+                deliver(change);
+            }
+        }
+        long now = nanoClock.getAsLong();
+        // Rolled back, or a jump in the identity sequence: never coming
+        cursor.gaps.values().removeIf(seenAt -> now - seenAt >= gapTimeoutNanos);
+    }
+
+    private void deliver(UserChange change) {
+        if (userChangeBus.getInstanceId().equals(change.getOrigin())) {
+            // Published locally at commit
+            return;
+        }
+        received.increment();
+        // Wall clocks of both instances, so skew between them shows up here too
+        Duration delay = Duration.between(change.getChangedAt(), LocalDateTime.now(ZoneId.of("UTC")));
+        lag.record(delay.isNegative() ? Duration.ZERO : delay);
+        eventPublisher.publishEvent(new UserChangedEvent(change.getUsuarioId(), true));
+    }
+
+    private static final class Cursor {
+
+        private volatile long watermark = -1;
+        // Skipped id -> when it was first missed
+        private final Map<Long, Long> gaps = new ConcurrentHashMap<>();
+    }
+}
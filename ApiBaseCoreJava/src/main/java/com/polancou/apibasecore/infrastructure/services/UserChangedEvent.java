@@ -0,0 +1,11 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import java.util.UUID;
+
+/**
+ * Published in-process when a user changed, on this instance ({@code remote} false, right after
+ * the commit) or on another one (seen by {@link UserChangePollingJob}). Caches of user or token
+ * data listen for it with {@code @EventListener}.
+ */
+public record UserChangedEvent(UUID userId, boolean remote) {
+}
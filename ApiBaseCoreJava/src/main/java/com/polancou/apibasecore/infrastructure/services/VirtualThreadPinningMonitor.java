@@ -0,0 +1,128 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier (inside synchronized code or
+ * a native frame), which is what silently caps concurrency in virtual-thread mode. Listens to
+ * the JFR {@code jdk.VirtualThreadPinned} event in-process and logs each distinct blocking site
+ * once, then every {@code LOG_EVERY}-th time, with the frames that show where it came from.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOG_EVERY = 100;
+    private static final int FRAMES = 8;
+
+    private final boolean enabled;
+    private final Duration threshold;
+
+    private final AtomicLong pinnedEvents = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+    private final Map<String, LongAdder> sites = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(@Value("${diagnostics.virtual-threads.pinning.enabled:true}") boolean enabled,
+                                       @Value("${diagnostics.virtual-threads.pinning.threshold:PT0.02S}") Duration threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Watching for virtual threads pinned longer than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.incrementAndGet();
+        pinnedNanos.addAndGet(event.getDuration().toNanos());
+
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        String site = stackTrace == null || stackTrace.getFrames().isEmpty()
+                ? "unknown" : describe(firstUsefulFrame(stackTrace));
+        LongAdder count = sites.computeIfAbsent(site, key -> new LongAdder());
+        count.increment();
+
+        long seen = count.sum();
+        if (seen == 1 || seen % LOG_EVERY == 0) {
+            log.warn("Virtual thread pinned for {} ms at {} ({} times so far)\n{}",
+                    event.getDuration().toMillis(), site, seen, frames(stackTrace));
+        }
+    }
+
+    // Skips JDK frames so the site names the library or application call that blocked
+    private static RecordedFrame firstUsefulFrame(RecordedStackTrace stackTrace) {
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return frame;
+            }
+        }
+        return stackTrace.getFrames().get(0);
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static String frames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        int shown = 0;
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (shown++ == FRAMES) break;
+            text.append("\tat ").append(describe(frame)).append('\n');
+        }
+        return text.toString();
+    }
+
+    public long getPinnedEvents() {
+        return pinnedEvents.get();
+    }
+
+    public Duration getPinnedTime() {
+        return Duration.ofNanos(pinnedNanos.get());
+    }
+
+    public Map<String, Long> getPinnedSites() {
+        Map<String, Long> snapshot = new ConcurrentHashMap<>();
+        sites.forEach((site, count) -> snapshot.put(site, count.sum()));
+        return snapshot;
+    }
+}
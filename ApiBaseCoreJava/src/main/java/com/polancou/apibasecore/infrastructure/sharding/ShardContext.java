@@ -0,0 +1,98 @@
+package com.polancou.apibasecore.infrastructure.sharding;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The shard the current thread talks to. {@link ShardRoutingDataSource} reads it whenever a
+ * connection is opened.
+ * <p>
+ * A transaction is pinned to one shard for its whole life: the first routed call (or the first
+ * connection) decides, and a later call for another shard fails instead of silently writing to
+ * the wrong database. {@link #runOn} binds a shard explicitly for code that walks the shards
+ * itself, such as the scheduled jobs.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Binding> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * The bound shard, or null when nothing has picked one yet.
+     */
+    public static Integer current() {
+        Binding binding = CURRENT.get();
+        return binding != null ? binding.shard : null;
+    }
+
+    /**
+     * Runs {@code action} against {@code shard}, restoring the previous binding afterwards.
+     */
+    public static void runOn(int shard, Runnable action) {
+        try {
+            callOn(shard, () -> {
+                action.run();
+                return null;
+            });
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static <T> T callOn(int shard, Action<T> action) throws Throwable {
+        Binding previous = CURRENT.get();
+        CURRENT.set(new Binding(shard, true));
+        try {
+            return action.run();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    static boolean isExplicit() {
+        Binding binding = CURRENT.get();
+        return binding != null && binding.explicit;
+    }
+
+    /**
+     * Pins the running transaction to {@code shard} until it completes.
+     *
+     * @throws IllegalStateException when the transaction already works on another shard
+     */
+    static void pin(int shard) {
+        Binding binding = CURRENT.get();
+        if (binding != null) {
+            if (binding.shard != shard) {
+                throw new IllegalStateException("Transaction is bound to shard " + binding.shard
+                        + " and cannot also use shard " + shard);
+            }
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Nothing would ever release the pin
+            return;
+        }
+        CURRENT.set(new Binding(shard, false));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                CURRENT.remove();
+            }
+        });
+    }
+
+    interface Action<T> {
+        T run() throws Throwable;
+    }
+
+    private record Binding(int shard, boolean explicit) {
+    }
+}
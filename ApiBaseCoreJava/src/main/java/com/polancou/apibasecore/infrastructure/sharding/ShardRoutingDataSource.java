@@ -0,0 +1,119 @@
+package com.polancou.apibasecore.infrastructure.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sends each connection to the shard bound in {@link ShardContext}. Must sit behind a
+ * {@code LazyConnectionDataSourceProxy}, like the read-replica router, so the shard is chosen at
+ * the first statement rather than when the transaction begins.
+ * <p>
+ * With nothing bound, the connection goes to the authenticated user's shard (their uploads and
+ * addresses live next to them) or, for anonymous work, to the home shard, which also holds the
+ * user directory and every table that is not keyed by user. Inside a transaction that choice
+ * pins the transaction.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final int HOME_SHARD = 0;
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < this.shards.size(); i++) {
+            targets.put(i, this.shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Shard that owns {@code id}. Changing the number of shards moves most users, so it needs a
+     * rebalancing migration, never just a config change.
+     */
+    public static int shardOf(UUID id, int shardCount) {
+        // Random UUIDs are uniform already; the mix keeps sequential or hand-made ids spread out
+        long hash = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) shardCount);
+    }
+
+    public int shardOf(UUID id) {
+        return shardOf(id, shards.size());
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * Whether {@code table} exists on {@code shard}, ignoring case.
+     */
+    public boolean hasTable(int shard, String table) throws SQLException {
+        try (Connection connection = shards.get(shard).getConnection();
+             ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, null, new String[] {"TABLE"})) {
+            while (tables.next()) {
+                if (table.equalsIgnoreCase(tables.getString("TABLE_NAME"))) return true;
+            }
+            return false;
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.current();
+        if (shard != null) {
+            return shard;
+        }
+        int fallback = defaultShard();
+        ShardContext.pin(fallback);
+        return fallback;
+    }
+
+    /**
+     * Closes the underlying pools.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable closeable) closeable.close();
+        }
+    }
+
+    private int defaultShard() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return HOME_SHARD;
+        }
+        try {
+            // The JWT subject is the user id
+            return shardOf(UUID.fromString(authentication.getName()));
+        } catch (IllegalArgumentException e) {
+            return HOME_SHARD;
+        }
+    }
+}
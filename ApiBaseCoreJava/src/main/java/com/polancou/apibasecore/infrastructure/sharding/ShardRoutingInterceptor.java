@@ -0,0 +1,461 @@
+package com.polancou.apibasecore.infrastructure.sharding;
+
+import com.polancou.apibasecore.domain.models.Usuario;
+import jakarta.persistence.Entity;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.Hibernate;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Routes repository calls to the shard that owns the user they are about.
+ * <ul>
+ *   <li>Calls keyed by a user (an id, a {@code Usuario}, or a {@code userId} parameter on the
+ *   child repositories) join the caller's transaction on that user's shard.</li>
+ *   <li>Calls keyed by several users are split by shard; each shard runs its share in its own
+ *   transaction and the results are added up or concatenated.</li>
+ *   <li>Email and tax id lookups on the user repository go through {@link UserDirectory}.</li>
+ *   <li>Keyset pages ({@code after} parameter) walk the shards one after the other: the shard of
+ *   the cursor says where the previous page stopped.</li>
+ *   <li>Anything else on the user repository (filters, token lookups, counts) is asked of every
+ *   shard, each in its own transaction, and merged: lists are merged on the {@code Sort}
+ *   argument, optionals take the first hit, booleans and counts are combined.</li>
+ * </ul>
+ * Calls on child repositories that carry no user key run wherever the transaction already is.
+ * Inside {@link ShardContext#runOn} nothing fans out: the caller is walking the shards itself.
+ */
+class ShardRoutingInterceptor implements MethodInterceptor {
+
+    private static final Set<String> DIRECTORY_LOOKUPS = Set.of("findByEmail", "existsByEmail", "findByTaxId",
+            "existsByTaxId", "findExistingEmails", "findExistingTaxIds", "findUniqueKeyMatches");
+    // JPQL deletes that never raise Hibernate's delete events
+    private static final Set<String> BULK_DELETES = Set.of("deleteByIds", "deleteAllByIdInBatch");
+    private static final Set<String> USER_KEYS = Set.of("userId", "userIds");
+    private static final String CURSOR = "after";
+    // The attribute list of projected queries, which the merge needs to hold the sort keys
+    private static final String PROJECTION = "attributes";
+
+    private final ObjectProvider<ShardRoutingDataSource> shardsProvider;
+    private final ObjectProvider<UserDirectory> directoryProvider;
+    private final ObjectProvider<PlatformTransactionManager> transactionManagerProvider;
+    // The user repository itself, as opposed to a repository of rows owned by users
+    private final boolean userRepository;
+
+    ShardRoutingInterceptor(ObjectProvider<ShardRoutingDataSource> shardsProvider,
+                            ObjectProvider<UserDirectory> directoryProvider,
+                            ObjectProvider<PlatformTransactionManager> transactionManagerProvider,
+                            boolean userRepository) {
+        this.shardsProvider = shardsProvider;
+        this.directoryProvider = directoryProvider;
+        this.transactionManagerProvider = transactionManagerProvider;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        Object[] args = invocation.getArguments();
+        if (userRepository && DIRECTORY_LOOKUPS.contains(method.getName())) {
+            return fromDirectory(invocation, args);
+        }
+
+        int key = keyIndex(method, args);
+        if (key >= 0 && args[key] instanceof Iterable<?> values) {
+            Map<Integer, List<Object>> groups = groupByShard(values);
+            if (groups.isEmpty()) {
+                return invocation.proceed();
+            }
+            Object result = groups.size() == 1 ? onShard(groups.keySet().iterator().next(), invocation)
+                    : acrossShards(invocation, key, groups);
+            if (userRepository && BULK_DELETES.contains(method.getName())) {
+                forgetDeleted(values, groups.size() > 1);
+            }
+            return result;
+        }
+        if (key >= 0) {
+            return onShard(shardOf(args[key]), invocation);
+        }
+
+        if (ShardContext.isExplicit() || "flush".equals(method.getName())) {
+            return invocation.proceed();
+        }
+        if (!userRepository) {
+            // Keyed by a session or address id: that row lives where the transaction already is
+            return hasRowKey(args) ? invocation.proceed() : scatter(invocation);
+        }
+        int cursor = parameterIndex(method, CURSOR);
+        return cursor >= 0 ? keyset(invocation, cursor) : scatter(invocation);
+    }
+
+    private Object fromDirectory(MethodInvocation invocation, Object[] args) throws Throwable {
+        UserDirectory directory = directoryProvider.getObject();
+        return switch (invocation.getMethod().getName()) {
+            case "existsByEmail" -> directory.findByEmail((String) args[0]).isPresent();
+            case "existsByTaxId" -> directory.findByTaxId((String) args[0]).isPresent();
+            case "findByEmail" -> load(directory.findByEmail((String) args[0]), invocation);
+            case "findByTaxId" -> load(directory.findByTaxId((String) args[0]), invocation);
+            case "findExistingEmails" -> directory.findExistingEmails(strings(args[0]));
+            case "findExistingTaxIds" -> directory.findExistingTaxIds(strings(args[0]));
+            case "findUniqueKeyMatches" -> new ArrayList<>(directory.findByEmailOrTaxId((String) args[0], (String) args[1]));
+            default -> throw new IllegalStateException("No directory lookup for " + invocation.getMethod().getName());
+        };
+    }
+
+    private Object load(Optional<UserDirectory.Entry> entry, MethodInvocation invocation) throws Throwable {
+        // Not in the directory means no shard has it
+        return entry.isPresent() ? onShard(entry.get().shard(), invocation) : Optional.empty();
+    }
+
+    private Object onShard(int shard, MethodInvocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            ShardContext.pin(shard);
+            return invocation.proceed();
+        }
+        return ShardContext.callOn(shard, invocation::proceed);
+    }
+
+    private Object acrossShards(MethodInvocation invocation, int key, Map<Integer, List<Object>> groups) throws Throwable {
+        List<Object> results = new ArrayList<>(groups.size());
+        for (Map.Entry<Integer, List<Object>> group : groups.entrySet()) {
+            Object[] args = invocation.getArguments().clone();
+            args[key] = group.getValue();
+            results.add(leg(group.getKey(), invocation, args));
+        }
+        return combine(invocation.getMethod(), results, null, null);
+    }
+
+    private Object scatter(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Object[] args = invocation.getArguments();
+        int shardCount = shards().getShardCount();
+
+        if (method.getReturnType() == Optional.class) {
+            for (int shard = 0; shard < shardCount; shard++) {
+                Optional<?> hit = (Optional<?>) leg(shard, invocation, args);
+                if (hit.isPresent()) {
+                    // Load it again in the caller's transaction so the entity stays managed
+                    return TransactionSynchronizationManager.isActualTransactionActive()
+                            ? onShard(shard, invocation) : hit;
+                }
+            }
+            return Optional.empty();
+        }
+
+        Sort sort = argument(args, Sort.class);
+        List<String> sortOnly = List.of();
+        int projection = parameterIndex(method, PROJECTION);
+        if (projection >= 0 && sort != null && sort.isSorted()) {
+            List<String> attributes = new ArrayList<>(strings(args[projection]));
+            sortOnly = new ArrayList<>();
+            for (Sort.Order order : sort) {
+                if (!attributes.contains(order.getProperty())) sortOnly.add(order.getProperty());
+            }
+            attributes.addAll(sortOnly);
+            args = args.clone();
+            args[projection] = attributes;
+        }
+
+        List<Object> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            results.add(leg(shard, invocation, args));
+        }
+        Object merged = combine(method, results, sort, argument(args, Limit.class));
+        if (!sortOnly.isEmpty()) {
+            // Selected only to merge on; the caller asked for the other attributes
+            for (Object row : (List<?>) merged) ((Map<?, ?>) row).keySet().removeAll(sortOnly);
+        }
+        return merged;
+    }
+
+    private Object keyset(MethodInvocation invocation, int cursor) throws Throwable {
+        Object[] args = invocation.getArguments();
+        int limitIndex = limitIndex(invocation.getMethod());
+        UUID after = (UUID) args[cursor];
+        int wanted = limitIndex < 0 ? Integer.MAX_VALUE : limitOf(args[limitIndex]);
+
+        List<Object> page = new ArrayList<>();
+        int first = after == null ? 0 : shards().shardOf(after);
+        for (int shard = first; shard < shards().getShardCount() && page.size() < wanted; shard++) {
+            Object[] legArgs = args.clone();
+            legArgs[cursor] = shard == first ? after : null;
+            if (limitIndex >= 0) {
+                legArgs[limitIndex] = args[limitIndex] instanceof Limit ? Limit.of(wanted - page.size()) : wanted - page.size();
+            }
+            page.addAll((Collection<?>) leg(shard, invocation, legArgs));
+        }
+        return page;
+    }
+
+    /**
+     * Runs one shard's part in a transaction of its own, which commits before the next shard starts.
+     */
+    private Object leg(int shard, MethodInvocation invocation, Object[] args) throws Throwable {
+        MethodInvocation copy = ((ProxyMethodInvocation) invocation).invocableClone(args);
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        definition.setReadOnly(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        PlatformTransactionManager transactionManager = transactionManagerProvider.getObject();
+
+        return ShardContext.callOn(shard, () -> {
+            TransactionStatus status = transactionManager.getTransaction(definition);
+            Object result;
+            try {
+                result = copy.proceed();
+                initializeAddresses(result);
+            } catch (Throwable t) {
+                transactionManager.rollback(status);
+                throw t;
+            }
+            transactionManager.commit(status);
+            return result;
+        });
+    }
+
+    private void forgetDeleted(Iterable<?> ids, boolean committed) {
+        List<UUID> deleted = new ArrayList<>();
+        for (Object id : ids) deleted.add((UUID) id);
+        if (committed || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Each shard's part has committed already
+            directoryProvider.getObject().remove(deleted);
+        } else {
+            UserDirectoryListener.forgetWhenCommitted(directoryProvider.getObject(), deleted);
+        }
+    }
+
+    /**
+     * Fails when a method of {@code repositoryInterface} can be asked of several shards but returns
+     * something {@link #combine} cannot merge (a {@code Page}, {@code Slice}, {@code Stream} or a
+     * single entity), so that surfaces when sharding is switched on rather than on the first call.
+     * Only the application's own interfaces are checked; the paging methods inherited from Spring
+     * Data are still refused when called.
+     */
+    static void checkMergeable(Class<?> repositoryInterface, boolean userRepository) {
+        List<String> unmergeable = new ArrayList<>();
+        for (Method method : repositoryInterface.getMethods()) {
+            if (method.getDeclaringClass().getName().startsWith("org.springframework.")
+                    || (userRepository && DIRECTORY_LOOKUPS.contains(method.getName()))
+                    || hasSingleUserKey(method, userRepository)
+                    || isMergeable(method.getReturnType())) {
+                continue;
+            }
+            unmergeable.add(method.getName() + " returns " + method.getReturnType().getSimpleName());
+        }
+        if (!unmergeable.isEmpty()) {
+            throw new IllegalStateException(repositoryInterface.getSimpleName()
+                    + " has methods whose results cannot be merged across shards: " + String.join(", ", unmergeable));
+        }
+    }
+
+    // Always runs on the one shard of that user
+    private static boolean hasSingleUserKey(Method method, boolean userRepository) {
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            String name = parameterName(method, i);
+            if (userRepository ? !CURSOR.equals(name) && (types[i] == UUID.class || types[i] == Usuario.class)
+                    : "userId".equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMergeable(Class<?> type) {
+        return type == void.class || type == boolean.class || type == Boolean.class
+                || type == long.class || type == Long.class || type == int.class || type == Integer.class
+                || type == Optional.class || type.isAssignableFrom(List.class);
+    }
+
+    private static Object combine(Method method, List<Object> results, Sort sort, Limit limit) {
+        Class<?> type = method.getReturnType();
+        if (type == void.class) {
+            return null;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return results.stream().anyMatch(Boolean.TRUE::equals);
+        }
+        if (type == long.class || type == Long.class) {
+            return results.stream().mapToLong(r -> ((Number) r).longValue()).sum();
+        }
+        if (type == int.class || type == Integer.class) {
+            return results.stream().mapToInt(r -> ((Number) r).intValue()).sum();
+        }
+        if (type == Optional.class) {
+            return results.stream().map(r -> (Optional<?>) r).filter(Optional::isPresent).findFirst().orElse(Optional.empty());
+        }
+        if (type.isAssignableFrom(List.class)) {
+            List<Object> merged = new ArrayList<>();
+            for (Object result : results) merged.addAll((Collection<?>) result);
+            if (sort != null && sort.isSorted()) {
+                // Each shard's part is sorted already; TimSort merges the runs
+                merged.sort(comparator(sort));
+            }
+            if (limit != null && limit.isLimited() && merged.size() > limit.max()) {
+                return new ArrayList<>(merged.subList(0, limit.max()));
+            }
+            return merged;
+        }
+        throw new UnsupportedOperationException(method.getName() + " returns " + type.getSimpleName()
+                + ", which cannot be merged across shards");
+    }
+
+    private static Comparator<Object> comparator(Sort sort) {
+        Comparator<Object> result = null;
+        for (Sort.Order order : sort) {
+            Comparator<Object> byProperty = (a, b) -> compareValues(property(a, order.getProperty()), property(b, order.getProperty()));
+            if (order.isDescending()) byProperty = byProperty.reversed();
+            result = result == null ? byProperty : result.thenComparing(byProperty);
+        }
+        return result;
+    }
+
+    private static Object property(Object row, String name) {
+        if (row instanceof Map<?, ?> map) {
+            return map.get(name);
+        }
+        return new BeanWrapperImpl(row).getPropertyValue(name);
+    }
+
+    // Same as SQL Server's defaults: nulls first, text compared case-insensitively
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof String left && b instanceof String right) {
+            return String.CASE_INSENSITIVE_ORDER.compare(left, right);
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    // Mapped to DTOs after the shard's session is gone
+    private static void initializeAddresses(Object result) {
+        if (result instanceof Optional<?> optional) {
+            result = optional.orElse(null);
+        }
+        if (result instanceof Usuario usuario) {
+            Hibernate.initialize(usuario.getAddresses());
+        } else if (result instanceof Iterable<?> rows) {
+            for (Object row : rows) {
+                if (row instanceof Usuario usuario) Hibernate.initialize(usuario.getAddresses());
+            }
+        }
+    }
+
+    /**
+     * Index of the argument that names the owning user(s), or -1.
+     */
+    private int keyIndex(Method method, Object[] args) {
+        if (!userRepository) {
+            for (int i = 0; i < args.length; i++) {
+                if (USER_KEYS.contains(parameterName(method, i)) && args[i] != null) return i;
+            }
+            return -1;
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (CURSOR.equals(parameterName(method, i))) continue;
+            Object arg = args[i];
+            if (arg instanceof UUID || arg instanceof Usuario) return i;
+            if (arg instanceof Iterable<?> values && isUserKeys(values)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isUserKeys(Iterable<?> values) {
+        for (Object value : values) {
+            return value instanceof UUID || value instanceof Usuario;
+        }
+        return false;
+    }
+
+    private static boolean hasRowKey(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof UUID || arg instanceof Iterable<?>
+                    || (arg != null && Hibernate.getClass(arg).isAnnotationPresent(Entity.class))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<Integer, List<Object>> groupByShard(Iterable<?> values) {
+        Map<Integer, List<Object>> groups = new TreeMap<>();
+        for (Object value : values) {
+            groups.computeIfAbsent(shardOf(value), shard -> new ArrayList<>()).add(value);
+        }
+        return groups;
+    }
+
+    private int shardOf(Object key) {
+        UUID id = key instanceof Usuario usuario ? usuario.getId() : (UUID) key;
+        return shards().shardOf(id);
+    }
+
+    private ShardRoutingDataSource shards() {
+        return shardsProvider.getObject();
+    }
+
+    private static int parameterIndex(Method method, String name) {
+        for (int i = 0; i < method.getParameterCount(); i++) {
+            if (name.equals(parameterName(method, i))) return i;
+        }
+        return -1;
+    }
+
+    private static int limitIndex(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == Limit.class || (types[i] == int.class && "limit".equals(parameterName(method, i)))) return i;
+        }
+        return -1;
+    }
+
+    private static int limitOf(Object limit) {
+        if (limit instanceof Limit value) {
+            return value.isLimited() ? value.max() : Integer.MAX_VALUE;
+        }
+        return (Integer) limit;
+    }
+
+    private static String parameterName(Method method, int index) {
+        for (Annotation annotation : method.getParameterAnnotations()[index]) {
+            if (annotation instanceof Param param) return param.value();
+        }
+        return method.getParameters()[index].getName();
+    }
+
+    private static <T> T argument(Object[] args, Class<T> type) {
+        for (Object arg : args) {
+            if (type.isInstance(arg)) return type.cast(arg);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<String> strings(Object arg) {
+        return (Collection<String>) arg;
+    }
+}
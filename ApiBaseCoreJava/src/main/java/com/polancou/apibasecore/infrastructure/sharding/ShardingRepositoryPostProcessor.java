@@ -0,0 +1,46 @@
+package com.polancou.apibasecore.infrastructure.sharding;
+
+import com.polancou.apibasecore.infrastructure.repositories.AddressRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UploadSessionRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Puts a {@link ShardRoutingInterceptor} in front of the user repository and the repositories of
+ * rows that belong to a user. Added as the first advice, so the shard is bound before the
+ * repository's own transaction opens a connection. Refuses, at startup, repositories with
+ * methods whose results the interceptor could not merge across shards.
+ */
+public class ShardingRepositoryPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<ShardRoutingDataSource> shards;
+    private final ObjectProvider<UserDirectory> directory;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    public ShardingRepositoryPostProcessor(ObjectProvider<ShardRoutingDataSource> shards,
+                                           ObjectProvider<UserDirectory> directory,
+                                           ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.shards = shards;
+        this.directory = directory;
+        this.transactionManager = transactionManager;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        boolean users = bean instanceof UserRepository;
+        if (!users && !(bean instanceof AddressRepository) && !(bean instanceof UploadSessionRepository)) {
+            return bean;
+        }
+        if (!(bean instanceof Advised advised) || advised.isFrozen()) {
+            throw new IllegalStateException("Repository " + beanName + " cannot be routed across shards");
+        }
+        Class<?> repositoryInterface = users ? UserRepository.class
+                : bean instanceof AddressRepository ? AddressRepository.class : UploadSessionRepository.class;
+        ShardRoutingInterceptor.checkMergeable(repositoryInterface, users);
+        advised.addAdvice(0, new ShardRoutingInterceptor(shards, directory, transactionManager, users));
+        return bean;
+    }
+}
@@ -0,0 +1,158 @@
+package com.polancou.apibasecore.infrastructure.sharding;
+
+import com.polancou.apibasecore.application.utilities.UserUniqueConstraints;
+import com.polancou.apibasecore.infrastructure.persistence.NullableUniqueIndex;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Global index from email and tax id to the owning user and shard, kept on the home shard.
+ * Lookups by either key cost one query here plus one on the right shard instead of one per shard,
+ * and its unique indexes enforce what the per-shard indexes on Usuarios no longer can.
+ * <p>
+ * Written with plain JDBC outside the shard's transaction; {@link UserDirectoryListener} undoes
+ * an entry when that transaction rolls back.
+ */
+public class UserDirectory {
+
+    static final String TABLE = "user_directory";
+
+    // Most users have no tax id, so on SQL Server the index has to skip the NULLs
+    static final NullableUniqueIndex TAX_ID_INDEX =
+            new NullableUniqueIndex(UserUniqueConstraints.DIRECTORY_TAX_ID_INDEX, TABLE, "tax_id");
+
+    // Keeps IN lists well below the SQL Server parameter limit (2100)
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private static final String COLUMNS = "user_id, email, tax_id, shard";
+
+    private static final RowMapper<Entry> ENTRY = (rs, rowNum) -> new Entry(
+            UUID.fromString(rs.getString("user_id")), rs.getString("email"), rs.getString("tax_id"), rs.getInt("shard"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserDirectory(DataSource homeShard) {
+        this.jdbcTemplate = new JdbcTemplate(homeShard);
+    }
+
+    /**
+     * Creates the table and its unique indexes on first start. Column sizes follow Usuarios. The
+     * tax id index is checked on every start, so a table created with an unfiltered one gets
+     * it replaced.
+     */
+    public void createTableIfMissing() {
+        Boolean exists = jdbcTemplate.execute((Connection connection) -> {
+            try (ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, null, new String[] {"TABLE"})) {
+                while (tables.next()) {
+                    if (TABLE.equalsIgnoreCase(tables.getString("TABLE_NAME"))) return true;
+                }
+                return false;
+            }
+        });
+        if (!Boolean.TRUE.equals(exists)) {
+            jdbcTemplate.execute("create table " + TABLE + " (user_id varchar(36) not null primary key, "
+                    + "email varchar(100) not null, tax_id varchar(20), shard int not null)");
+            jdbcTemplate.execute("create unique index " + UserUniqueConstraints.DIRECTORY_EMAIL_INDEX
+                    + " on " + TABLE + " (email)");
+        }
+        TAX_ID_INDEX.ensure(jdbcTemplate.getDataSource());
+    }
+
+    public Optional<Entry> findById(UUID id) {
+        return first("select " + COLUMNS + " from " + TABLE + " where user_id = ?", id.toString());
+    }
+
+    public Optional<Entry> findByEmail(String email) {
+        return email == null ? Optional.empty()
+                : first("select " + COLUMNS + " from " + TABLE + " where email = ?", email);
+    }
+
+    public Optional<Entry> findByTaxId(String taxId) {
+        return taxId == null ? Optional.empty()
+                : first("select " + COLUMNS + " from " + TABLE + " where tax_id = ?", taxId);
+    }
+
+    /**
+     * Users holding either key; a null argument never matches.
+     */
+    public List<Entry> findByEmailOrTaxId(String email, String taxId) {
+        return jdbcTemplate.query("select " + COLUMNS + " from " + TABLE + " where email = ? or tax_id = ?",
+                ENTRY, email, taxId);
+    }
+
+    public List<String> findExistingEmails(Collection<String> emails) {
+        return existing("email", emails);
+    }
+
+    public List<String> findExistingTaxIds(Collection<String> taxIds) {
+        return existing("tax_id", taxIds);
+    }
+
+    /**
+     * Inserts or replaces the entry for {@code entry.id()}.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException when another user holds the email or tax id
+     */
+    public void put(Entry entry) {
+        int updated = jdbcTemplate.update("update " + TABLE + " set email = ?, tax_id = ?, shard = ? where user_id = ?",
+                entry.email(), entry.taxId(), entry.shard(), entry.id().toString());
+        if (updated == 0) {
+            jdbcTemplate.update("insert into " + TABLE + " (" + COLUMNS + ") values (?, ?, ?, ?)",
+                    entry.id().toString(), entry.email(), entry.taxId(), entry.shard());
+        }
+    }
+
+    public void remove(Collection<UUID> ids) {
+        for (UUID id : ids) {
+            jdbcTemplate.update("delete from " + TABLE + " where user_id = ?", id.toString());
+        }
+    }
+
+    private Optional<Entry> first(String sql, Object arg) {
+        return jdbcTemplate.query(sql, ENTRY, arg).stream().findFirst();
+    }
+
+    private List<String> existing(String column, Collection<String> values) {
+        List<String> list = List.copyOf(values);
+        List<String> found = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += LOOKUP_CHUNK) {
+            List<String> chunk = list.subList(from, Math.min(from + LOOKUP_CHUNK, list.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            found.addAll(jdbcTemplate.queryForList("select " + column + " from " + TABLE + " where " + column
+                    + " in (" + placeholders + ")", String.class, chunk.toArray()));
+        }
+        return found;
+    }
+
+    /**
+     * Also answers {@link UserRepository#findUniqueKeyMatches} without touching the shards.
+     */
+    public record Entry(UUID id, String email, String taxId, int shard) implements UserRepository.UniqueKeyMatch {
+
+        @Override
+        public UUID getId() {
+            return id;
+        }
+
+        @Override
+        public String getEmail() {
+            return email;
+        }
+
+        @Override
+        public String getTaxId() {
+            return taxId;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.polancou.apibasecore.infrastructure.sharding;
+
+import com.polancou.apibasecore.domain.models.Usuario;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps {@link UserDirectory} in step with every Usuario insert, key change and delete flushed
+ * by Hibernate, including changes made through dirty checking. Bulk JPQL deletes bypass these
+ * events; {@link ShardRoutingInterceptor} covers those.
+ * <p>
+ * Entries are written at flush time so a duplicate email or tax id fails the flush like the
+ * unique index on Usuarios would; if the transaction then rolls back, the previous entry is put
+ * back.
+ */
+public class UserDirectoryListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectoryListener.class);
+
+    private final UserDirectory directory;
+    private final ShardRoutingDataSource shards;
+
+    public UserDirectoryListener(UserDirectory directory, ShardRoutingDataSource shards) {
+        this.directory = directory;
+        this.shards = shards;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Usuario usuario) {
+            record(usuario);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Usuario usuario && keysChanged(event)) {
+            record(usuario);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Usuario usuario) {
+            forgetWhenCommitted(directory, List.of(usuario.getId()));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Drops the entries once the delete is durable, or right away outside a transaction.
+     */
+    static void forgetWhenCommitted(UserDirectory directory, Collection<UUID> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            directory.remove(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                directory.remove(ids);
+            }
+        });
+    }
+
+    private void record(Usuario usuario) {
+        UUID id = usuario.getId();
+        int shard = shards.shardOf(id);
+        Integer current = ShardContext.current();
+        if (current != null && current != shard) {
+            // Would make the user unreachable by id
+            throw new IllegalStateException("User " + id + " belongs to shard " + shard
+                    + " but is being written to shard " + current);
+        }
+
+        Optional<UserDirectory.Entry> previous = directory.findById(id);
+        directory.put(new UserDirectory.Entry(id, usuario.getEmail(), usuario.getTaxId(), shard));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) restore(id, previous);
+                }
+            });
+        }
+    }
+
+    private void restore(UUID id, Optional<UserDirectory.Entry> previous) {
+        try {
+            if (previous.isPresent()) {
+                directory.put(previous.get());
+            } else {
+                directory.remove(List.of(id));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not restore the directory entry of user {} after a rollback", id, e);
+        }
+    }
+
+    private static boolean keysChanged(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            return true;
+        }
+        String[] names = event.getPersister().getPropertyNames();
+        Object[] state = event.getState();
+        for (int i = 0; i < names.length; i++) {
+            if (("email".equals(names[i]) || "taxId".equals(names[i])) && !Objects.equals(oldState[i], state[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
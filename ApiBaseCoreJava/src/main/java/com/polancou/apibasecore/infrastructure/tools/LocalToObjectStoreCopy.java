@@ -0,0 +1,95 @@
+package com.polancou.apibasecore.infrastructure.tools;
+
+import com.polancou.apibasecore.infrastructure.services.S3FileStorageService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * One-off copy of the local avatar store into an S3-compatible bucket, run before switching
+ * {@code file.storage.type} to {@code s3}. Files keep their names, so stored avatar URLs stay
+ * valid. Objects that already exist are skipped, which makes the copy safe to re-run after an
+ * interruption or to top up files written while it was running.
+ * <p>
+ * Settings come from system properties with the same names as the application properties
+ * ({@code -Dfile.upload-dir=... -Dfile.storage.s3.bucket=...}) plus {@code copy.threads}.
+ */
+public class LocalToObjectStoreCopy {
+
+    public static void main(String[] args) throws Exception {
+        Path avatars = Paths.get(setting("file.upload-dir", "./uploads")).toAbsolutePath().normalize().resolve("avatars");
+        int threads = Integer.parseInt(setting("copy.threads", "8"));
+
+        S3FileStorageService target = new S3FileStorageService(
+                S3FileStorageService.buildClient(
+                        setting("file.storage.s3.endpoint", ""),
+                        setting("file.storage.s3.region", "us-east-1"),
+                        setting("file.storage.s3.access-key", ""),
+                        setting("file.storage.s3.secret-key", ""),
+                        Boolean.parseBoolean(setting("file.storage.s3.path-style", "false"))),
+                required("file.storage.s3.bucket"),
+                setting("file.storage.s3.prefix", "avatars/"),
+                setting("file.storage.s3.chunk-prefix", "upload-chunks/"),
+                Integer.parseInt(setting("file.storage.s3.part-size", "8388608")));
+
+        AtomicLong copied = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> pending = new ArrayList<>();
+
+        // Covers both the flat layout and the ab/cd shard directories
+        try (Stream<Path> files = Files.walk(avatars)) {
+            files.filter(Files::isRegularFile)
+                 .filter(LocalToObjectStoreCopy::isAvatar)
+                 .forEach(file -> pending.add(pool.submit(() -> {
+                     String name = file.getFileName().toString();
+                     try {
+                         if (target.importFile(name, file)) copied.incrementAndGet();
+                         else skipped.incrementAndGet();
+                     } catch (IOException | RuntimeException e) {
+                         failed.incrementAndGet();
+                         System.err.println("Failed to copy " + name + ": " + e.getMessage());
+                     }
+                 })));
+        }
+        for (Future<?> future : pending) {
+            future.get();
+        }
+        pool.shutdown();
+
+        System.out.println("Copied " + copied.get() + ", already present " + skipped.get() + ", failed " + failed.get());
+        if (failed.get() > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Skips upload temp files and ref-count sidecars, which are local bookkeeping only
+    private static boolean isAvatar(Path file) {
+        String name = file.getFileName().toString();
+        return !name.startsWith(".") && !name.endsWith(".ref")
+                && !file.toString().contains(Path.of("avatars", ".tmp").toString());
+    }
+
+    private static String setting(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value != null && !value.isBlank() ? value : defaultValue;
+    }
+
+    private static String required(String name) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing -D" + name);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,175 @@
+package com.polancou.apibasecore.api.controllers;
+
+import com.polancou.apibasecore.application.dtos.StoredFileInfo;
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class AvatarControllerTest {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final String HASHED_NAME = HASH + ".png";
+    private static final String LEGACY_NAME = "3f2504e0-4f89-11d3-9a0c-0305e82c3301.png";
+    private static final byte[] BYTES = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Mock
+    private IFileStorageService fileStorageService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new AvatarController(fileStorageService)).build();
+    }
+
+    @Test
+    void getAvatar_WithContentAddressedName_ShouldBeImmutable() throws Exception {
+        stubFile(HASHED_NAME, HASH);
+
+        mockMvc.perform(get("/uploads/avatars/" + HASHED_NAME))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + HASH + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, AvatarController.CACHE_CONTROL))
+                .andExpect(content().bytes(BYTES));
+    }
+
+    @Test
+    void getAvatar_WithLegacyName_ShouldRevalidate() throws Exception {
+        stubFile(LEGACY_NAME, "a-18f");
+
+        mockMvc.perform(get("/uploads/avatars/" + LEGACY_NAME))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, AvatarController.LEGACY_CACHE_CONTROL));
+    }
+
+    @Test
+    void getAvatar_WithMatchingIfNoneMatch_ShouldReturnNotModified() throws Exception {
+        when(fileStorageService.getFileInfo(HASHED_NAME)).thenReturn(info(HASHED_NAME, HASH));
+
+        mockMvc.perform(get("/uploads/avatars/" + HASHED_NAME)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"otro\", W/\"" + HASH + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + HASH + "\""));
+
+        verify(fileStorageService, never()).transferTo(anyString(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getAvatar_WithRange_ShouldReturnPartialContent() throws Exception {
+        stubFile(HASHED_NAME, HASH);
+
+        mockMvc.perform(get("/uploads/avatars/" + HASHED_NAME).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().bytes("2345".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void getAvatar_WithStaleIfRange_ShouldReturnWholeFile() throws Exception {
+        stubFile(HASHED_NAME, HASH);
+
+        mockMvc.perform(get("/uploads/avatars/" + HASHED_NAME)
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"otro\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(BYTES));
+    }
+
+    @Test
+    void getAvatar_WithRangePastTheEnd_ShouldReturnNotSatisfiable() throws Exception {
+        when(fileStorageService.getFileInfo(HASHED_NAME)).thenReturn(info(HASHED_NAME, HASH));
+
+        mockMvc.perform(get("/uploads/avatars/" + HASHED_NAME).header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void getAvatar_WithHead_ShouldSendHeadersOnly() throws Exception {
+        when(fileStorageService.getFileInfo(HASHED_NAME)).thenReturn(info(HASHED_NAME, HASH));
+
+        mockMvc.perform(head("/uploads/avatars/" + HASHED_NAME))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, BYTES.length));
+
+        verify(fileStorageService, never()).transferTo(anyString(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void getAvatar_WhenMissing_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/uploads/avatars/" + HASHED_NAME))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void parseRange_ShouldResolveExplicitOpenAndSuffixRanges() {
+        assertThat(AvatarController.parseRange("bytes=0-0", 10)).containsExactly(0, 0);
+        assertThat(AvatarController.parseRange("bytes=4-", 10)).containsExactly(4, 9);
+        assertThat(AvatarController.parseRange("bytes=5-100", 10)).containsExactly(5, 9);
+        assertThat(AvatarController.parseRange("bytes=-3", 10)).containsExactly(7, 9);
+        assertThat(AvatarController.parseRange("bytes=-30", 10)).containsExactly(0, 9);
+    }
+
+    @Test
+    void parseRange_WithUnsupportedOrMalformedHeader_ShouldBeIgnored() {
+        assertThat(AvatarController.parseRange("items=0-1", 10)).isEmpty();
+        assertThat(AvatarController.parseRange("bytes=0-1,4-5", 10)).isEmpty();
+        assertThat(AvatarController.parseRange("bytes=abc", 10)).isEmpty();
+        assertThat(AvatarController.parseRange("bytes=5-2", 10)).isEmpty();
+        assertThat(AvatarController.parseRange("bytes=x-2", 10)).isEmpty();
+    }
+
+    @Test
+    void parseRange_WhenUnsatisfiable_ShouldReturnNull() {
+        assertThat(AvatarController.parseRange("bytes=10-12", 10)).isNull();
+        assertThat(AvatarController.parseRange("bytes=10-", 10)).isNull();
+        assertThat(AvatarController.parseRange("bytes=0-", 0)).isNull();
+        assertThat(AvatarController.parseRange("bytes=-0", 10)).isNull();
+        assertThat(AvatarController.parseRange("bytes=-5", 0)).isNull();
+    }
+
+    @Test
+    void isContentAddressed_ShouldOnlyAcceptLowercaseSha256Names() {
+        assertThat(AvatarController.isContentAddressed(HASHED_NAME)).isTrue();
+        assertThat(AvatarController.isContentAddressed(HASH)).isTrue();
+        assertThat(AvatarController.isContentAddressed(HASH.toUpperCase() + ".png")).isFalse();
+        assertThat(AvatarController.isContentAddressed(LEGACY_NAME)).isFalse();
+    }
+
+    private void stubFile(String name, String etag) throws Exception {
+        when(fileStorageService.getFileInfo(name)).thenReturn(info(name, etag));
+        when(fileStorageService.transferTo(eq(name), anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            int start = (int) invocation.<Long>getArgument(1).longValue();
+            int count = (int) invocation.<Long>getArgument(2).longValue();
+            return (long) invocation.<WritableByteChannel>getArgument(3).write(ByteBuffer.wrap(BYTES, start, count));
+        });
+    }
+
+    private static StoredFileInfo info(String name, String etag) {
+        return new StoredFileInfo(name, "image/png", BYTES.length, 1_700_000_000_000L, etag, null);
+    }
+}
@@ -0,0 +1,89 @@
+package com.polancou.apibasecore.api.controllers;
+
+import com.polancou.apibasecore.api.exceptions.ProblemResponses;
+import com.polancou.apibasecore.api.security.SecurityConfig;
+import com.polancou.apibasecore.application.dtos.BulkOperationResultDto;
+import com.polancou.apibasecore.application.interfaces.IUserBulkService;
+import com.polancou.apibasecore.application.interfaces.IUserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The bulk endpoints can change roles and delete any account, so they are for admins only.
+ */
+@WebMvcTest(UsersController.class)
+@Import({SecurityConfig.class, ProblemResponses.class, UsersControllerSecurityTest.Metrics.class})
+class UsersControllerSecurityTest {
+
+    private static final String PROMOTE_SELF = "{\"ids\":[\"7f3c1a52-0d7e-4c5e-9a1b-2f6d8e9c0a11\"],\"rol\":\"Admin\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private IUserService userService;
+    @MockitoBean
+    private IUserBulkService userBulkService;
+    @MockitoBean
+    private Tracer tracer;
+
+    @Test
+    void bulkUpdate_AsUser_ShouldBeForbidden() throws Exception {
+        mockMvc.perform(post("/api/v1/users/bulk-update")
+                        .with(user("7f3c1a52-0d7e-4c5e-9a1b-2f6d8e9c0a11").roles("User"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(PROMOTE_SELF))
+                .andExpect(status().isForbidden());
+
+        verify(userBulkService, never()).updateUsers(any());
+    }
+
+    @Test
+    void bulkDelete_AsUser_ShouldBeForbidden() throws Exception {
+        mockMvc.perform(post("/api/v1/users/bulk-delete")
+                        .with(user("7f3c1a52-0d7e-4c5e-9a1b-2f6d8e9c0a11").roles("User"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"filter\":\"email+ew+example.com\"}"))
+                .andExpect(status().isForbidden());
+
+        verify(userBulkService, never()).deleteUsers(any());
+    }
+
+    @Test
+    void bulkUpdate_AsAdmin_ShouldBeAllowed() throws Exception {
+        when(userBulkService.updateUsers(any())).thenReturn(new BulkOperationResultDto(1, 1, false));
+
+        mockMvc.perform(post("/api/v1/users/bulk-update")
+                        .with(user("admin").roles("Admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(PROMOTE_SELF))
+                .andExpect(status().isOk());
+    }
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
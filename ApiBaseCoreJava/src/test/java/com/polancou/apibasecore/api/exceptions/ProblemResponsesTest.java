@@ -0,0 +1,82 @@
+package com.polancou.apibasecore.api.exceptions;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProblemResponsesTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final ProblemResponses problemResponses = new ProblemResponses(objectMapper);
+
+    @Test
+    void of_ShouldRenderProblemJson() {
+        ResponseEntity<byte[]> response = problemResponses.of(HttpStatus.NOT_FOUND, "Usuario no encontrado.");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_PROBLEM_JSON);
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertThat(body.get("status").asInt()).isEqualTo(404);
+        assertThat(body.get("title").asString()).isEqualTo("Not Found");
+        assertThat(body.get("detail").asString()).isEqualTo("Usuario no encontrado.");
+        assertThat(body.get("message").asString()).isEqualTo("Usuario no encontrado.");
+        assertThat(LocalDateTime.parse(body.get("timestamp").asString())).isBeforeOrEqualTo(LocalDateTime.now());
+    }
+
+    @Test
+    void of_WithRepeatedMessage_ShouldReuseTheSerializedProblem() {
+        problemResponses.of(HttpStatus.BAD_REQUEST, "Credenciales inválidas.");
+        problemResponses.of(HttpStatus.BAD_REQUEST, "Credenciales inválidas.");
+        problemResponses.of(HttpStatus.CONFLICT, "Credenciales inválidas.");
+
+        assertThat(problemResponses.cachedCount()).isEqualTo(2);
+        assertThat(problemResponses.isCached(HttpStatus.BAD_REQUEST, "Credenciales inválidas.")).isTrue();
+    }
+
+    @Test
+    void of_WhenACallerChangesTheBody_ShouldNotAffectLaterResponses() {
+        byte[] first = problemResponses.of(HttpStatus.BAD_REQUEST, "Credenciales inválidas.").getBody();
+        Arrays.fill(first, (byte) 'x');
+
+        JsonNode body = objectMapper.readTree(problemResponses.of(HttpStatus.BAD_REQUEST, "Credenciales inválidas.").getBody());
+        assertThat(body.get("detail").asString()).isEqualTo("Credenciales inválidas.");
+    }
+
+    @Test
+    void of_WithManyDistinctMessages_ShouldStayBounded() {
+        for (int i = 0; i < ProblemResponses.MAX_CACHED * 3; i++) {
+            problemResponses.of(HttpStatus.BAD_REQUEST, "Rol inválido: " + i);
+        }
+
+        assertThat(problemResponses.cachedCount()).isEqualTo(ProblemResponses.MAX_CACHED);
+    }
+
+    @Test
+    void of_WithManyDistinctMessages_ShouldKeepFrequentMessagesCached() {
+        problemResponses.of(HttpStatus.NOT_FOUND, "Usuario no encontrado.");
+
+        for (int i = 0; i < ProblemResponses.MAX_CACHED * 3; i++) {
+            problemResponses.of(HttpStatus.BAD_REQUEST, "Rol inválido: " + i);
+            problemResponses.of(HttpStatus.NOT_FOUND, "Usuario no encontrado.");
+        }
+
+        assertThat(problemResponses.isCached(HttpStatus.NOT_FOUND, "Usuario no encontrado.")).isTrue();
+        assertThat(problemResponses.isCached(HttpStatus.BAD_REQUEST, "Rol inválido: 0")).isFalse();
+    }
+
+    @Test
+    void render_ShouldNotCache() {
+        problemResponses.render(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred: boom");
+
+        assertThat(problemResponses.cachedCount()).isZero();
+    }
+}
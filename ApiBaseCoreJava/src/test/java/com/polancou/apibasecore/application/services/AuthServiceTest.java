@@ -12,6 +12,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -34,6 +35,10 @@ class AuthServiceTest {
     private IEmailService emailService;
     @Mock
     private IEncryptionService encryptionService;
+    @Mock
+    private IAvatarMirrorService avatarMirrorService;
+    @Mock
+    private IUserChangeNotifier userChangeNotifier;
 
     @InjectMocks
     private AuthService authService;
@@ -49,6 +54,7 @@ class AuthServiceTest {
 
         when(userRepository.existsByEmail(registroDto.getEmail())).thenReturn(false);
         when(encryptionService.encrypt(registroDto.getPassword())).thenReturn("encrypted-pwd-123");
+        when(tokenService.generarRefreshToken()).thenReturn("verification-token");
 
         // Act
         AuthResult result = authService.register(registroDto);
@@ -87,6 +93,43 @@ class AuthServiceTest {
         verify(userRepository, never()).save(any(Usuario.class));
     }
 
+    @Test
+    void register_WhenConcurrentRegistrationTakesEmail_ShouldReturnSameMessageWithoutEmail() {
+        RegistroUsuarioDto registroDto = new RegistroUsuarioDto();
+        registroDto.setEmail("carrera@email.com");
+        registroDto.setPassword("password123");
+        registroDto.setName("Usuario Carrera");
+        registroDto.setPhone("1234567890");
+
+        when(userRepository.existsByEmail(registroDto.getEmail())).thenReturn(false);
+        when(encryptionService.encrypt(any())).thenReturn("hash");
+        doThrow(new DataIntegrityViolationException("Cannot insert duplicate key row with unique index 'IX_Usuarios_Email'"))
+                .when(userRepository).flush();
+
+        AuthResult result = authService.register(registroDto);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getMessage()).isEqualTo("Si el correo es válido, recibirás un enlace de confirmación.");
+        verify(emailService, never()).sendVerificationEmail(any(), any(), any());
+    }
+
+    @Test
+    void register_WhenTaxIdIsTaken_ShouldThrowValidationException() {
+        RegistroUsuarioDto registroDto = new RegistroUsuarioDto();
+        registroDto.setEmail("nuevo@email.com");
+        registroDto.setPassword("password123");
+        registroDto.setName("Nuevo Usuario");
+        registroDto.setTaxId("GODE561231GR8");
+
+        when(userRepository.existsByEmail(registroDto.getEmail())).thenReturn(false);
+        when(encryptionService.encrypt(any())).thenReturn("hash");
+        doThrow(new DataIntegrityViolationException("Cannot insert duplicate key row with unique index 'IX_Usuarios_TaxId'"))
+                .when(userRepository).flush();
+
+        ValidationException ex = assertThrows(ValidationException.class, () -> authService.register(registroDto));
+        assertThat(ex.getMessage()).isEqualTo("El Tax ID ya está registrado.");
+    }
+
     @Test
     void externalLogin_WithNewUser_ShouldCreateUserAndReturnToken() {
         // Arrange
@@ -204,8 +247,7 @@ class AuthServiceTest {
         String newHash = "EncryptedNewPassword";
         
         Usuario usuario = new Usuario("Test User", "test@test.com", "123", RolUsuario.User, null);
-        usuario.setPasswordResetToken(fakeToken);
-        usuario.setPasswordResetTokenExpiryTime(LocalDateTime.now().plusHours(1));
+        usuario.setPasswordResetToken(fakeToken, LocalDateTime.now().plusHours(1));
 
         when(userRepository.findByPasswordResetToken(fakeToken)).thenReturn(Optional.of(usuario));
         when(encryptionService.encrypt(dto.getNewPassword())).thenReturn(newHash);
@@ -5,6 +5,8 @@ import com.polancou.apibasecore.application.exceptions.NotFoundException;
 import com.polancou.apibasecore.application.exceptions.ValidationException;
 import com.polancou.apibasecore.application.interfaces.IEncryptionService;
 import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import com.polancou.apibasecore.application.interfaces.IThumbnailService;
+import com.polancou.apibasecore.application.interfaces.IUserChangeNotifier;
 import com.polancou.apibasecore.domain.enums.RolUsuario;
 import com.polancou.apibasecore.domain.models.AuthResult;
 import com.polancou.apibasecore.domain.models.Usuario;
@@ -35,6 +37,10 @@ class ProfileServiceTest {
     private IFileStorageService fileStorageService;
     @Mock
     private IEncryptionService encryptionService;
+    @Mock
+    private IThumbnailService thumbnailService;
+    @Mock
+    private IUserChangeNotifier userChangeNotifier;
 
     @InjectMocks
     private ProfileService profileService;
@@ -88,6 +94,7 @@ class ProfileServiceTest {
         assertThat(usuario.getPhone()).isEqualTo("9876543210");
         
         verify(userRepository, times(1)).save(usuario);
+        verify(userChangeNotifier).userChanged(userId);
     }
 
     @Test
@@ -179,5 +186,6 @@ class ProfileServiceTest {
         
         verify(fileStorageService, times(1)).saveFile(any(InputStream.class), anyString());
         verify(userRepository, times(1)).save(usuario);
+        verify(thumbnailService, times(1)).scheduleVariants(usuario.getId(), fakeFileUrl);
     }
 }
@@ -0,0 +1,148 @@
+package com.polancou.apibasecore.application.services;
+
+import com.polancou.apibasecore.application.dtos.UploadSessionDto;
+import com.polancou.apibasecore.application.exceptions.ConflictException;
+import com.polancou.apibasecore.application.exceptions.ValidationException;
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import com.polancou.apibasecore.application.interfaces.IProfileService;
+import com.polancou.apibasecore.application.interfaces.IUploadChunkStore;
+import com.polancou.apibasecore.domain.enums.RolUsuario;
+import com.polancou.apibasecore.domain.models.UploadSession;
+import com.polancou.apibasecore.domain.models.Usuario;
+import com.polancou.apibasecore.infrastructure.repositories.UploadSessionRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadSessionServiceTest {
+
+    private static final String CHUNK_KEY = "6f1c2b7e-3d4a-4c9e-8b21-5a7d9e0f1c2b.part";
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private IFileStorageService fileStorageService;
+    @Mock
+    private IUploadChunkStore uploadChunkStore;
+    @Mock
+    private IProfileService profileService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UploadSessionService uploadSessionService;
+    private UUID userId;
+    private UploadSession session;
+
+    @BeforeEach
+    void setUp() {
+        uploadSessionService = new UploadSessionService(uploadSessionRepository, userRepository, fileStorageService,
+                uploadChunkStore, profileService, transactionManager, 1024, Duration.ofHours(1), 5);
+
+        Usuario usuario = new Usuario("Usuario de Prueba", "test@email.com", "123", RolUsuario.User, null);
+        userId = usuario.getId();
+        session = new UploadSession(usuario, "foto.png", 2048, LocalDateTime.now(ZoneId.of("UTC")).plusHours(1));
+        when(uploadSessionRepository.findByIdAndUsuarioId(session.getId(), userId)).thenReturn(Optional.of(session));
+    }
+
+    @Test
+    void appendChunk_WithMatchingChecksum_ShouldStoreAndAdvance() throws Exception {
+        byte[] chunk = new byte[512];
+        when(uploadChunkStore.saveChunk(any(InputStream.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, InputStream.class).readAllBytes();
+            return CHUNK_KEY;
+        });
+        when(uploadSessionRepository.advance(eq(session.getId()), eq(0L), eq(512L), any())).thenReturn(1);
+
+        uploadSessionService.appendChunk(userId, session.getId(), 0, sha256(chunk), new ByteArrayInputStream(chunk));
+
+        verify(uploadSessionRepository).advance(eq(session.getId()), eq(0L), eq(512L), any());
+        verify(uploadChunkStore, never()).deleteChunk(any());
+        verifyNoInteractions(fileStorageService);
+    }
+
+    @Test
+    void appendChunk_WithWrongChecksum_ShouldDeleteStoredChunk() throws Exception {
+        byte[] chunk = new byte[512];
+        when(uploadChunkStore.saveChunk(any(InputStream.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, InputStream.class).readAllBytes();
+            return CHUNK_KEY;
+        });
+
+        assertThrows(ValidationException.class, () ->
+                uploadSessionService.appendChunk(userId, session.getId(), 0, sha256(new byte[1]), new ByteArrayInputStream(chunk)));
+
+        verify(uploadChunkStore).deleteChunk(CHUNK_KEY);
+        verify(uploadSessionRepository, never()).advance(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void appendChunk_AtWrongOffset_ShouldThrowConflict() throws Exception {
+        byte[] chunk = new byte[512];
+
+        ConflictException ex = assertThrows(ConflictException.class, () ->
+                uploadSessionService.appendChunk(userId, session.getId(), 512, sha256(chunk), new ByteArrayInputStream(chunk)));
+
+        assertThat(ex.getMessage()).contains("0");
+        verify(uploadChunkStore, never()).saveChunk(any());
+    }
+
+    @Test
+    void completeAvatarUpload_ShouldAssembleChunksFromTheChunkStore() throws Exception {
+        ReflectionTestUtils.setField(session, "receivedBytes", 2048L);
+        String legacyChunk = "/uploads/avatars/0f1e2d.part";
+        when(uploadSessionRepository.findChunkUrls(session.getId())).thenReturn(List.of(CHUNK_KEY, legacyChunk));
+        when(uploadChunkStore.openChunk(CHUNK_KEY)).thenReturn(new ByteArrayInputStream(new byte[1024]));
+        when(fileStorageService.openFile("0f1e2d.part")).thenReturn(new ByteArrayInputStream(new byte[1024]));
+        when(profileService.uploadAvatar(eq(userId), any(InputStream.class), eq("foto.png"))).thenAnswer(invocation -> {
+            assertThat(invocation.getArgument(1, InputStream.class).readAllBytes()).hasSize(2048);
+            return "/uploads/avatars/avatar.png";
+        });
+
+        String avatarUrl = uploadSessionService.completeAvatarUpload(userId, session.getId());
+
+        assertThat(avatarUrl).isEqualTo("/uploads/avatars/avatar.png");
+        // No transaction in this test, so the chunk files go right away
+        verify(uploadChunkStore).deleteChunk(CHUNK_KEY);
+        verify(fileStorageService).deleteFile(legacyChunk);
+        verify(fileStorageService, never()).saveFile(any(), any());
+    }
+
+    @Test
+    void getSession_ShouldReportResumeOffset() {
+        UploadSessionDto dto = uploadSessionService.getSession(userId, session.getId());
+
+        assertThat(dto.getReceivedBytes()).isZero();
+        assertThat(dto.getTotalSize()).isEqualTo(2048);
+        assertThat(dto.isComplete()).isFalse();
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
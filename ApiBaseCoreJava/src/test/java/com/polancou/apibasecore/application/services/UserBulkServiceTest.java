@@ -0,0 +1,133 @@
+package com.polancou.apibasecore.application.services;
+
+import com.polancou.apibasecore.application.dtos.BulkOperationResultDto;
+import com.polancou.apibasecore.application.dtos.BulkUpdateUsersDto;
+import com.polancou.apibasecore.application.dtos.UserImportResultDto;
+import com.polancou.apibasecore.application.interfaces.IEncryptionService;
+import com.polancou.apibasecore.application.interfaces.IUserChangeNotifier;
+import com.polancou.apibasecore.domain.enums.RolUsuario;
+import com.polancou.apibasecore.infrastructure.repositories.AddressRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UploadSessionRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserBulkServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private AddressRepository addressRepository;
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+    @Mock
+    private IEncryptionService encryptionService;
+    @Mock
+    private IUserChangeNotifier userChangeNotifier;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void importUsers_WithMixedLines_ShouldReportEachLineInOrder() throws IOException {
+        UserBulkService service = service(500, 500);
+        when(encryptionService.encryptAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("EXISTE@email.com"));
+        String ndjson = String.join("\n",
+                user("Ana", "ana@email.com"),
+                "",
+                "{no es json",
+                user("Luis", "no-es-email"),
+                user("Ana Copia", "ANA@email.com"),
+                user("Existente", "existe@email.com"),
+                user("Eva", "eva@email.com"));
+
+        List<UserImportResultDto> results = importAll(service, ndjson);
+
+        assertThat(results).extracting(UserImportResultDto::getLine).containsExactly(1L, 3L, 4L, 5L, 6L, 7L);
+        assertThat(results).extracting(UserImportResultDto::getStatus).containsExactly(
+                UserImportResultDto.CREATED, UserImportResultDto.REJECTED, UserImportResultDto.REJECTED,
+                UserImportResultDto.REJECTED, UserImportResultDto.REJECTED, UserImportResultDto.CREATED);
+        assertThat(results.get(1).getMessage()).isEqualTo("JSON inválido.");
+        assertThat(results.get(3).getMessage()).isEqualTo("El email ya está registrado.");
+        assertThat(results.get(4).getMessage()).isEqualTo("El email ya está registrado.");
+        verify(userRepository).saveAll(anyList());
+        verify(userRepository, never()).findExistingTaxIds(anyCollection());
+    }
+
+    @Test
+    void importUsers_WithChunkLargerThanInList_ShouldSplitTheDuplicateProbe() throws IOException {
+        UserBulkService service = service(2500, 500);
+        when(encryptionService.encryptAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            lines.add(user("Usuario " + i, "usuario" + i + "@email.com"));
+        }
+
+        List<UserImportResultDto> results = importAll(service, String.join("\n", lines));
+
+        assertThat(results).hasSize(2500).allMatch(r -> UserImportResultDto.CREATED.equals(r.getStatus()));
+        ArgumentCaptor<Collection<String>> probes = ArgumentCaptor.captor();
+        verify(userRepository, times(3)).findExistingEmails(probes.capture());
+        assertThat(probes.getAllValues()).allMatch(probe -> probe.size() <= 1000);
+    }
+
+    @Test
+    void updateUsers_WithChunkSizeAboveInListLimit_ShouldClampTheChunks() {
+        UserBulkService service = service(500, 5000);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        BulkUpdateUsersDto updateDto = new BulkUpdateUsersDto();
+        updateDto.setIds(ids);
+        updateDto.setRol("Admin");
+        when(userRepository.updateRolByIds(eq(RolUsuario.Admin), anyCollection()))
+                .thenAnswer(invocation -> invocation.<Collection<UUID>>getArgument(1).size());
+
+        BulkOperationResultDto result = service.updateUsers(updateDto);
+
+        assertThat(result.getAffected()).isEqualTo(2500);
+        ArgumentCaptor<Collection<UUID>> chunks = ArgumentCaptor.captor();
+        verify(userRepository, times(3)).updateRolByIds(eq(RolUsuario.Admin), chunks.capture());
+        assertThat(chunks.getAllValues()).allMatch(chunk -> chunk.size() <= 1000);
+        verify(userChangeNotifier, times(3)).usersChanged(any());
+    }
+
+    private UserBulkService service(int importChunkSize, int bulkChunkSize) {
+        return new UserBulkService(userRepository, addressRepository, uploadSessionRepository, encryptionService,
+                userChangeNotifier, transactionManager, JsonMapper.builder().build(),
+                Validation.buildDefaultValidatorFactory().getValidator(), importChunkSize, bulkChunkSize);
+    }
+
+    private static List<UserImportResultDto> importAll(UserBulkService service, String ndjson) throws IOException {
+        List<UserImportResultDto> results = new ArrayList<>();
+        service.importUsers(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), results::addAll);
+        return results;
+    }
+
+    private static String user(String name, String email) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + email + "\",\"password\":\"Secreta123\",\"phone\":\"5512345678\"}";
+    }
+}
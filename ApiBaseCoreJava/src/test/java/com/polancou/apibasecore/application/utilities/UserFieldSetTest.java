@@ -0,0 +1,67 @@
+package com.polancou.apibasecore.application.utilities;
+
+import com.polancou.apibasecore.application.dtos.AddressDto;
+import com.polancou.apibasecore.application.exceptions.ValidationException;
+import com.polancou.apibasecore.domain.enums.RolUsuario;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserFieldSetTest {
+
+    @Test
+    void parse_WithMixedCaseAndOrder_ShouldKeepDtoOrder() {
+        UserFieldSet fieldSet = UserFieldSet.parse(" Email, name ,TAX_ID");
+
+        assertThat(fieldSet.getFields()).containsExactly("name", "email", "tax_id");
+        assertThat(fieldSet.getAttributes()).containsExactly("name", "email", "taxId");
+    }
+
+    @Test
+    void parse_WithUnknownField_ShouldThrowValidationException() {
+        ValidationException ex = assertThrows(ValidationException.class, () -> UserFieldSet.parse("name,password"));
+
+        assertThat(ex.getMessage()).isEqualTo("Campo desconocido en 'fields': password");
+    }
+
+    @Test
+    void parse_WithOnlySeparators_ShouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> UserFieldSet.parse(" , ,"));
+    }
+
+    @Test
+    void getAttributes_WithAddressesButNoId_ShouldStillSelectId() {
+        UserFieldSet fieldSet = UserFieldSet.parse("addresses,name");
+
+        assertThat(fieldSet.includesAddresses()).isTrue();
+        assertThat(fieldSet.getAttributes()).containsExactly("id", "name");
+    }
+
+    @Test
+    void toSparseProfile_ShouldSerializeOnlyRequestedFields() {
+        UUID id = UUID.randomUUID();
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 30);
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("name", "Ana");
+        row.put("createdAt", createdAt);
+        row.put("rol", RolUsuario.Admin);
+        AddressDto address = new AddressDto();
+        address.setName("Casa");
+
+        Map<String, Object> profile = UserMapper.toSparseProfile(row,
+                UserFieldSet.parse("name,created_at,rol,addresses"), List.of(address));
+
+        assertThat(profile).containsOnlyKeys("name", "created_at", "rol", "addresses");
+        assertThat(profile.get("created_at")).isEqualTo(createdAt.toString());
+        assertThat(profile.get("rol")).isEqualTo("Admin");
+        assertThat(profile.get("addresses")).isEqualTo(List.of(address));
+    }
+}
@@ -0,0 +1,49 @@
+package com.polancou.apibasecore.application.utilities;
+
+import com.polancou.apibasecore.application.exceptions.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ValidatingImageInputStreamTest {
+
+    private static final byte[] PNG_HEADER = { (byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A };
+
+    @Test
+    void read_WithValidSignature_ShouldPassThroughAllBytes() throws IOException {
+        byte[] content = withHeader(PNG_HEADER, 100);
+
+        try (InputStream stream = new ValidatingImageInputStream(new ByteArrayInputStream(content), ".png", 1024)) {
+            assertThat(stream.readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void read_WithMismatchedSignature_ShouldThrowOnFirstRead() {
+        byte[] content = withHeader(PNG_HEADER, 100);
+        InputStream stream = new ValidatingImageInputStream(new ByteArrayInputStream(content), ".jpg", 1024);
+
+        ValidationException ex = assertThrows(ValidationException.class, () -> stream.read(new byte[16]));
+        assertThat(ex.getMessage()).isEqualTo(ValidatingImageInputStream.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void read_PastLimit_ShouldThrow() {
+        byte[] content = withHeader(PNG_HEADER, 2048);
+        InputStream stream = new ValidatingImageInputStream(new ByteArrayInputStream(content), ".png", 1024);
+
+        ValidationException ex = assertThrows(ValidationException.class, stream::readAllBytes);
+        assertThat(ex.getMessage()).isEqualTo(ValidatingImageInputStream.TOO_LARGE);
+    }
+
+    private static byte[] withHeader(byte[] header, int totalLength) {
+        byte[] content = new byte[totalLength];
+        System.arraycopy(header, 0, content, 0, header.length);
+        return content;
+    }
+}
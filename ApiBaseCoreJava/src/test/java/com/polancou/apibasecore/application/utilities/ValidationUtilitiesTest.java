@@ -0,0 +1,89 @@
+package com.polancou.apibasecore.application.utilities;
+
+import com.polancou.apibasecore.application.dtos.RegistroUsuarioDto;
+import com.polancou.apibasecore.application.dtos.UpdateUserDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ValidationUtilitiesTest {
+
+    @Test
+    void validateTaxIdRFC_AcceptsValidRfcs() {
+        assertThat(ValidationUtilities.validateTaxIdRFC("GODE561231GR8")).isTrue();
+        assertThat(ValidationUtilities.validateTaxIdRFC("gode561231gr8")).isTrue();
+        assertThat(ValidationUtilities.validateTaxIdRFC("SAT970701NN3")).isTrue();
+        assertThat(ValidationUtilities.validateTaxIdRFC("XAXX010101000")).isTrue();
+    }
+
+    @Test
+    void validateTaxIdRFC_RejectsBadCheckDigitDateOrShape() {
+        assertThat(ValidationUtilities.validateTaxIdRFC("GODE561231GR9")).isFalse();
+        assertThat(ValidationUtilities.validateTaxIdRFC("GODE561331GR8")).isFalse();
+        assertThat(ValidationUtilities.validateTaxIdRFC("SAT970230NN3")).isFalse();
+        assertThat(ValidationUtilities.validateTaxIdRFC("AB1970701NN3")).isFalse();
+        assertThat(ValidationUtilities.validateTaxIdRFC("GODE561231GR")).isFalse();
+        assertThat(ValidationUtilities.validateTaxIdRFC(null)).isFalse();
+    }
+
+    @Test
+    void validateTaxIdRFC_AppliesGregorianLeapYears() {
+        // "00" is 2000, a leap year; 1996 is leap, 1997 is not
+        assertThat(ValidationUtilities.validateTaxIdRFC("GODE000229GR4")).isTrue();
+        assertThat(ValidationUtilities.validateTaxIdRFC("GODE960229GR7")).isTrue();
+        assertThat(ValidationUtilities.validateTaxIdRFC("GODE970229GRA")).isFalse();
+    }
+
+    @Test
+    void validatePhoneAndresFormat_CountsOnlyDigits() {
+        assertThat(ValidationUtilities.validatePhoneAndresFormat("5512345678")).isTrue();
+        assertThat(ValidationUtilities.validatePhoneAndresFormat("(55) 1234-5678")).isTrue();
+        assertThat(ValidationUtilities.validatePhoneAndresFormat("551234567")).isFalse();
+        assertThat(ValidationUtilities.validatePhoneAndresFormat("55123456789")).isFalse();
+        assertThat(ValidationUtilities.validatePhoneAndresFormat("")).isFalse();
+    }
+
+    @Test
+    void validateEmail_ChecksLocalPartDomainAndTld() {
+        assertThat(ValidationUtilities.validateEmail("user.name+tag@example.com")).isTrue();
+        assertThat(ValidationUtilities.validateEmail("x@sub.example.org")).isTrue();
+        assertThat(ValidationUtilities.validateEmail("a@b.c")).isFalse();
+        assertThat(ValidationUtilities.validateEmail("a@b.com.")).isFalse();
+        assertThat(ValidationUtilities.validateEmail("a@-b.com")).isFalse();
+        assertThat(ValidationUtilities.validateEmail("a..b@c.com")).isFalse();
+        assertThat(ValidationUtilities.validateEmail("a@@b.com")).isFalse();
+    }
+
+    @Test
+    void validate_ReturnsFirstErrorAndSkipsNullsWhenPartial() {
+        RegistroUsuarioDto dto = new RegistroUsuarioDto();
+        dto.setEmail("test@example.com");
+        dto.setPhone("123");
+        assertThat(ValidationUtilities.validate(dto, false)).isEqualTo(ValidationUtilities.INVALID_PHONE);
+
+        dto.setPhone("5512345678");
+        dto.setTaxId("");
+        assertThat(ValidationUtilities.validate(dto, false)).isNull();
+
+        UpdateUserDto update = new UpdateUserDto();
+        assertThat(ValidationUtilities.validate(update, true)).isNull();
+        update.setTaxId("BAD");
+        assertThat(ValidationUtilities.validate(update, true)).isEqualTo(ValidationUtilities.INVALID_TAX_ID);
+    }
+
+    @Test
+    void validateAll_KeepsResultsAlignedWithInput() {
+        RegistroUsuarioDto valid = new RegistroUsuarioDto();
+        valid.setEmail("test@example.com");
+        valid.setPhone("5512345678");
+        RegistroUsuarioDto invalid = new RegistroUsuarioDto();
+        invalid.setEmail("bad");
+        invalid.setPhone("5512345678");
+
+        List<String> errors = ValidationUtilities.validateAll(List.of(valid, invalid, valid), false);
+
+        assertThat(errors).containsExactly(null, ValidationUtilities.INVALID_EMAIL, null);
+    }
+}
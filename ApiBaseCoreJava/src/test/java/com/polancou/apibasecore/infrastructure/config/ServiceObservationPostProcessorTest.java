@@ -0,0 +1,106 @@
+package com.polancou.apibasecore.infrastructure.config;
+
+import com.polancou.apibasecore.application.interfaces.IEncryptionService;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ServiceObservationPostProcessorTest {
+
+    @Mock
+    private ObjectProvider<ObservationRegistry> registryProvider;
+
+    private TestObservationRegistry registry;
+    private ServiceObservationPostProcessor postProcessor;
+
+    @BeforeEach
+    void setUp() {
+        registry = TestObservationRegistry.create();
+        postProcessor = new ServiceObservationPostProcessor(registryProvider, List.of(IEncryptionService.class));
+    }
+
+    @Test
+    void ObservedService_Call_RecordsSuccessfulObservation() {
+        when(registryProvider.getIfAvailable(any())).thenReturn(registry);
+        IEncryptionService service = (IEncryptionService) postProcessor.postProcessAfterInitialization(new FakeEncryption(), "encryption");
+
+        assertThat(service.encrypt("hola")).isEqualTo("enc:hola");
+
+        TestObservationRegistryAssert.assertThat(registry)
+                .hasObservationWithNameEqualTo(ServiceObservationPostProcessor.SERVICE_CALLS)
+                .that()
+                .hasContextualNameEqualTo("IEncryptionService.encrypt")
+                .hasLowCardinalityKeyValue("service", "IEncryptionService")
+                .hasLowCardinalityKeyValue("outcome", "success")
+                .hasBeenStopped();
+    }
+
+    @Test
+    void ObservedService_Failure_RecordsErrorAndRethrows() {
+        when(registryProvider.getIfAvailable(any())).thenReturn(registry);
+        IEncryptionService service = (IEncryptionService) postProcessor.postProcessAfterInitialization(new FakeEncryption(), "encryption");
+
+        assertThatThrownBy(() -> service.decrypt("x")).isInstanceOf(IllegalArgumentException.class);
+
+        TestObservationRegistryAssert.assertThat(registry)
+                .hasObservationWithNameEqualTo(ServiceObservationPostProcessor.SERVICE_CALLS)
+                .that()
+                .hasContextualNameEqualTo("IEncryptionService.decrypt")
+                .hasLowCardinalityKeyValue("outcome", "error")
+                .hasBeenStopped();
+    }
+
+    @Test
+    void ObservedService_PublicMethodOutsideInterface_IsNotObserved() {
+        // Lenient: with the pointcut working the registry is never asked for
+        lenient().when(registryProvider.getIfAvailable(any())).thenReturn(registry);
+        FakeEncryption service = (FakeEncryption) postProcessor.postProcessAfterInitialization(new FakeEncryption(), "encryption");
+
+        // What a metrics binder does on every scrape
+        assertThat(service.getCalls()).isZero();
+        service.toString();
+
+        TestObservationRegistryAssert.assertThat(registry).doesNotHaveAnyObservation();
+    }
+
+    @Test
+    void UnrelatedBean_IsReturnedUnchanged() {
+        Object bean = new Object();
+
+        assertThat(postProcessor.postProcessAfterInitialization(bean, "other")).isSameAs(bean);
+    }
+
+    static class FakeEncryption implements IEncryptionService {
+        private int calls;
+
+        @Override
+        public String encrypt(String plainText) {
+            calls++;
+            return "enc:" + plainText;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        @Override
+        public String decrypt(String cipherText) {
+            throw new IllegalArgumentException("Texto cifrado inválido");
+        }
+    }
+}
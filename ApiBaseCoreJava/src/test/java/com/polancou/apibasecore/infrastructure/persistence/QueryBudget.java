@@ -0,0 +1,47 @@
+package com.polancou.apibasecore.infrastructure.persistence;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Fails a test when the code under test runs more SQL statements than allowed, e.g.
+ * {@code QueryBudget.atMost(2, () -> service.listUsers())}. Counts come from
+ * {@link QueryCountingSessionListener}; the statements are listed when
+ * {@link RecordingStatementInspector} is configured as Hibernate's statement inspector.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static <T> T atMost(int maxQueries, Supplier<T> work) {
+        QueryStats.begin();
+        RecordingStatementInspector.start();
+        T result;
+        QueryStats stats;
+        List<String> statements;
+        try {
+            result = work.get();
+        } finally {
+            stats = QueryStats.end();
+            statements = RecordingStatementInspector.stop();
+        }
+        if (stats.getQueries() > maxQueries) {
+            StringBuilder message = new StringBuilder()
+                    .append("Expected at most ").append(maxQueries).append(" queries but ")
+                    .append(stats.getQueries()).append(" were executed:");
+            for (String sql : statements) {
+                message.append("\n  ").append(sql);
+            }
+            throw new AssertionError(message.toString());
+        }
+        return result;
+    }
+
+    public static void atMost(int maxQueries, Runnable work) {
+        atMost(maxQueries, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,134 @@
+package com.polancou.apibasecore.infrastructure.persistence;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routes between two in-memory databases that each know their own name, standing in for the
+ * primary and a replica.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(5);
+
+    private final AtomicLong now = new AtomicLong();
+    private FlakyDataSource replica;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        replica = new FlakyDataSource(database("replica"));
+        routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica), WINDOW, now::get);
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void ReadOnlyTransaction_GoesToReplica() {
+        assertThat(nodeFor(true)).isEqualTo("replica");
+    }
+
+    @Test
+    void ReadWriteTransaction_GoesToPrimary() {
+        assertThat(nodeFor(false)).isEqualTo("primary");
+    }
+
+    @Test
+    void UsersOwnWrite_KeepsTheirReadsOnPrimaryForTheWindow() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user-1", null, List.of()));
+
+        nodeFor(false);
+
+        assertThat(nodeFor(true)).isEqualTo("primary");
+        now.addAndGet(WINDOW.toNanos());
+        assertThat(nodeFor(true)).isEqualTo("replica");
+    }
+
+    @Test
+    void AnotherUsersWrite_DoesNotPinReadsToPrimary() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user-1", null, List.of()));
+        nodeFor(false);
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user-2", null, List.of()));
+
+        assertThat(nodeFor(true)).isEqualTo("replica");
+    }
+
+    @Test
+    void FailedReplica_FallsBackToPrimaryUntilHealthCheckSeesItAgain() {
+        replica.down = true;
+
+        assertThat(nodeFor(true)).isEqualTo("primary");
+        assertThat(routingDataSource.getHealthyReplicas()).isZero();
+
+        replica.down = false;
+        assertThat(nodeFor(true)).isEqualTo("primary");
+
+        routingDataSource.checkReplicas();
+        assertThat(routingDataSource.getHealthyReplicas()).isEqualTo(1);
+        assertThat(nodeFor(true)).isEqualTo("replica");
+    }
+
+    private String nodeFor(boolean readOnly) {
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table node (name varchar(20))");
+        jdbc.update("insert into node (name) values (?)", name);
+        return dataSource;
+    }
+
+    private static class FlakyDataSource extends DelegatingDataSource {
+
+        private volatile boolean down;
+
+        FlakyDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) throw new SQLException("Replica unavailable");
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.polancou.apibasecore.infrastructure.repositories;
+
+import com.polancou.apibasecore.application.dtos.AddressDto;
+import com.polancou.apibasecore.application.dtos.PerfilUsuarioDto;
+import com.polancou.apibasecore.application.dtos.UserFilterDto;
+import com.polancou.apibasecore.application.interfaces.IEncryptionService;
+import com.polancou.apibasecore.application.interfaces.IUserChangeNotifier;
+import com.polancou.apibasecore.application.services.UserService;
+import com.polancou.apibasecore.domain.enums.RolUsuario;
+import com.polancou.apibasecore.domain.models.Address;
+import com.polancou.apibasecore.domain.models.Usuario;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The user listings of {@link UserService}, full and sparse, run against an in-memory database so
+ * the filter specification, the sort and the projection are built by the real repository.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class UserRepositoryListingTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+
+    private UserService userService;
+    private UUID anaId;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService(userRepository, addressRepository,
+                mock(IEncryptionService.class), mock(IUserChangeNotifier.class));
+
+        Usuario ana = new Usuario("Ana", "ana@test.com", "5550001", RolUsuario.User, "TAX1");
+        ana.addAddress(new Address("Casa", "Calle 1", "MX"));
+        ana.addAddress(new Address("Trabajo", "Avenida 2", "MX"));
+        entityManager.persist(ana);
+        entityManager.persist(new Usuario("Carlos", "carlos@otro.com", "5550002", RolUsuario.User, null));
+        entityManager.persist(new Usuario("Beatriz", "beatriz@test.com", "5550003", RolUsuario.Admin, "TAX3"));
+        entityManager.flush();
+        entityManager.clear();
+        anaId = ana.getId();
+    }
+
+    @Test
+    void GetUsers_WithoutFilter_ReturnsEveryUser() {
+        List<PerfilUsuarioDto> profiles = userService.getUsers(new UserFilterDto());
+
+        assertThat(profiles).extracting(PerfilUsuarioDto::getName).containsExactlyInAnyOrder("Ana", "Beatriz", "Carlos");
+    }
+
+    @Test
+    void GetUsers_WithFilterAndSort_ReturnsMatchesInOrder() {
+        UserFilterDto filter = filter("email+ew+test.com", "name", null);
+
+        List<PerfilUsuarioDto> profiles = userService.getUsers(filter);
+
+        assertThat(profiles).extracting(PerfilUsuarioDto::getName).containsExactly("Ana", "Beatriz");
+    }
+
+    @Test
+    void GetUsersFields_ReturnsOnlyTheRequestedFields() {
+        UserFilterDto filter = filter(null, "email", "name,email");
+
+        List<Map<String, Object>> profiles = userService.getUsersFields(filter);
+
+        assertThat(profiles).extracting(profile -> profile.get("email"))
+                .containsExactly("ana@test.com", "beatriz@test.com", "carlos@otro.com");
+        assertThat(profiles).allSatisfy(profile -> assertThat(profile).containsOnlyKeys("name", "email"));
+    }
+
+    @Test
+    void GetUsersFields_WithFilterAndAddresses_AttachesEachUsersAddresses() {
+        UserFilterDto filter = filter("name+eq+Ana", null, "name,addresses");
+
+        List<Map<String, Object>> profiles = userService.getUsersFields(filter);
+
+        assertThat(profiles).singleElement().satisfies(profile -> {
+            assertThat(profile).containsOnlyKeys("name", "addresses");
+            assertThat(profile.get("name")).isEqualTo("Ana");
+            assertThat(profile.get("addresses")).asInstanceOf(InstanceOfAssertFactories.list(AddressDto.class))
+                    .extracting(AddressDto::getStreet).containsExactlyInAnyOrder("Calle 1", "Avenida 2");
+        });
+    }
+
+    @Test
+    void GetUsersFields_WithNullableAndEnumFields_ConvertsLikeTheFullProfile() {
+        UserFilterDto filter = filter("name+eq+Carlos", null, "tax_id,rol");
+
+        List<Map<String, Object>> profiles = userService.getUsersFields(filter);
+
+        assertThat(profiles).singleElement().satisfies(profile -> {
+            assertThat(profile).containsEntry("tax_id", null);
+            assertThat(profile).containsEntry("rol", "User");
+        });
+    }
+
+    @Test
+    void GetUserFieldsById_ReturnsThatUsersFields() {
+        Map<String, Object> profile = userService.getUserFieldsById(anaId, "id,phone");
+
+        assertThat(profile).containsOnlyKeys("id", "phone");
+        assertThat(profile).containsEntry("id", anaId).containsEntry("phone", "5550001");
+    }
+
+    private static UserFilterDto filter(String filter, String sortedBy, String fields) {
+        UserFilterDto dto = new UserFilterDto();
+        dto.setFilter(filter);
+        dto.setSortedBy(sortedBy);
+        dto.setFields(fields);
+        return dto;
+    }
+}
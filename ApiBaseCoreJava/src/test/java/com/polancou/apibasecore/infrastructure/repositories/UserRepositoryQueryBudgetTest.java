@@ -0,0 +1,85 @@
+package com.polancou.apibasecore.infrastructure.repositories;
+
+import com.polancou.apibasecore.application.dtos.PerfilUsuarioDto;
+import com.polancou.apibasecore.application.dtos.UserFilterDto;
+import com.polancou.apibasecore.application.interfaces.IEncryptionService;
+import com.polancou.apibasecore.application.interfaces.IUserChangeNotifier;
+import com.polancou.apibasecore.application.services.UserService;
+import com.polancou.apibasecore.domain.enums.RolUsuario;
+import com.polancou.apibasecore.domain.models.Address;
+import com.polancou.apibasecore.domain.models.Usuario;
+import com.polancou.apibasecore.infrastructure.persistence.QueryBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Query-count budgets for the user listing and token lookups, against an in-memory database.
+ * A failure here usually means a lazy association is being walked one row at a time.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.polancou.apibasecore.infrastructure.persistence.RecordingStatementInspector"
+})
+class UserRepositoryQueryBudgetTest {
+
+    private static final int USERS = 50;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        // The listing under test is the service's: filter specification, sort and mapping included
+        userService = new UserService(userRepository, addressRepository,
+                mock(IEncryptionService.class), mock(IUserChangeNotifier.class));
+        for (int i = 0; i < USERS; i++) {
+            Usuario usuario = new Usuario("Usuario " + i, "user" + i + "@test.com", "555000" + i, RolUsuario.User, "TAX" + i);
+            usuario.addAddress(new Address("Casa", "Calle " + i, "MX"));
+            usuario.addAddress(new Address("Trabajo", "Avenida " + i, "MX"));
+            usuario.setRefreshToken("refresh-" + i, LocalDateTime.now(ZoneOffset.UTC).plusDays(1));
+            entityManager.persist(usuario);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void ListUsers_WithAddresses_UsesAtMostTwoQueries() {
+        UserFilterDto filter = new UserFilterDto();
+        filter.setFilter("email+ew+test.com");
+        filter.setSortedBy("name");
+
+        // One select for the users and one batched select for all their addresses
+        // (hibernate.default_batch_fetch_size covers the 50 users); a lazy load per user would be 51
+        List<PerfilUsuarioDto> profiles = QueryBudget.atMost(2, () -> userService.getUsers(filter));
+
+        assertThat(profiles).hasSize(USERS);
+        assertThat(profiles).extracting(PerfilUsuarioDto::getName).isSorted();
+        assertThat(profiles).allSatisfy(profile -> assertThat(profile.getAddresses()).hasSize(2));
+    }
+
+    @Test
+    void FindByRefreshToken_UsesSingleQuery() {
+        Optional<Usuario> usuario = QueryBudget.atMost(1, () -> userRepository.findByRefreshToken("refresh-7"));
+
+        assertThat(usuario).map(Usuario::getEmail).contains("user7@test.com");
+    }
+}
@@ -0,0 +1,119 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.infrastructure.repositories.UploadSessionRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvatarGarbageCollectionJobTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+    @Mock
+    private SweepableFileStore fileStore;
+
+    @Test
+    void collect_ShouldMarkEveryColumnAcrossPagesAndChunks() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(userRepository.findAvatarReferencesAfter(isNull(), eq(Limit.of(2)))).thenReturn(List.of(
+                new References(first, "/uploads/avatars/a.png", "/uploads/avatars/a-64.png", null, ""),
+                new References(second, null, null, "/uploads/avatars/b-128.png", "/uploads/avatars/b-512.png")));
+        when(userRepository.findAvatarReferencesAfter(second, Limit.of(2))).thenReturn(List.of(
+                new References(UUID.randomUUID(), "https://cdn.example.com/uploads/avatars/c.png", null, null, null)));
+        when(uploadSessionRepository.findAllChunkUrls()).thenReturn(List.of("/uploads/avatars/parte.bin"));
+        when(fileStore.sweepOrphans(any(), any())).thenReturn(new SweepResult());
+
+        job(true, 2).collect();
+
+        Predicate<String> isReferenced = capturePredicate();
+        assertThat(List.of("a.png", "a-64.png", "b-128.png", "b-512.png", "c.png", "parte.bin")).allMatch(isReferenced);
+        assertThat(List.of("huerfano.png", "", "a.jpg")).noneMatch(isReferenced);
+        verify(userRepository, times(2)).findAvatarReferencesAfter(any(), any());
+    }
+
+    @Test
+    void collect_ShouldSweepWithCutoffBeforeTheGracePeriod() throws IOException {
+        when(userRepository.findAvatarReferencesAfter(any(), any())).thenReturn(List.of());
+        when(fileStore.sweepOrphans(any(), any())).thenReturn(new SweepResult());
+        Instant before = Instant.now();
+
+        job(true, 100).collect();
+
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(fileStore).sweepOrphans(any(), cutoff.capture());
+        assertThat(cutoff.getValue()).isBetween(before.minus(Duration.ofHours(24)), Instant.now().minus(Duration.ofHours(24)));
+    }
+
+    @Test
+    void collect_ShouldAccumulateWhatTheSweepReclaimed() throws IOException {
+        when(userRepository.findAvatarReferencesAfter(any(), any())).thenReturn(List.of());
+        SweepResult result = new SweepResult();
+        result.add(100);
+        result.add(50);
+        when(fileStore.sweepOrphans(any(), any())).thenReturn(result);
+        AvatarGarbageCollectionJob job = job(true, 100);
+
+        job.collect();
+        job.collect();
+
+        assertThat(job.getRuns()).isEqualTo(2);
+        assertThat(job.getFilesReclaimed()).isEqualTo(4);
+        assertThat(job.getBytesReclaimed()).isEqualTo(300);
+    }
+
+    @Test
+    void collect_WhenSweepFails_ShouldNotCountTheRun() throws IOException {
+        when(userRepository.findAvatarReferencesAfter(any(), any())).thenReturn(List.of());
+        when(fileStore.sweepOrphans(any(), any())).thenThrow(new IOException("disco lleno"));
+        AvatarGarbageCollectionJob job = job(true, 100);
+
+        job.collect();
+
+        assertThat(job.getRuns()).isZero();
+    }
+
+    @Test
+    void collect_WhenDisabled_ShouldDoNothing() {
+        job(false, 100).collect();
+
+        verifyNoInteractions(userRepository, uploadSessionRepository, fileStore);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Predicate<String> capturePredicate() throws IOException {
+        ArgumentCaptor<Predicate<String>> captor = ArgumentCaptor.forClass(Predicate.class);
+        verify(fileStore).sweepOrphans(captor.capture(), any());
+        return captor.getValue();
+    }
+
+    private AvatarGarbageCollectionJob job(boolean enabled, int pageSize) {
+        return new AvatarGarbageCollectionJob(userRepository, uploadSessionRepository, fileStore,
+                enabled, pageSize, Duration.ofHours(24));
+    }
+
+    private record References(UUID getId, String getAvatarUrl, String getAvatarUrl64,
+                              String getAvatarUrl128, String getAvatarUrl512)
+            implements UserRepository.AvatarReferences {
+    }
+}
@@ -0,0 +1,204 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.application.interfaces.IFileStorageService;
+import com.polancou.apibasecore.application.interfaces.IThumbnailService;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the mirror against a local HTTP stub standing in for the provider's picture host.
+ */
+@ExtendWith(MockitoExtension.class)
+class AvatarMirrorServiceTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private IFileStorageService fileStorageService;
+    @Mock
+    private IThumbnailService thumbnailService;
+
+    private HttpServer server;
+    private AvatarMirrorService mirrorService;
+    private String pictureUrl;
+    private final AtomicInteger fullDownloads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byte[] png = pngBytes();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/photo", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                fullDownloads.incrementAndGet();
+                exchange.getResponseHeaders().add("Content-Type", "image/png");
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.sendResponseHeaders(200, png.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(png);
+                }
+            }
+            exchange.close();
+        });
+        server.createContext("/moved", exchange -> redirect(exchange, "/photo"));
+        // 127.0.0.1 is the same server, but not an allowed host
+        server.createContext("/escape", exchange -> redirect(exchange, "http://127.0.0.1:" + server.getAddress().getPort() + "/photo"));
+        server.createContext("/loop", exchange -> redirect(exchange, "/loop"));
+        server.start();
+        pictureUrl = "http://localhost:" + server.getAddress().getPort() + "/photo";
+
+        mirrorService = new AvatarMirrorService(userRepository, fileStorageService, thumbnailService, null,
+                HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build(),
+                Duration.ofSeconds(5), Duration.ofDays(7), List.of("localhost"), true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void mirror_FirstTime_ShouldStoreAndSwapAvatar() throws IOException {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findExternalAvatarState(userId)).thenReturn(Optional.of(state(pictureUrl, null, null)));
+        when(fileStorageService.saveFile(any(InputStream.class), anyString())).thenAnswer(invocation -> {
+            invocation.getArgument(0, InputStream.class).readAllBytes();
+            return "/uploads/avatars/abc.png";
+        });
+        when(fileStorageService.openFile("abc.png")).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(userRepository.swapMirroredAvatar(eq(userId), eq(pictureUrl), eq(pictureUrl), eq("/uploads/avatars/abc.png"),
+                eq(ETAG), any(), any(LocalDateTime.class))).thenReturn(1);
+
+        mirrorService.mirror(userId, pictureUrl);
+
+        assertThat(fullDownloads.get()).isEqualTo(1);
+        verify(thumbnailService).scheduleVariants(userId, "/uploads/avatars/abc.png");
+    }
+
+    @Test
+    void mirror_WithUnchangedPicture_ShouldRevalidateWithoutDownloading() throws IOException {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findExternalAvatarState(userId))
+                .thenReturn(Optional.of(state("/uploads/avatars/abc.png", ETAG, LocalDateTime.now().minusDays(30))));
+
+        mirrorService.mirror(userId, pictureUrl);
+
+        assertThat(fullDownloads.get()).isZero();
+        verify(userRepository).markExternalAvatarChecked(eq(userId), eq(pictureUrl), eq(ETAG), any(), any(LocalDateTime.class));
+        verify(fileStorageService, never()).saveFile(any(), any());
+    }
+
+    @Test
+    void mirror_WhenUserUploadedOwnAvatarMeanwhile_ShouldDoNothing() throws IOException {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findExternalAvatarState(userId)).thenReturn(Optional.of(new State("/uploads/avatars/own.png", null, null, null)));
+
+        mirrorService.mirror(userId, pictureUrl);
+
+        assertThat(fullDownloads.get()).isZero();
+        verify(fileStorageService, never()).saveFile(any(), any());
+    }
+
+    @Test
+    void mirror_WithRedirectToAllowedHost_ShouldFollowIt() throws IOException {
+        UUID userId = UUID.randomUUID();
+        String movedUrl = "http://localhost:" + server.getAddress().getPort() + "/moved";
+        when(userRepository.findExternalAvatarState(userId)).thenReturn(Optional.of(new State(movedUrl, movedUrl, null, null)));
+        when(fileStorageService.saveFile(any(InputStream.class), anyString())).thenAnswer(invocation -> {
+            invocation.getArgument(0, InputStream.class).readAllBytes();
+            return "/uploads/avatars/abc.png";
+        });
+        when(fileStorageService.openFile("abc.png")).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(userRepository.swapMirroredAvatar(eq(userId), eq(movedUrl), eq(movedUrl), eq("/uploads/avatars/abc.png"),
+                eq(ETAG), any(), any(LocalDateTime.class))).thenReturn(1);
+
+        mirrorService.mirror(userId, movedUrl);
+
+        assertThat(fullDownloads.get()).isEqualTo(1);
+        verify(thumbnailService).scheduleVariants(userId, "/uploads/avatars/abc.png");
+    }
+
+    @Test
+    void mirror_WithRedirectToHostNotAllowed_ShouldNotFollowIt() throws IOException {
+        UUID userId = UUID.randomUUID();
+        String escapeUrl = "http://localhost:" + server.getAddress().getPort() + "/escape";
+        when(userRepository.findExternalAvatarState(userId)).thenReturn(Optional.of(new State(escapeUrl, escapeUrl, null, null)));
+
+        mirrorService.mirror(userId, escapeUrl);
+
+        assertThat(fullDownloads.get()).isZero();
+        verify(fileStorageService, never()).saveFile(any(), any());
+    }
+
+    @Test
+    void mirror_WithRedirectLoop_ShouldGiveUp() throws IOException {
+        UUID userId = UUID.randomUUID();
+        String loopUrl = "http://localhost:" + server.getAddress().getPort() + "/loop";
+        when(userRepository.findExternalAvatarState(userId)).thenReturn(Optional.of(new State(loopUrl, loopUrl, null, null)));
+
+        mirrorService.mirror(userId, loopUrl);
+
+        verify(fileStorageService, never()).saveFile(any(), any());
+        verify(userRepository, never()).swapMirroredAvatar(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private static void redirect(HttpExchange exchange, String location) throws IOException {
+        exchange.getResponseHeaders().add("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+        exchange.close();
+    }
+
+    private UserRepository.ExternalAvatarState state(String avatarUrl, String etag, LocalDateTime checkedAt) {
+        return new State(avatarUrl, pictureUrl, etag, checkedAt);
+    }
+
+    private static byte[] pngBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private record State(String avatarUrl, String externalAvatarUrl, String etag, LocalDateTime checkedAt)
+            implements UserRepository.ExternalAvatarState {
+        public String getAvatarUrl() { return avatarUrl; }
+        public String getAvatarUrl64() { return null; }
+        public String getAvatarUrl128() { return null; }
+        public String getAvatarUrl512() { return null; }
+        public String getExternalAvatarUrl() { return externalAvatarUrl; }
+        public String getExternalAvatarEtag() { return etag; }
+        public String getExternalAvatarLastModified() { return null; }
+        public LocalDateTime getExternalAvatarCheckedAt() { return checkedAt; }
+    }
+}
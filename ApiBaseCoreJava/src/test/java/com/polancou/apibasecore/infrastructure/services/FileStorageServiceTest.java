@@ -0,0 +1,264 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileStorageServiceTest {
+
+    private static final byte[] IMAGE = "imagen-de-prueba".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    private Path uploadDir;
+
+    private FileStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new FileStorageService(uploadDir.toString());
+    }
+
+    @Test
+    void saveFile_ShouldNameTheBlobAfterItsContent() throws Exception {
+        String url = storage.saveFile(new ByteArrayInputStream(IMAGE), "foto.PNG");
+
+        assertThat(url).isEqualTo("/uploads/avatars/" + sha256Hex(IMAGE) + ".png");
+        Path blob = blobPath(url);
+        assertThat(blob).hasBinaryContent(IMAGE);
+        assertThat(blob.resolveSibling(blob.getFileName() + ".ref")).hasContent("1");
+    }
+
+    @Test
+    void saveFile_WithSameBytesTwice_ShouldStoreOnceAndCountBothReferences() throws Exception {
+        String first = storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png");
+        String second = storage.saveFile(new ByteArrayInputStream(IMAGE), "b.png");
+
+        assertThat(second).isEqualTo(first);
+        Path blob = blobPath(first);
+        assertThat(blob.resolveSibling(blob.getFileName() + ".ref")).hasContent("2");
+        try (Stream<Path> files = Files.list(blob.getParent())) {
+            assertThat(files).hasSize(2);
+        }
+    }
+
+    @Test
+    void saveFile_WithDifferentBytes_ShouldStoreSeparateBlobs() throws Exception {
+        String first = storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png");
+        String second = storage.saveFile(new ByteArrayInputStream("otra-imagen".getBytes(StandardCharsets.UTF_8)), "a.png");
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(blobPath(first)).hasBinaryContent(IMAGE);
+        assertThat(blobPath(second)).exists();
+    }
+
+    @Test
+    void saveFile_ShouldNotLeaveUploadTempFiles() throws Exception {
+        storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png");
+        storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png");
+
+        try (Stream<Path> temps = Files.list(uploadDir.resolve("avatars").resolve(".tmp"))) {
+            assertThat(temps).noneMatch(path -> path.getFileName().toString().startsWith("upload-"));
+        }
+    }
+
+    @Test
+    void deleteFile_WithTwoReferences_ShouldKeepTheBlobUntilTheLastOne() throws Exception {
+        String url = storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png");
+        storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png");
+        Path blob = blobPath(url);
+        Path ref = blob.resolveSibling(blob.getFileName() + ".ref");
+
+        storage.deleteFile(url);
+
+        assertThat(blob).exists();
+        assertThat(ref).hasContent("1");
+
+        storage.deleteFile(url);
+
+        assertThat(blob).doesNotExist();
+        assertThat(ref).doesNotExist();
+        assertThat(storage.getFileInfo(blob.getFileName().toString())).isNull();
+    }
+
+    @Test
+    void openFile_ShouldServeTheStoredBytes() throws Exception {
+        String url = storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png");
+        String name = Paths.get(url).getFileName().toString();
+
+        try (InputStream in = storage.openFile(name)) {
+            assertThat(in.readAllBytes()).isEqualTo(IMAGE);
+        }
+        assertThat(storage.getFileInfo(name).getEtag()).isEqualTo(sha256Hex(IMAGE));
+    }
+
+    @Test
+    void migrateFlatFiles_ShouldMoveBlobAndSidecarIntoShards() throws Exception {
+        Path avatars = uploadDir.resolve("avatars");
+        Files.write(avatars.resolve("antiguo.png"), IMAGE);
+        Files.writeString(avatars.resolve("antiguo.png.ref"), "3");
+
+        assertThat(storage.migrateFlatFiles(10)).isEqualTo(1);
+        assertThat(storage.migrateFlatFiles(10)).isZero();
+
+        Path sharded = shardedLegacyPath("antiguo.png");
+        assertThat(sharded).hasBinaryContent(IMAGE);
+        assertThat(sharded.resolveSibling("antiguo.png.ref")).hasContent("3");
+        assertThat(avatars.resolve("antiguo.png")).doesNotExist();
+    }
+
+    @Test
+    void migrateFlatFiles_WithOrphanedSidecarAndNewReferences_ShouldMergeTheCounts() throws Exception {
+        // A crash moved the blob but not its sidecar ("3"); since then one more user took the
+        // blob, counting its implicit reference ("2")
+        Path avatars = uploadDir.resolve("avatars");
+        Path sharded = shardedLegacyPath("antiguo.png");
+        Files.createDirectories(sharded.getParent());
+        Files.write(sharded, IMAGE);
+        Files.writeString(sharded.resolveSibling("antiguo.png.ref"), "2");
+        Files.writeString(avatars.resolve("antiguo.png.ref"), "3");
+
+        assertThat(storage.migrateFlatFiles(10)).isEqualTo(1);
+
+        assertThat(sharded.resolveSibling("antiguo.png.ref")).hasContent("4");
+        assertThat(avatars.resolve("antiguo.png.ref")).doesNotExist();
+    }
+
+    @Test
+    void migrateFlatFiles_WithOrphanedSidecarOfDeletedBlob_ShouldDropIt() throws Exception {
+        Path avatars = uploadDir.resolve("avatars");
+        Files.writeString(avatars.resolve("antiguo.png.ref"), "3");
+
+        assertThat(storage.migrateFlatFiles(10)).isEqualTo(1);
+
+        assertThat(avatars.resolve("antiguo.png.ref")).doesNotExist();
+        assertThat(shardedLegacyPath("antiguo.png").resolveSibling("antiguo.png.ref")).doesNotExist();
+    }
+
+    @Test
+    void sweepOrphans_ShouldDeleteOnlyUnreferencedBlobsOlderThanTheCutoff() throws Exception {
+        String kept = Paths.get(storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png")).getFileName().toString();
+        String orphan = Paths.get(storage.saveFile(new ByteArrayInputStream("huerfana".getBytes(StandardCharsets.UTF_8)), "a.png")).getFileName().toString();
+        String recent = Paths.get(storage.saveFile(new ByteArrayInputStream("reciente".getBytes(StandardCharsets.UTF_8)), "a.png")).getFileName().toString();
+        Instant old = Instant.now().minus(Duration.ofDays(2));
+        for (String name : List.of(kept, orphan)) {
+            age(blobPath(name), old);
+            age(refOf(blobPath(name)), old);
+        }
+
+        SweepResult result = storage.sweepOrphans(kept::equals, Instant.now().minus(Duration.ofDays(1)));
+
+        assertThat(result.getFiles()).isEqualTo(1);
+        assertThat(result.getBytes()).isEqualTo("huerfana".length());
+        assertThat(blobPath(orphan)).doesNotExist();
+        assertThat(refOf(blobPath(orphan))).doesNotExist();
+        assertThat(blobPath(kept)).exists();
+        assertThat(blobPath(recent)).exists();
+    }
+
+    @Test
+    void sweepOrphans_WithFreshReferenceOnOldBlob_ShouldKeepIt() throws Exception {
+        String name = Paths.get(storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png")).getFileName().toString();
+        age(blobPath(name), Instant.now().minus(Duration.ofDays(2)));
+        // A dedup hit only rewrites the sidecar
+        storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png");
+
+        SweepResult result = storage.sweepOrphans(blob -> false, Instant.now().minus(Duration.ofDays(1)));
+
+        assertThat(result.getFiles()).isZero();
+        assertThat(blobPath(name)).exists();
+    }
+
+    @Test
+    void sweepOrphans_ShouldDeleteStaleUploadTempFiles() throws Exception {
+        Path temp = uploadDir.resolve("avatars").resolve(".tmp").resolve("upload-1.part");
+        Files.write(temp, IMAGE);
+        age(temp, Instant.now().minus(Duration.ofDays(2)));
+        Path fresh = uploadDir.resolve("avatars").resolve(".tmp").resolve("upload-2.part");
+        Files.write(fresh, IMAGE);
+
+        SweepResult result = storage.sweepOrphans(blob -> false, Instant.now().minus(Duration.ofDays(1)));
+
+        assertThat(result.getFiles()).isEqualTo(1);
+        assertThat(temp).doesNotExist();
+        assertThat(fresh).exists();
+    }
+
+    @Test
+    void saveChunk_ShouldKeepChunksOutOfTheAvatarNamespace() throws Exception {
+        String key = storage.saveChunk(new ByteArrayInputStream(IMAGE));
+
+        assertThat(storage.getFileInfo(key)).isNull();
+        assertThrows(NoSuchFileException.class, () -> storage.openFile(key));
+        try (InputStream in = storage.openChunk(key)) {
+            assertThat(in.readAllBytes()).isEqualTo(IMAGE);
+        }
+
+        storage.deleteChunk(key);
+
+        assertThrows(NoSuchFileException.class, () -> storage.openChunk(key));
+    }
+
+    @Test
+    void openChunk_WithKeyThatIsNotAChunk_ShouldNotLeaveTheChunkFolder() throws Exception {
+        String url = storage.saveFile(new ByteArrayInputStream(IMAGE), "a.png");
+        String name = Paths.get(url).getFileName().toString();
+
+        assertThrows(NoSuchFileException.class, () -> storage.openChunk("../avatars/" + name.substring(0, 2) + "/" + name.substring(2, 4) + "/" + name));
+    }
+
+    @Test
+    void sweepOrphans_ShouldDeleteChunksOfAbandonedSessions() throws Exception {
+        String abandoned = storage.saveChunk(new ByteArrayInputStream(IMAGE));
+        String active = storage.saveChunk(new ByteArrayInputStream(IMAGE));
+        age(uploadDir.resolve("chunks").resolve(abandoned), Instant.now().minus(Duration.ofDays(2)));
+
+        SweepResult result = storage.sweepOrphans(blob -> true, Instant.now().minus(Duration.ofDays(1)));
+
+        assertThat(result.getFiles()).isEqualTo(1);
+        assertThrows(NoSuchFileException.class, () -> storage.openChunk(abandoned));
+        storage.openChunk(active).close();
+    }
+
+    private static void age(Path path, Instant modified) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.from(modified));
+    }
+
+    private static Path refOf(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + ".ref");
+    }
+
+    // Legacy names are spread by the hash of the name itself
+    private Path shardedLegacyPath(String name) throws NoSuchAlgorithmException {
+        String prefix = sha256Hex(name.getBytes(StandardCharsets.UTF_8));
+        return uploadDir.resolve("avatars").resolve(prefix.substring(0, 2)).resolve(prefix.substring(2, 4)).resolve(name);
+    }
+
+    private Path blobPath(String url) {
+        String name = Paths.get(url).getFileName().toString();
+        return uploadDir.resolve("avatars").resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    private static String sha256Hex(byte[] bytes) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
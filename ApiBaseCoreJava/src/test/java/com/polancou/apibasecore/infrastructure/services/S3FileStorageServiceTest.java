@@ -0,0 +1,191 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsRequest;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.paginators.ListMultipartUploadsIterable;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3FileStorageServiceTest {
+
+    private static final String BUCKET = "avatars-bucket";
+    private static final String KEY = "avatars/" + "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08.png";
+
+    @Mock
+    private S3Client s3;
+
+    private S3FileStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new S3FileStorageService(s3, BUCKET, "avatars/", "upload-chunks/", 0);
+    }
+
+    @Test
+    void saveFile_WithNewContent_ShouldPutTheObject() throws Exception {
+        when(s3.headObject(any(HeadObjectRequest.class))).thenThrow(notFound());
+
+        String url = storage.saveFile(new ByteArrayInputStream("test".getBytes(StandardCharsets.UTF_8)), "a.png");
+
+        assertThat(url).isEqualTo("/uploads/" + KEY);
+        verify(s3).putObject(argThat((PutObjectRequest request) -> request.key().equals(KEY)), any(RequestBody.class));
+        verify(s3, never()).copyObject(any(CopyObjectRequest.class));
+    }
+
+    @Test
+    void saveFile_WithExistingContent_ShouldRefreshLastModifiedInPlace() throws Exception {
+        when(s3.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().build());
+
+        storage.saveFile(new ByteArrayInputStream("test".getBytes(StandardCharsets.UTF_8)), "a.png");
+
+        ArgumentCaptor<CopyObjectRequest> copy = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(s3).copyObject(copy.capture());
+        assertThat(copy.getValue().sourceKey()).isEqualTo(KEY);
+        assertThat(copy.getValue().destinationKey()).isEqualTo(KEY);
+        assertThat(copy.getValue().metadataDirective()).isEqualTo(MetadataDirective.REPLACE);
+        assertThat(copy.getValue().contentType()).isEqualTo("image/png");
+        verify(s3, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void sweepOrphans_ShouldDeleteUnreferencedObjectsOlderThanTheCutoff() throws Exception {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(1));
+        Instant old = cutoff.minus(Duration.ofDays(1));
+        stubListing(object("avatars/huerfano.png", old, 10), object("avatars/usado.png", old, 20),
+                object("avatars/nuevo.png", Instant.now(), 30));
+        when(s3.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().lastModified(old).build());
+
+        SweepResult result = storage.sweepOrphans("usado.png"::equals, cutoff);
+
+        assertThat(result.getFiles()).isEqualTo(1);
+        assertThat(result.getBytes()).isEqualTo(10);
+        ArgumentCaptor<DeleteObjectsRequest> delete = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3).deleteObjects(delete.capture());
+        assertThat(delete.getValue().delete().objects()).extracting(ObjectIdentifier::key).containsExactly("avatars/huerfano.png");
+    }
+
+    @Test
+    void sweepOrphans_WhenUploadReusesTheObjectDuringTheListing_ShouldKeepIt() throws Exception {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(1));
+        stubListing(object(KEY, cutoff.minus(Duration.ofDays(1)), 4));
+        // The listing is stale: a dedup hit touches the object before its page is deleted
+        AtomicReference<Instant> lastModified = new AtomicReference<>(cutoff.minus(Duration.ofDays(1)));
+        when(s3.headObject(any(HeadObjectRequest.class))).thenAnswer(invocation ->
+                HeadObjectResponse.builder().lastModified(lastModified.get()).build());
+        when(s3.copyObject(any(CopyObjectRequest.class))).thenAnswer(invocation -> {
+            lastModified.set(Instant.now());
+            return null;
+        });
+        storage.saveFile(new ByteArrayInputStream("test".getBytes(StandardCharsets.UTF_8)), "a.png");
+
+        SweepResult result = storage.sweepOrphans(name -> false, cutoff);
+
+        assertThat(result.getFiles()).isZero();
+        verify(s3, never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @Test
+    void sweepOrphans_WhenObjectIsAlreadyGone_ShouldSkipIt() throws Exception {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(1));
+        stubListing(object("avatars/huerfano.png", cutoff.minus(Duration.ofDays(1)), 10));
+        when(s3.headObject(any(HeadObjectRequest.class))).thenThrow(notFound());
+
+        SweepResult result = storage.sweepOrphans(name -> false, cutoff);
+
+        assertThat(result.getFiles()).isZero();
+        verify(s3, never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @Test
+    void sweepOrphans_ShouldDeleteChunksOfAbandonedSessions() throws Exception {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(1));
+        Instant old = cutoff.minus(Duration.ofDays(1));
+        String abandoned = "upload-chunks/" + UUID.randomUUID() + ".part";
+        stubListing(object(abandoned, old, 10), object("upload-chunks/" + UUID.randomUUID() + ".part", Instant.now(), 20));
+        when(s3.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().lastModified(old).build());
+
+        SweepResult result = storage.sweepOrphans(name -> true, cutoff);
+
+        assertThat(result.getFiles()).isEqualTo(1);
+        ArgumentCaptor<DeleteObjectsRequest> delete = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3).deleteObjects(delete.capture());
+        assertThat(delete.getValue().delete().objects()).extracting(ObjectIdentifier::key).containsExactly(abandoned);
+    }
+
+    @Test
+    void saveChunk_ShouldStoreOutsideTheAvatarPrefix() throws Exception {
+        String key = storage.saveChunk(new ByteArrayInputStream("parte".getBytes(StandardCharsets.UTF_8)));
+
+        verify(s3).putObject(argThat((PutObjectRequest request) -> request.key().equals("upload-chunks/" + key)), any(RequestBody.class));
+    }
+
+    @Test
+    void openChunk_WithKeyThatIsNotAChunk_ShouldNotReachTheBucket() {
+        assertThrows(NoSuchFileException.class, () -> storage.openChunk("../avatars/secreto.png"));
+
+        verifyNoInteractions(s3);
+    }
+
+    @Test
+    void constructor_WithChunkPrefixInsideAvatarPrefix_ShouldFail() {
+        assertThrows(IllegalArgumentException.class, () -> new S3FileStorageService(s3, BUCKET, "avatars/", "avatars/chunks", 0));
+    }
+
+    private void stubListing(S3Object... objects) {
+        when(s3.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+                .thenAnswer(invocation -> new ListObjectsV2Iterable(s3, invocation.getArgument(0)));
+        when(s3.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+            String prefix = invocation.getArgument(0, ListObjectsV2Request.class).prefix();
+            return ListObjectsV2Response.builder()
+                    .contents(Arrays.stream(objects).filter(object -> object.key().startsWith(prefix)).toList())
+                    .isTruncated(false)
+                    .build();
+        });
+        when(s3.listMultipartUploadsPaginator(any(ListMultipartUploadsRequest.class)))
+                .thenAnswer(invocation -> new ListMultipartUploadsIterable(s3, invocation.getArgument(0)));
+        when(s3.listMultipartUploads(any(ListMultipartUploadsRequest.class)))
+                .thenReturn(ListMultipartUploadsResponse.builder().isTruncated(false).build());
+    }
+
+    private static S3Object object(String key, Instant lastModified, long size) {
+        return S3Object.builder().key(key).lastModified(lastModified).size(size).build();
+    }
+
+    private static S3Exception notFound() {
+        return (S3Exception) S3Exception.builder().statusCode(404).build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SmtpEmailServiceTest {
+
+    private static final int SENDS = 3;
+
+    @Mock
+    private JavaMailSender javaMailSender;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(SENDS);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void send_WithoutVirtualThreads_ShouldNotCapConcurrentSends() throws Exception {
+        // Every send waits for all the others: a cap below SENDS would time out here
+        CyclicBarrier allInside = new CyclicBarrier(SENDS);
+        doAnswer(invocation -> allInside.await(5, TimeUnit.SECONDS)).when(javaMailSender).send(any(MimeMessage.class));
+
+        sendConcurrently(service(false, 1));
+
+        verify(javaMailSender, times(SENDS)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void send_WithVirtualThreads_ShouldCapConcurrentSends() throws Exception {
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inside.decrementAndGet();
+            return null;
+        }).when(javaMailSender).send(any(MimeMessage.class));
+
+        sendConcurrently(service(true, 1));
+
+        assertThat(maxInside.get()).isEqualTo(1);
+    }
+
+    private void sendConcurrently(SmtpEmailService service) throws Exception {
+        List<Future<?>> sends = new ArrayList<>();
+        for (int i = 0; i < SENDS; i++) {
+            sends.add(pool.submit(() -> service.sendVerificationEmail("test@email.com", "Usuario", "https://example.com/verify")));
+        }
+        for (Future<?> send : sends) {
+            send.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private SmtpEmailService service(boolean virtualThreads, int maxConcurrentSends) {
+        when(javaMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        SmtpEmailService service = new SmtpEmailService(javaMailSender, new DefaultResourceLoader(),
+                virtualThreads, maxConcurrentSends, ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(service, "fromEmail", "no-reply@example.com");
+        return service;
+    }
+}
@@ -0,0 +1,138 @@
+package com.polancou.apibasecore.infrastructure.services;
+
+import com.polancou.apibasecore.domain.models.UserChange;
+import com.polancou.apibasecore.infrastructure.repositories.UserChangeRepository;
+import com.polancou.apibasecore.infrastructure.sharding.ShardRoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserChangePollingJobTest {
+
+    private static final UUID OTHER_INSTANCE = UUID.randomUUID();
+
+    @Mock
+    private UserChangeRepository userChangeRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ObjectProvider<ShardRoutingDataSource> shards;
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private UserChangeBus userChangeBus;
+    private UserChangePollingJob job;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userChangeBus = new UserChangeBus(userChangeRepository, eventPublisher);
+        job = new UserChangePollingJob(userChangeRepository, userChangeBus, eventPublisher, shards, 100,
+                Duration.ofSeconds(30), Duration.ofHours(1), meterRegistry, clock::get);
+    }
+
+    @Test
+    void Poll_FirstRun_StartsAtTheLatestChangeWithoutDelivering() {
+        when(userChangeRepository.findMaxId()).thenReturn(41L);
+
+        job.poll();
+
+        verify(userChangeRepository, never()).findAfter(anyLong(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+
+        when(userChangeRepository.findAfter(eq(41L), any(Limit.class))).thenReturn(List.of());
+        job.poll();
+
+        verify(userChangeRepository).findAfter(eq(41L), any(Limit.class));
+    }
+
+    @Test
+    void Poll_ChangeFromAnotherInstance_PublishesRemoteEvent() {
+        UUID userId = UUID.randomUUID();
+        when(userChangeRepository.findMaxId()).thenReturn(null);
+        when(userChangeRepository.findAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(change(1, userId, OTHER_INSTANCE)));
+
+        job.poll();
+        job.poll();
+
+        verify(eventPublisher).publishEvent(new UserChangedEvent(userId, true));
+        assertThat(meterRegistry.counter("app.user.changes.received").count()).isEqualTo(1);
+    }
+
+    @Test
+    void Poll_OwnChange_IsNotPublishedAgain() {
+        when(userChangeRepository.findMaxId()).thenReturn(0L);
+        when(userChangeRepository.findAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(change(1, UUID.randomUUID(), userChangeBus.getInstanceId())));
+
+        job.poll();
+        job.poll();
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void Poll_SkippedIdCommitsLater_IsDeliveredOnTheNextPoll() {
+        UUID late = UUID.randomUUID();
+        when(userChangeRepository.findMaxId()).thenReturn(10L);
+        when(userChangeRepository.findAfter(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(change(12, UUID.randomUUID(), OTHER_INSTANCE)));
+        when(userChangeRepository.findAfter(eq(12L), any(Limit.class))).thenReturn(List.of());
+        when(userChangeRepository.findByIds(anyCollection()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(change(11, late, OTHER_INSTANCE)));
+
+        job.poll();
+        job.poll();
+        assertThat(job.getPendingGaps()).isEqualTo(1);
+
+        job.poll();
+
+        verify(eventPublisher).publishEvent(new UserChangedEvent(late, true));
+        assertThat(job.getPendingGaps()).isZero();
+    }
+
+    @Test
+    void Poll_SkippedIdNeverCommits_IsDroppedAfterTheGapTimeout() {
+        when(userChangeRepository.findMaxId()).thenReturn(10L);
+        when(userChangeRepository.findAfter(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(change(12, UUID.randomUUID(), OTHER_INSTANCE)));
+        when(userChangeRepository.findAfter(eq(12L), any(Limit.class))).thenReturn(List.of());
+        when(userChangeRepository.findByIds(anyCollection())).thenReturn(List.of());
+
+        job.poll();
+        job.poll();
+        assertThat(job.getPendingGaps()).isEqualTo(1);
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        job.poll();
+
+        assertThat(job.getPendingGaps()).isZero();
+    }
+
+    private static UserChange change(long id, UUID userId, UUID origin) {
+        UserChange change = new UserChange(userId, origin);
+        ReflectionTestUtils.setField(change, "id", id);
+        return change;
+    }
+}
@@ -0,0 +1,184 @@
+package com.polancou.apibasecore.infrastructure.sharding;
+
+import com.polancou.apibasecore.application.utilities.UserUniqueConstraints;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Routes between three in-memory databases that each know their own shard number, with the user
+ * directory on the first.
+ */
+class ShardRoutingDataSourceTest {
+
+    private static final int SHARDS = 3;
+
+    private ShardRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private UserDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            shards.add(database(i));
+        }
+        routingDataSource = new ShardRoutingDataSource(shards);
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        directory = new UserDirectory(shards.get(ShardRoutingDataSource.HOME_SHARD));
+        directory.createTableIfMissing();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void ShardOf_IsStableAndSpreadsRandomIds() {
+        int[] counts = new int[SHARDS];
+        for (int i = 0; i < 3000; i++) {
+            UUID id = UUID.randomUUID();
+            int shard = routingDataSource.shardOf(id);
+            assertThat(ShardRoutingDataSource.shardOf(id, SHARDS)).isEqualTo(shard);
+            counts[shard]++;
+        }
+        for (int count : counts) {
+            assertThat(count).isBetween(800, 1200);
+        }
+    }
+
+    @Test
+    void RunOn_SendsConnectionsToThatShard() {
+        AtomicReference<Integer> node = new AtomicReference<>();
+
+        ShardContext.runOn(2, () -> node.set(currentNode()));
+
+        assertThat(node.get()).isEqualTo(2);
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    void AnonymousTransaction_IsPinnedToHomeShard() {
+        Integer node = transactionTemplate.execute(status -> {
+            int first = currentNode();
+            assertThatThrownBy(() -> ShardContext.pin(1)).isInstanceOf(IllegalStateException.class);
+            return first;
+        });
+
+        assertThat(node).isEqualTo(ShardRoutingDataSource.HOME_SHARD);
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    void AuthenticatedTransaction_StartsOnTheUsersShard() {
+        UUID userId = idOnShard(1);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId.toString(), null, List.of()));
+
+        Integer node = transactionTemplate.execute(status -> currentNode());
+
+        assertThat(node).isEqualTo(1);
+    }
+
+    @Test
+    void Directory_FindsUserByEitherKey() {
+        UUID id = idOnShard(2);
+        directory.put(new UserDirectory.Entry(id, "ana@example.com", "TAX-1", 2));
+
+        assertThat(directory.findByEmail("ana@example.com")).hasValueSatisfying(entry -> {
+            assertThat(entry.id()).isEqualTo(id);
+            assertThat(entry.shard()).isEqualTo(2);
+        });
+        assertThat(directory.findByTaxId("TAX-1")).isPresent();
+        assertThat(directory.findExistingEmails(List.of("ana@example.com", "otro@example.com")))
+                .containsExactly("ana@example.com");
+
+        directory.remove(List.of(id));
+        assertThat(directory.findByEmail("ana@example.com")).isEmpty();
+    }
+
+    @Test
+    void Directory_SeveralUsersWithoutTaxId_AreAllKept() {
+        directory.put(new UserDirectory.Entry(idOnShard(0), "ana@example.com", null, 0));
+        directory.put(new UserDirectory.Entry(idOnShard(1), "luis@example.com", null, 1));
+
+        assertThat(directory.findExistingEmails(List.of("ana@example.com", "luis@example.com"))).hasSize(2);
+    }
+
+    @Test
+    void Directory_CreateTableIfMissing_IsIdempotent() {
+        directory.createTableIfMissing();
+
+        directory.put(new UserDirectory.Entry(idOnShard(0), "ana@example.com", "TAX-1", 0));
+        assertThat(directory.findByTaxId("TAX-1")).isPresent();
+    }
+
+    @Test
+    void Directory_ExistingLookupOverTheParameterLimit_FindsMatchesInEveryChunk() {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            emails.add("user" + i + "@example.com");
+        }
+        for (int i : new int[] {0, 1500, 2499}) {
+            directory.put(new UserDirectory.Entry(idOnShard(0), emails.get(i), null, 0));
+        }
+
+        assertThat(directory.findExistingEmails(emails))
+                .containsExactlyInAnyOrder("user0@example.com", "user1500@example.com", "user2499@example.com");
+    }
+
+    @Test
+    void Directory_DuplicateEmailOnAnotherShard_MapsToEmailKey() {
+        directory.put(new UserDirectory.Entry(idOnShard(0), "ana@example.com", "TAX-1", 0));
+
+        assertThatThrownBy(() -> directory.put(new UserDirectory.Entry(idOnShard(1), "ana@example.com", "TAX-2", 1)))
+                .isInstanceOfSatisfying(DataIntegrityViolationException.class, e ->
+                        assertThat(UserUniqueConstraints.violatedKey(e)).isEqualTo(UserUniqueConstraints.Key.EMAIL));
+    }
+
+    private int currentNode() {
+        return jdbcTemplate.queryForObject("select shard from node", Integer.class);
+    }
+
+    private UUID idOnShard(int shard) {
+        while (true) {
+            UUID id = UUID.randomUUID();
+            if (routingDataSource.shardOf(id) == shard) return id;
+        }
+    }
+
+    private static DataSource database(int shard) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:shard" + shard + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table node (shard int)");
+        jdbc.update("insert into node (shard) values (?)", shard);
+        return dataSource;
+    }
+}
@@ -0,0 +1,221 @@
+package com.polancou.apibasecore.infrastructure.sharding;
+
+import com.polancou.apibasecore.application.dtos.PerfilUsuarioDto;
+import com.polancou.apibasecore.application.dtos.UserFilterDto;
+import com.polancou.apibasecore.application.interfaces.IEncryptionService;
+import com.polancou.apibasecore.application.interfaces.IUserChangeNotifier;
+import com.polancou.apibasecore.application.services.UserService;
+import com.polancou.apibasecore.domain.enums.RolUsuario;
+import com.polancou.apibasecore.domain.models.Usuario;
+import com.polancou.apibasecore.infrastructure.config.ShardingConfig;
+import com.polancou.apibasecore.infrastructure.repositories.AddressRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UploadSessionRepository;
+import com.polancou.apibasecore.infrastructure.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Listings merged across three in-memory shards must come back in the order a single database
+ * would have produced. Every shard holds some of the users, so a merge that ignores the sort
+ * (or cannot see the sort key) shows up as a wrong order.
+ */
+@DataJpaTest(properties = {
+        "sharding.enabled=true",
+        "sharding.urls=jdbc:h2:mem:interceptor0;MODE=MSSQLServer;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:interceptor1;MODE=MSSQLServer;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:interceptor2;MODE=MSSQLServer;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1",
+        "sharding.username=sa",
+        "sharding.password=",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ShardingConfig.class, ShardRoutingInterceptorTest.Metrics.class})
+// Each shard's part runs in a transaction of its own; a test transaction would pin everything to one shard
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShardRoutingInterceptorTest {
+
+    private static final int USERS = 30;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+    @Autowired
+    private ShardRoutingDataSource routingDataSource;
+
+    private UserService userService;
+    private final List<Usuario> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService(userRepository, addressRepository,
+                mock(IEncryptionService.class), mock(IUserChangeNotifier.class));
+        // Each attribute gets its own permutation, so no two sorts give the same order
+        for (int i = 0; i < USERS; i++) {
+            Usuario usuario = new Usuario(String.format("Usuario %02d", i * 7 % USERS),
+                    String.format("user%02d@test.com", i * 11 % USERS), String.format("555%04d", i * 13 % USERS),
+                    RolUsuario.User, String.format("TAX%02d", i * 17 % USERS));
+            users.add(userRepository.save(usuario));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void Setup_SpreadsUsersOverEveryShard() {
+        assertThat(users).extracting(usuario -> routingDataSource.shardOf(usuario.getId()))
+                .contains(0, 1, 2);
+    }
+
+    @Test
+    void GetUsers_SortedByName_MergesShardsInOrder() {
+        assertSortedAcrossShards("name", Usuario::getName);
+    }
+
+    @Test
+    void GetUsers_SortedByEmail_MergesShardsInOrder() {
+        assertSortedAcrossShards("email", Usuario::getEmail);
+    }
+
+    @Test
+    void GetUsers_SortedByPhone_MergesShardsInOrder() {
+        assertSortedAcrossShards("phone", Usuario::getPhone);
+    }
+
+    @Test
+    void GetUsers_SortedByTaxId_MergesShardsInOrder() {
+        assertSortedAcrossShards("tax_id", Usuario::getTaxId);
+    }
+
+    @Test
+    void FindProjected_SortedByUnselectedAttribute_MergesOnItAndLeavesItOut() {
+        List<Map<String, Object>> rows = userRepository.findProjected(null, Sort.by("email"), List.of("name"));
+
+        assertThat(rows).extracting(row -> row.get("name")).containsExactlyElementsOf(expected(Usuario::getEmail, Usuario::getName));
+        assertThat(rows).allSatisfy(row -> assertThat(row).containsOnlyKeys("name"));
+    }
+
+    @Test
+    void GetUsersFields_SortedByUnselectedField_MergesShardsInOrder() {
+        UserFilterDto filter = new UserFilterDto();
+        filter.setFields("name");
+        filter.setSortedBy("phone");
+
+        List<Map<String, Object>> profiles = userService.getUsersFields(filter);
+
+        assertThat(profiles).extracting(profile -> profile.get("name"))
+                .containsExactlyElementsOf(expected(Usuario::getPhone, Usuario::getName));
+    }
+
+    @Test
+    void FindIdsAfter_WalkedPageByPage_VisitsEveryUserOnce() {
+        List<UUID> visited = new ArrayList<>();
+        UUID after = null;
+        int pages = 0;
+        List<UUID> page;
+        while (!(page = userRepository.findIdsAfter(null, after, 4)).isEmpty()) {
+            assertThat(page).hasSizeLessThanOrEqualTo(4);
+            visited.addAll(page);
+            after = page.get(page.size() - 1);
+            pages++;
+        }
+
+        assertThat(visited).doesNotHaveDuplicates()
+                .containsExactlyInAnyOrderElementsOf(users.stream().map(Usuario::getId).toList());
+        assertThat(pages).isGreaterThanOrEqualTo(USERS / 4);
+    }
+
+    @Test
+    void CheckMergeable_WithTheApplicationsRepositories_Passes() {
+        ShardRoutingInterceptor.checkMergeable(UserRepository.class, true);
+        ShardRoutingInterceptor.checkMergeable(AddressRepository.class, false);
+        ShardRoutingInterceptor.checkMergeable(UploadSessionRepository.class, false);
+    }
+
+    @Test
+    void CheckMergeable_WithResultsThatCannotBeMerged_FailsNamingThem() {
+        assertThatThrownBy(() -> ShardRoutingInterceptor.checkMergeable(UnshardableUsers.class, true))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("findByName returns Page")
+                .hasMessageContaining("streamByPhone returns Stream")
+                .hasMessageContaining("findFirstByCreatedAtAfter returns Usuario")
+                .hasMessageContaining("findByIdIn returns Slice")
+                .hasMessageNotContaining("findFirstById");
+    }
+
+    private void assertSortedAcrossShards(String sortedBy, Function<Usuario, String> attribute) {
+        UserFilterDto filter = new UserFilterDto();
+        filter.setSortedBy(sortedBy);
+
+        List<PerfilUsuarioDto> profiles = userService.getUsers(filter);
+
+        assertThat(profiles).extracting(PerfilUsuarioDto::getId)
+                .containsExactlyElementsOf(expected(attribute, Usuario::getId));
+    }
+
+    private <T> List<T> expected(Function<Usuario, String> sortKey, Function<Usuario, T> value) {
+        return users.stream()
+                .sorted(Comparator.comparing(sortKey, String.CASE_INSENSITIVE_ORDER))
+                .map(value)
+                .toList();
+    }
+
+    interface UnshardableUsers extends Repository<Usuario, UUID> {
+
+        Page<Usuario> findByName(String name, Pageable pageable);
+
+        Stream<Usuario> streamByPhone(String phone);
+
+        Usuario findFirstByCreatedAtAfter(LocalDateTime createdAt);
+
+        // Split by shard, so several shards' slices would have to be merged
+        Slice<Usuario> findByIdIn(Collection<UUID> ids, Pageable pageable);
+
+        // Keyed by one user: always answered by that user's shard
+        Usuario findFirstById(UUID id);
+    }
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}